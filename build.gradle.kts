@@ -4,6 +4,7 @@ plugins {
     id("org.javamodularity.moduleplugin") version "1.8.15"
     id("org.openjfx.javafxplugin") version "0.1.0"
     id("org.beryx.jlink") version "2.25.0"
+    id("me.champeau.jmh") version "0.7.3"
 }
 
 group = "dev.swell"
@@ -23,11 +24,14 @@ java {
 
 tasks.withType<JavaCompile> {
     options.encoding = "UTF-8"
+    // BatchEnv usa a Vector API, que ainda é um módulo incubado; o módulo só a requer como static, então em
+    // execução ela entra com --add-modules apenas no subcomando env e nos forks do JMH
+    options.compilerArgs.addAll(listOf("--add-modules", "jdk.incubator.vector"))
 }
 
 application {
-    mainModule.set("dev.swell.chip8")
-    mainClass.set("dev.swell.chip8.HelloApplication")
+    mainModule.set("dev.swell.chip")
+    mainClass.set("dev.swell.chip8.Launcher")
 }
 
 javafx {
@@ -44,6 +48,15 @@ tasks.withType<Test> {
     useJUnitPlatform()
 }
 
+jmh {
+    jmhVersion = "1.37"
+    profilers.add("gc")
+    resultFormat = "JSON"
+    jvmArgsAppend.addAll("--add-modules", "jdk.incubator.vector")
+    // ./gradlew jmh -PjmhInclude=ThroughputBenchmark
+    providers.gradleProperty("jmhInclude").orNull?.let { includes.add(it) }
+}
+
 tasks.named<JavaExec>("run") {
     jvmArgs = listOf(
         "--module-path", classpath.asPath,
@@ -54,8 +67,33 @@ tasks.named<JavaExec>("run") {
 
 jlink {
     imageZip.set(layout.buildDirectory.file("/distributions/app-${javafx.platform.classifier}.zip"))
-    options.set(listOf("--strip-debug", "--compress", "2", "--no-header-files", "--no-man-pages"))
+    // requires static não entra na imagem sozinho: inclui a Vector API para o env (JDK_JAVA_OPTIONS=--add-modules=...)
+    options.set(listOf("--strip-debug", "--compress", "2", "--no-header-files", "--no-man-pages", "--generate-cds-archive",
+        "--add-modules", "jdk.incubator.vector"))
     launcher {
         name = "app"
+        // app.jsa vem do cdsArchive; sem ele a JVM só avisa e sobe sem CDS das classes do emulador
+        jvmArgs = listOf("-XX:SharedArchiveFile={{BIN_DIR}}/../lib/app.jsa")
     }
 }
+
+// arquivo CDS dinâmico da imagem: uma execução de treino do modo run grava as classes do núcleo já
+// verificadas (inclusive os lambdas), então `bin/app run ...` sobe sem carregar nem verificar nada do zero
+val cdsArchive by tasks.registering(Exec::class) {
+    dependsOn(tasks.named("jlink"))
+    val image = layout.buildDirectory.dir("image").get().asFile
+    val rom = layout.buildDirectory.file("cds/train.ch8").get().asFile
+    doFirst {
+        rom.parentFile.mkdirs()
+        // desenha, soma, testa e termina em um salto para si mesmo
+        rom.writeBytes(byteArrayOf(0x00, 0xE0.toByte(), 0xA0.toByte(), 0x50, 0x60, 0x00, 0x61, 0x00, 0xD0.toByte(), 0x15,
+            0x70, 0x08, 0x30, 0x40, 0x12, 0x08, 0xF0.toByte(), 0x15, 0x12, 0x12))
+    }
+    workingDir = image
+    commandLine("bin/java", "-XX:ArchiveClassesAtExit=lib/app.jsa", "-m", "dev.swell.chip/dev.swell.chip8.Launcher",
+        "run", rom.absolutePath, "--until", "halt", "--dump", "all")
+}
+
+tasks.named("jlinkZip") {
+    dependsOn(cdsArchive)
+}
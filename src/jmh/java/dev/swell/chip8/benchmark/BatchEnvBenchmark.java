@@ -0,0 +1,72 @@
+package dev.swell.chip8.benchmark;
+
+import dev.swell.chip8.Chip8;
+import dev.swell.chip8.batch.BatchEnv;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Passos de ambiente por segundo em um núcleo: {@link #ENVS} ambientes no {@link BatchEnv} contra o mesmo
+ * número de objetos {@link Chip8} rodando um quadro cada.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BatchEnvBenchmark {
+
+    static final int ENVS = 1024;
+
+    @Param({"ALU", "DRAW", "MIXED"})
+    public String rom;
+
+    private BatchEnv env;
+    private Chip8[] machines;
+    private final int[] actions = new int[ENVS];
+
+    @Setup
+    public void setup() {
+        byte[] bytes = switch (rom) {
+            case "ALU" -> SyntheticRoms.ALU;
+            case "DRAW" -> SyntheticRoms.DRAW;
+            default -> SyntheticRoms.MIXED;
+        };
+        env = new BatchEnv(bytes, ENVS);
+        machines = new Chip8[ENVS];
+        for (int e = 0; e < ENVS; e++) {
+            machines[e] = new Chip8();
+            machines[e].loadRom(bytes);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ENVS)
+    public long[] batch() {
+        return env.step(actions);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ENVS)
+    public long machines() {
+        long cycles = 0;
+        for (Chip8 chip8 : machines) {
+            chip8.runFrame(Chip8.DEFAULT_INSTRUCTIONS_PER_FRAME, false);
+            cycles += chip8.getCycles();
+        }
+        return cycles;
+    }
+}
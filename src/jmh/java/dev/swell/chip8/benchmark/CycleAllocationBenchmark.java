@@ -0,0 +1,41 @@
+package dev.swell.chip8.benchmark;
+
+import dev.swell.chip8.Chip8;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mede o custo de {@link Chip8#cycle()} em regime estável, por instrução. Rodar com o profiler {@code gc}
+ * (padrão da task {@code jmh}): {@code gc.alloc.rate.norm} deve ficar em ~0 B/op.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CycleAllocationBenchmark {
+
+    private Chip8 chip8;
+
+    @Setup
+    public void setup() {
+        chip8 = new Chip8();
+        chip8.loadRom(SyntheticRoms.MIXED);
+    }
+
+    @Benchmark
+    public void cycle() {
+        chip8.cycle();
+    }
+}
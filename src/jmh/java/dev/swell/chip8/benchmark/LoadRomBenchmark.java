@@ -0,0 +1,42 @@
+package dev.swell.chip8.benchmark;
+
+import dev.swell.chip8.Chip8;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Custo de {@link Chip8#loadRom(byte[])} (reset da máquina + cópia) com uma ROM do tamanho máximo.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LoadRomBenchmark {
+
+    private final Chip8 chip8 = new Chip8();
+    private final byte[] rom = new byte[Chip8.MEMORY_SIZE - Chip8.PROGRAM_START];
+
+    @Setup
+    public void setup() {
+        new Random(8).nextBytes(rom);
+    }
+
+    @Benchmark
+    public int loadRom() {
+        chip8.loadRom(rom);
+        return chip8.getPc();
+    }
+}
@@ -0,0 +1,58 @@
+package dev.swell.chip8.benchmark;
+
+import dev.swell.chip8.Chip8;
+import dev.swell.chip8.Framebuffer;
+import dev.swell.chip8.RowRasterizer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.IntBuffer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Custo de transformar o framebuffer em pixels (a parte do {@code PixelBufferDisplay} que não depende do
+ * toolkit), com a tela inteira mudando e com uma única linha mudando por quadro.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RenderBenchmark {
+
+    private final Framebuffer framebuffer = new Framebuffer(Chip8.DISPLAY_WIDTH, Chip8.DISPLAY_HEIGHT);
+    private final RowRasterizer rasterizer = new RowRasterizer(Chip8.DISPLAY_WIDTH, Chip8.DISPLAY_HEIGHT, 0xFFFF0000, 0xFF000000);
+    private final IntBuffer pixels = IntBuffer.allocate(Chip8.DISPLAY_WIDTH * Chip8.DISPLAY_HEIGHT);
+    private final long[] frame = new long[framebuffer.wordCount()];
+    private final byte[] sprite = {(byte) 0xFF};
+    private int row = 0;
+
+    @Setup
+    public void setup() {
+        for (int y = 0; y < Chip8.DISPLAY_HEIGHT; y++) framebuffer.drawSprite(sprite, 0, y * 2, y, 1);
+    }
+
+    @Benchmark
+    public boolean fullFrame() {
+        framebuffer.copyTo(frame);
+        rasterizer.invalidate();
+        return rasterizer.rasterize(frame, pixels);
+    }
+
+    @Benchmark
+    public boolean singleRowChanged() {
+        framebuffer.drawSprite(sprite, 0, 0, row, 1);
+        row = (row + 1) & (Chip8.DISPLAY_HEIGHT - 1);
+        framebuffer.copyTo(frame);
+        return rasterizer.rasterize(frame, pixels);
+    }
+}
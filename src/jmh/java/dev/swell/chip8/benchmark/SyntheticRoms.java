@@ -0,0 +1,82 @@
+package dev.swell.chip8.benchmark;
+
+/**
+ * ROMs sintéticas que exercitam um tipo de instrução cada, todas em laço infinito.
+ */
+final class SyntheticRoms {
+
+    static final byte[] ALU = rom(
+            0x6005,     // 200: LD V0, 05
+            0x6103,     // 202: LD V1, 03
+            0x8014,     // 204: ADD V0, V1
+            0x8015,     // 206: SUB V0, V1
+            0x8126,     // 208: SHR V1
+            0x8203,     // 20A: XOR V2, V0
+            0x7301,     // 20C: ADD V3, 01
+            0x8232,     // 20E: AND V2, V3
+            0x8121,     // 210: OR V1, V2
+            0x1204      // 212: JP 204
+    );
+
+    static final byte[] DRAW = rom(
+            0xA050,     // 200: LD I, 050 (fonte "0")
+            0xD015,     // 202: DRW V0, V1, 5
+            0x7005,     // 204: ADD V0, 05
+            0x7103,     // 206: ADD V1, 03
+            0x1202      // 208: JP 202
+    );
+
+    static final byte[] CLEAR = rom(
+            0x00E0,     // 200: CLS
+            0x1200      // 202: JP 200
+    );
+
+    static final byte[] CALL_RETURN = rom(
+            0x2206,     // 200: CALL 206
+            0x1200,     // 202: JP 200
+            0x0000,     // 204: -
+            0x220A,     // 206: CALL 20A
+            0x00EE,     // 208: RET
+            0x00EE      // 20A: RET
+    );
+
+    static final byte[] TIMER_WAIT = rom(
+            0x6010,     // 200: LD V0, 10
+            0xF015,     // 202: LD DT, V0
+            0xF107,     // 204: LD V1, DT
+            0x3100,     // 206: SE V1, 00
+            0x1204,     // 208: JP 204
+            0x1200      // 20A: JP 200
+    );
+
+    // todas as classes de instrução que não desenham nem esperam teclado
+    static final byte[] MIXED = rom(
+            0x6005,     // 200: LD V0, 05
+            0x6103,     // 202: LD V1, 03
+            0x8014,     // 204: ADD V0, V1
+            0x8015,     // 206: SUB V0, V1
+            0x8206,     // 208: SHR V2
+            0x3007,     // 20A: SE V0, 07
+            0x7101,     // 20C: ADD V1, 01
+            0xA300,     // 20E: LD I, 300
+            0xF133,     // 210: LD B, V1
+            0xF265,     // 212: LD V2, [I]
+            0xC30F,     // 214: RND V3, 0F
+            0x221A,     // 216: CALL 21A
+            0x1200,     // 218: JP 200
+            0xF015,     // 21A: LD DT, V0
+            0x00EE      // 21C: RET
+    );
+
+    private SyntheticRoms() {
+    }
+
+    private static byte[] rom(int... words) {
+        byte[] rom = new byte[words.length * 2];
+        for (int i = 0; i < words.length; i++) {
+            rom[2 * i] = (byte) (words[i] >>> 8);
+            rom[2 * i + 1] = (byte) words[i];
+        }
+        return rom;
+    }
+}
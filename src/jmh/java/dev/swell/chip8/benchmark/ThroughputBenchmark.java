@@ -0,0 +1,93 @@
+package dev.swell.chip8.benchmark;
+
+import dev.swell.chip8.Chip8;
+import dev.swell.chip8.EngineType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Instruções por segundo de cada motor em ROMs sintéticas. Cada invocação é um quadro de
+ * {@link #INSTRUCTIONS} instruções (sem apresentação), de modo que o resultado é em instruções/µs.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ThroughputBenchmark {
+
+    static final int INSTRUCTIONS = 10_000;
+
+    @Param({"INTERPRETER", "THREADED", "RECOMPILER"})
+    public EngineType engine;
+
+    private Chip8 alu;
+    private Chip8 draw;
+    private Chip8 clear;
+    private Chip8 callReturn;
+    private Chip8 timerWait;
+
+    @Setup
+    public void setup() {
+        alu = machine(SyntheticRoms.ALU);
+        draw = machine(SyntheticRoms.DRAW);
+        clear = machine(SyntheticRoms.CLEAR);
+        callReturn = machine(SyntheticRoms.CALL_RETURN);
+        timerWait = machine(SyntheticRoms.TIMER_WAIT);
+    }
+
+    private Chip8 machine(byte[] rom) {
+        Chip8 chip8 = new Chip8();
+        chip8.setEngine(engine.create());
+        chip8.loadRom(rom);
+        return chip8;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(INSTRUCTIONS)
+    public long aluHeavy() {
+        alu.runFrame(INSTRUCTIONS, false);
+        return alu.getCycles();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(INSTRUCTIONS)
+    public long drawHeavy() {
+        draw.runFrame(INSTRUCTIONS, false);
+        return draw.getCycles();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(INSTRUCTIONS)
+    public long clearDisplay() {
+        clear.runFrame(INSTRUCTIONS, false);
+        return clear.getCycles();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(INSTRUCTIONS)
+    public long callReturnHeavy() {
+        callReturn.runFrame(INSTRUCTIONS, false);
+        return callReturn.getCycles();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(INSTRUCTIONS)
+    public long timerWaitLoop() {
+        timerWait.runFrame(INSTRUCTIONS, false);
+        return timerWait.getCycles();
+    }
+}
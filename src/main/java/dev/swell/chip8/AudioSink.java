@@ -0,0 +1,19 @@
+package dev.swell.chip8;
+
+public interface AudioSink {
+
+    AudioSink NONE = on -> {
+    };
+
+    /**
+     * Liga ou desliga o tom; chamado uma vez por quadro com {@code soundTimer > 0}.
+     */
+    void setTone(boolean on);
+
+    /**
+     * Padrão de 1 bit (128 amostras, MSB primeiro) e pitch do XO-CHIP; o array é da máquina e só vale
+     * durante a chamada.
+     */
+    default void setPattern(byte[] pattern, int pitch) {
+    }
+}
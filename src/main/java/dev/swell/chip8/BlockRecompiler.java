@@ -0,0 +1,231 @@
+package dev.swell.chip8;
+
+import java.lang.classfile.ClassFile;
+import java.lang.constant.ClassDesc;
+import java.lang.constant.MethodTypeDesc;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+import static java.lang.constant.ConstantDescs.CD_Object;
+import static java.lang.constant.ConstantDescs.CD_int;
+import static java.lang.constant.ConstantDescs.CD_void;
+import static java.lang.constant.ConstantDescs.INIT_NAME;
+import static java.lang.constant.ConstantDescs.MTD_void;
+
+/**
+ * Recompilador de blocos básicos: quando um endereço fica quente, o bloco que começa nele é traduzido
+ * para uma classe oculta cujo método {@code run} chama em linha reta os métodos de {@link Ops} com a
+ * instrução como constante, e o HotSpot compila isso como código normal.
+ * <p>
+ * Um bloco termina em qualquer desvio (JP, CALL, RET, BNNN, skips, FX0A) ou escrita em memória
+ * (FX33/FX55), e os blocos ficam em cache pelo endereço inicial até que uma escrita atinja seus bytes.
+ */
+public class BlockRecompiler implements ExecutionEngine {
+
+    public static final int DEFAULT_HOT_THRESHOLD = 16;
+    static final int MAX_BLOCK_LENGTH = 64;
+    static final int MAX_PREPARED_BLOCKS = 64;
+
+    private static final ClassDesc CD_CHIP8 = ClassDesc.of(Chip8.class.getName());
+    private static final ClassDesc CD_OPS = ClassDesc.of(Ops.class.getName());
+    private static final ClassDesc CD_BLOCK = ClassDesc.of(Block.class.getName());
+    private static final ClassDesc CD_GENERATED = ClassDesc.of(Chip8.class.getPackageName() + ".RecompiledBlock");
+    private static final MethodTypeDesc MTD_OP = MethodTypeDesc.of(CD_void, CD_CHIP8, CD_int);
+    private static final MethodTypeDesc MTD_RUN = MethodTypeDesc.of(CD_void, CD_CHIP8);
+    private static final MethodType MT_CONSTRUCTOR = MethodType.methodType(void.class);
+
+    interface Block {
+        void run(Chip8 chip8);
+    }
+
+    // operations: sequência do bloco; histogram: pares (operação << 8 | vezes) para contar em lote
+    private record CompiledBlock(Block code, int start, int end, int length, byte[] operations, int[] histogram) {
+    }
+
+    private final int hotThreshold;
+    private final CompiledBlock[] blocks = new CompiledBlock[Chip8.MEMORY_SIZE];
+    private final int[] hits = new int[Chip8.MEMORY_SIZE];
+    private final boolean[] code = new boolean[Chip8.MEMORY_SIZE]; //bytes cobertos por algum bloco
+    private long compiledBlocks = 0;
+    private long invalidatedBlocks = 0;
+
+    public BlockRecompiler() {
+        this(DEFAULT_HOT_THRESHOLD);
+    }
+
+    public BlockRecompiler(int hotThreshold) {
+        this.hotThreshold = hotThreshold;
+    }
+
+    public long getCompiledBlocks() {
+        return compiledBlocks;
+    }
+
+    public long getInvalidatedBlocks() {
+        return invalidatedBlocks;
+    }
+
+    @Override
+    public int execute(Chip8 chip8, int budget) {
+        int done = 0;
+        while (done < budget && !chip8.isFaulted()) {
+            int start = chip8.pc;
+            CompiledBlock block = start >= 0 && start < blocks.length ? blocks[start] : null;
+            if (block == null && start >= 0 && start < hits.length && ++hits[start] >= hotThreshold) {
+                block = compile(chip8, start);
+            }
+            // fora do cache ou maior que o que resta do quadro: uma instrução pelo interpretador
+            if (block == null || block.length > budget - done) {
+                chip8.cycle();
+                done++;
+                continue;
+            }
+            try {
+                block.code.run(chip8);
+                chip8.cycles += block.length;
+                done += block.length;
+                for (int entry : block.histogram) chip8.operationCounts[entry >>> 8] += entry & 0xFF;
+            } catch (RuntimeException e) {
+                // o pc já aponta para a instrução seguinte à que falhou, como no interpretador
+                int completed = (chip8.pc - 2 - start) >> 1;
+                chip8.cycles += completed;
+                for (int i = 0; i <= completed; i++) chip8.operationCounts[block.operations[i]]++;
+                chip8.fault(e, chip8.pc - 2);
+                return done + completed + 1;
+            }
+        }
+        return done;
+    }
+
+    /**
+     * Compila de antemão os blocos dos laços encontrados pela análise, dos mais internos para fora, sem esperar
+     * {@code hotThreshold} passagens; no máximo {@link #MAX_PREPARED_BLOCKS} blocos.
+     */
+    @Override
+    public void prepare(Chip8 chip8, ControlFlow flow) {
+        List<ControlFlow.Block> hot = new ArrayList<>();
+        for (ControlFlow.Block block : flow.getBlocks()) if (block.loopDepth() > 0) hot.add(block);
+        hot.sort(Comparator.comparingInt(ControlFlow.Block::loopDepth).reversed());
+        int prepared = 0;
+        for (ControlFlow.Block block : hot) {
+            // um bloco do grafo pode virar vários aqui: os daqui também terminam em escritas na memória
+            int start = block.start();
+            while (start < block.end() && prepared < MAX_PREPARED_BLOCKS) {
+                CompiledBlock compiled = blocks[start];
+                if (compiled == null) {
+                    compiled = compile(chip8, start);
+                    if (compiled == null) break;
+                    prepared++;
+                }
+                start = compiled.end;
+            }
+        }
+    }
+
+    @Override
+    public void invalidate(int address, int length) {
+        int end = Math.min(address + length, code.length);
+        boolean hit = false;
+        for (int a = Math.max(address, 0); a < end; a++) {
+            if (code[a]) {
+                hit = true;
+                break;
+            }
+        }
+        if (!hit) return;
+        for (int s = Math.max(address - 2 * MAX_BLOCK_LENGTH, 0); s < end; s++) {
+            CompiledBlock block = blocks[s];
+            if (block != null && block.end > address) {
+                blocks[s] = null;
+                hits[s] = 0;
+                invalidatedBlocks++;
+            }
+        }
+    }
+
+    @Override
+    public void reset() {
+        Arrays.fill(blocks, null);
+        Arrays.fill(hits, 0);
+        Arrays.fill(code, false);
+    }
+
+    private CompiledBlock compile(Chip8 chip8, int start) {
+        byte[] memory = chip8.memory;
+        int[] words = new int[MAX_BLOCK_LENGTH];
+        int length = 0;
+        int address = start;
+        while (length < MAX_BLOCK_LENGTH && address + 1 < memory.length) {
+            int word = (memory[address] & 0xFF) << 8 | (memory[address + 1] & 0xFF);
+            words[length++] = word;
+            address += 2;
+            if (endsBlock(Opcode.operation(word))) break;
+        }
+        if (length == 0) return null;
+
+        Block code;
+        try {
+            code = define(start, words, length);
+        } catch (Throwable e) {
+            // sem recompilação para este endereço; segue interpretado
+            hits[start] = Integer.MIN_VALUE;
+            return null;
+        }
+        byte[] operations = new byte[length];
+        int[] counts = new int[Opcode.OPERATION_COUNT];
+        for (int i = 0; i < length; i++) {
+            operations[i] = (byte) Opcode.operation(words[i]);
+            counts[operations[i]]++;
+        }
+        int[] histogram = new int[(int) Arrays.stream(counts).filter(n -> n > 0).count()];
+        for (int operation = 0, h = 0; operation < counts.length; operation++) {
+            if (counts[operation] > 0) histogram[h++] = operation << 8 | counts[operation];
+        }
+        CompiledBlock block = new CompiledBlock(code, start, address, length, operations, histogram);
+        blocks[start] = block;
+        for (int a = start; a < address; a++) this.code[a] = true;
+        compiledBlocks++;
+        return block;
+    }
+
+    static boolean endsBlock(int operation) {
+        return switch (operation) {
+            case Opcode.RET, Opcode.JP, Opcode.CALL, Opcode.SE_VX_KK, Opcode.SNE_VX_KK, Opcode.SE_VX_VY,
+                 Opcode.SNE_VX_VY, Opcode.JP_V0, Opcode.SKP, Opcode.SKNP, Opcode.LD_VX_K,
+                 Opcode.LD_B_VX, Opcode.LD_MEM_VX, Opcode.EXIT, Opcode.SAVE_RANGE, Opcode.LD_I_LONG -> true;
+            default -> false;
+        };
+    }
+
+    private static Block define(int start, int[] words, int length) throws Throwable {
+        byte[] bytes = ClassFile.of().build(CD_GENERATED, cb -> {
+            cb.withFlags(ClassFile.ACC_FINAL | ClassFile.ACC_SYNTHETIC);
+            cb.withSuperclass(CD_Object);
+            cb.withInterfaceSymbols(CD_BLOCK);
+            cb.withMethodBody(INIT_NAME, MTD_void, ClassFile.ACC_PUBLIC, code -> code
+                    .aload(0)
+                    .invokespecial(CD_Object, INIT_NAME, MTD_void)
+                    .return_());
+            cb.withMethodBody("run", MTD_RUN, ClassFile.ACC_PUBLIC, code -> {
+                for (int i = 0; i < length; i++) {
+                    int word = words[i];
+                    // pc por instrução: mantém o estado idêntico ao interpretador mesmo em falha
+                    code.aload(1)
+                            .loadConstant(start + 2 * i + 2)
+                            .putfield(CD_CHIP8, "pc", CD_int);
+                    if (Opcode.operation(word) == Opcode.NOP) continue;
+                    code.aload(1)
+                            .loadConstant(word)
+                            .invokestatic(CD_OPS, Ops.METHOD_NAMES[Opcode.operation(word)], MTD_OP);
+                }
+                code.return_();
+            });
+        });
+        MethodHandles.Lookup lookup = MethodHandles.lookup().defineHiddenClass(bytes, true);
+        return (Block) lookup.findConstructor(lookup.lookupClass(), MT_CONSTRUCTOR).invoke();
+    }
+}
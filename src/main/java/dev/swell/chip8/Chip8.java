@@ -1,50 +1,71 @@
 package dev.swell.chip8;
 
-import javafx.animation.AnimationTimer;
-import javafx.application.Platform;
-import javafx.scene.canvas.Canvas;
-import javafx.scene.canvas.GraphicsContext;
-import javafx.scene.paint.Color;
-
-import javax.sound.sampled.AudioFormat;
-import javax.sound.sampled.AudioSystem;
-import javax.sound.sampled.Clip;
-import javax.sound.sampled.LineUnavailableException;
 import java.io.IOException;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.Arrays;
-import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
 
 public class Chip8 {
 
-    private static final int MEMORY_SIZE = 4096;
-    private static final int FONTSET_START = 0x50;
-    private static final int PROGRAM_START = 0x200;
-    private static final int DISPLAY_WIDTH = 64;
-    private static final int DISPLAY_HEIGHT = 32;
-
-
-    private GraphicsContext gc;
-    private Canvas displayCanvas;
+    public static final int MEMORY_SIZE = 4096;
+    public static final int FONTSET_START = 0x50;
+    public static final int PROGRAM_START = 0x200;
+    public static final int MAX_ROM_SIZE = MEMORY_SIZE - PROGRAM_START;
+    public static final int DISPLAY_WIDTH = 64;
+    public static final int DISPLAY_HEIGHT = 32;
+    // SUPER-CHIP/XO-CHIP: modo de alta resolução (00FF) e fonte grande de 8x10 (FX30)
+    public static final int HIRES_WIDTH = 128;
+    public static final int HIRES_HEIGHT = 64;
+    public static final int BIG_FONT_START = 0xA0;
+    public static final int DEFAULT_INSTRUCTIONS_PER_FRAME = 10;
+    public static final int DEFAULT_PITCH = 64;
+    // padrão inicial: onda quadrada de 500 Hz no pitch padrão, o bipe do CHIP-8
+    private static final byte DEFAULT_PATTERN = (byte) 0xF0;
+
+    private Display display = Display.NONE;
+    private AudioSink audio = AudioSink.NONE;
+    private Keypad keypad = Keypad.NONE;
+    private Clock clock;
+    private ExecutionEngine engine = new Interpreter();
     private boolean started = false;
-
-
-    private AnimationTimer animTimer;
-
-    private byte[] memory = new byte[MEMORY_SIZE]; //memória do chip, geralmente 4kb
-    private byte[] V = new byte[16]; //registradores
-    private int I = 0; //endereço de índice
-    private int pc = PROGRAM_START; //contador do programa
-    private int sp = 0;//ponteiro da pilha
-    private int delayTimer = 0;
-    private int soundTimer = 0;
-    private int[] stack = new int[16];//pilha
-    private boolean[][] gfx = new boolean[DISPLAY_WIDTH][DISPLAY_HEIGHT];
-    private boolean[] keys = new boolean[16];
-    private boolean drawFlag = false;
-
-    private final Random random = new Random();
+    private volatile ReplayRecorder recorder;
+    private volatile Debugger debugger;
+    private ControlFlow controlFlow;
+
+    final byte[] memory = new byte[MEMORY_SIZE]; //memória do chip, geralmente 4kb
+    final byte[] V = new byte[16]; //registradores
+    int I = 0; //endereço de índice
+    int pc = PROGRAM_START; //contador do programa
+    int sp = 0;//ponteiro da pilha
+    int delayTimer = 0;
+    int soundTimer = 0;
+    final int[] stack = new int[16];//pilha
+    Framebuffer gfx = new Framebuffer(DISPLAY_WIDTH, DISPLAY_HEIGHT); //trocado ao mudar de resolução ou de planos
+    int planeMask = 1; //XO-CHIP: planos afetados por DXYN, 00E0 e rolagens (FN01)
+    final byte[] flags = new byte[16]; //SUPER-CHIP: flags RPL (FX75/FX85)
+    int keys = 0; //bitmask das 16 teclas
+    boolean drawFlag = false;
+    long cycles = 0; //instruções executadas desde o reset
+    int generation = 0; //muda quando o estado é trocado por fora da execução (reset, loadState, rebobinar)
+    final byte[] audioPattern = new byte[16]; //XO-CHIP: 128 amostras de 1 bit
+    int pitch = DEFAULT_PITCH; //XO-CHIP: taxa do padrão = 4000 * 2^((pitch - 64) / 48) Hz
+    private RuntimeException fault;
+    private int faultPc; //endereço da instrução que falhou
+    // execuções por operação desde a criação; escrito só pela thread da emulação, lido sem sincronizar
+    final long[] operationCounts = new long[Opcode.OPERATION_COUNT];
+
+    private int instructionsPerFrame = DEFAULT_INSTRUCTIONS_PER_FRAME;
+
+    // estado do gerador do RND; mesmo algoritmo (LCG de 48 bits) de java.util.Random, mas salvo junto com a máquina
+    long randomState = scramble(ThreadLocalRandom.current().nextLong());
+
+    // páginas de memória (64 bytes) alteradas desde o último saveState(), e as páginas daquele estado
+    static final int PAGE_SHIFT = 6;
+    static final int PAGE_COUNT = MEMORY_SIZE >>> PAGE_SHIFT;
+    long dirtyPages = -1L;
+    byte[][] savedPages = new byte[PAGE_COUNT][];
 
     private static final byte[] CHIP8_FONTSET = new byte[]{
             (byte) 0xF0, (byte) 0x90, (byte) 0x90, (byte) 0x90, (byte) 0xF0, // 0
@@ -64,336 +85,493 @@ public class Chip8 {
             (byte) 0xF0, (byte) 0x80, (byte) 0xF0, (byte) 0x80, (byte) 0xF0, // E
             (byte) 0xF0, (byte) 0x80, (byte) 0xF0, (byte) 0x80, (byte) 0x80  // F
     };
-    private static final int FPS = 10;
-    private double scaleX = 8.0;
-    private double scaleY = 8.0;
-    private Clip clip;
 
+    // dígitos de 8x10 do SUPER-CHIP; A-F vêm do XO-CHIP
+    private static final byte[] BIG_FONTSET = new byte[]{
+            (byte) 0xFF, (byte) 0xFF, (byte) 0xC3, (byte) 0xC3, (byte) 0xC3, (byte) 0xC3, (byte) 0xC3, (byte) 0xC3, (byte) 0xFF, (byte) 0xFF, // 0
+            (byte) 0x18, (byte) 0x78, (byte) 0x78, (byte) 0x18, (byte) 0x18, (byte) 0x18, (byte) 0x18, (byte) 0x18, (byte) 0xFF, (byte) 0xFF, // 1
+            (byte) 0xFF, (byte) 0xFF, (byte) 0x03, (byte) 0x03, (byte) 0xFF, (byte) 0xFF, (byte) 0xC0, (byte) 0xC0, (byte) 0xFF, (byte) 0xFF, // 2
+            (byte) 0xFF, (byte) 0xFF, (byte) 0x03, (byte) 0x03, (byte) 0xFF, (byte) 0xFF, (byte) 0x03, (byte) 0x03, (byte) 0xFF, (byte) 0xFF, // 3
+            (byte) 0xC3, (byte) 0xC3, (byte) 0xC3, (byte) 0xC3, (byte) 0xFF, (byte) 0xFF, (byte) 0x03, (byte) 0x03, (byte) 0x03, (byte) 0x03, // 4
+            (byte) 0xFF, (byte) 0xFF, (byte) 0xC0, (byte) 0xC0, (byte) 0xFF, (byte) 0xFF, (byte) 0x03, (byte) 0x03, (byte) 0xFF, (byte) 0xFF, // 5
+            (byte) 0xFF, (byte) 0xFF, (byte) 0xC0, (byte) 0xC0, (byte) 0xFF, (byte) 0xFF, (byte) 0xC3, (byte) 0xC3, (byte) 0xFF, (byte) 0xFF, // 6
+            (byte) 0xFF, (byte) 0xFF, (byte) 0x03, (byte) 0x03, (byte) 0x06, (byte) 0x0C, (byte) 0x18, (byte) 0x18, (byte) 0x18, (byte) 0x18, // 7
+            (byte) 0xFF, (byte) 0xFF, (byte) 0xC3, (byte) 0xC3, (byte) 0xFF, (byte) 0xFF, (byte) 0xC3, (byte) 0xC3, (byte) 0xFF, (byte) 0xFF, // 8
+            (byte) 0xFF, (byte) 0xFF, (byte) 0xC3, (byte) 0xC3, (byte) 0xFF, (byte) 0xFF, (byte) 0x03, (byte) 0x03, (byte) 0xFF, (byte) 0xFF, // 9
+            (byte) 0x7E, (byte) 0xFF, (byte) 0xC3, (byte) 0xC3, (byte) 0xC3, (byte) 0xFF, (byte) 0xFF, (byte) 0xC3, (byte) 0xC3, (byte) 0xC3, // A
+            (byte) 0xFC, (byte) 0xFC, (byte) 0xC3, (byte) 0xC3, (byte) 0xFC, (byte) 0xFC, (byte) 0xC3, (byte) 0xC3, (byte) 0xFC, (byte) 0xFC, // B
+            (byte) 0x3C, (byte) 0xFF, (byte) 0xC3, (byte) 0xC0, (byte) 0xC0, (byte) 0xC0, (byte) 0xC0, (byte) 0xC3, (byte) 0xFF, (byte) 0x3C, // C
+            (byte) 0xFC, (byte) 0xFE, (byte) 0xC3, (byte) 0xC3, (byte) 0xC3, (byte) 0xC3, (byte) 0xC3, (byte) 0xC3, (byte) 0xFE, (byte) 0xFC, // D
+            (byte) 0xFF, (byte) 0xFF, (byte) 0xC0, (byte) 0xC0, (byte) 0xFF, (byte) 0xFF, (byte) 0xC0, (byte) 0xC0, (byte) 0xFF, (byte) 0xFF, // E
+            (byte) 0xFF, (byte) 0xFF, (byte) 0xC0, (byte) 0xC0, (byte) 0xFF, (byte) 0xFF, (byte) 0xC0, (byte) 0xC0, (byte) 0xC0, (byte) 0xC0  // F
+    };
 
-    public Chip8()  {
+    public Chip8() {
         reset();
-
     }
 
     public void loadRom(String filename) throws IOException {
-        shutdown();
+        Path file = Paths.get(filename);
+        checkRomSize(Files.size(file));
+        loadRom(Files.readAllBytes(file));
+    }
+
+    public void loadRom(byte[] rom) {
+        checkRomSize(rom.length);
+        stop();
         reset();
-        var path = Paths.get(filename);
-        byte[] rom = Files.readAllBytes(path);
         System.arraycopy(rom, 0, memory, PROGRAM_START, rom.length);
-        start();
+        engine.reset();
+        controlFlow = ControlFlow.analyze(memory, PROGRAM_START);
+        engine.prepare(this, controlFlow);
     }
 
-    private void start() {
-        started = true;
-        animTimer = new AnimationTimer() {
-            @Override
-            public void handle(long now) {
-                for (int i = 0; i < FPS; i++) {
-                    cycle();
-                    if (drawFlag) render();
-                    if (soundTimer > 0) beep();
-                }
-                updateTimers();
-            }
-        };
-        animTimer.start();
+    /**
+     * Análise estática da ROM carregada (feita em {@link #loadRom(byte[])}), ou {@code null} sem ROM.
+     */
+    public ControlFlow getControlFlow() {
+        return controlFlow;
     }
 
-    private void beep() {
-        if (!started || (clip != null && clip.isRunning())) return;
-        try {
-            float sampleRate = 44100;
-            int ms = 70;
-            int len = (int) (sampleRate * ms / 1000);
-            byte[] data = new byte[len];
-            double freq = 1000;
-            for (int i = 0; i < len; i++) {
-                double v = Math.sin(2 * Math.PI * freq * i / sampleRate);
-                data[i] = (byte) (v * 127);
-            }
-            AudioFormat af = new AudioFormat(sampleRate, 8, 1, true, false);
-            clip = AudioSystem.getClip();
-            clip.open(af, data, 0, len);
-            clip.start();
-        } catch (Exception e) {
+    private static void checkRomSize(long size) {
+        if (size > MAX_ROM_SIZE) {
+            throw new IllegalArgumentException("ROM has " + size + " bytes, at most " + MAX_ROM_SIZE + " fit in memory");
         }
     }
 
-    private void render() {
-        if (displayCanvas == null) return;
+    public void setDisplay(Display display) {
+        this.display = display != null ? display : Display.NONE;
+        drawFlag = true;
+    }
 
-        Platform.runLater(()->{
-            gc.clearRect(0, 0, displayCanvas.getWidth(), displayCanvas.getHeight());
+    public void setAudio(AudioSink audio) {
+        this.audio.setTone(false);
+        this.audio = audio != null ? audio : AudioSink.NONE;
+        audioChanged();
+    }
 
-            for (int i = 0; i < DISPLAY_WIDTH; i++) {
-                for (int j = 0; j < DISPLAY_HEIGHT; j++) {
-                    if (gfx[i][j]) {
-                        gc.setFill(Color.RED);
-                    } else {
-                        gc.setFill(Color.BLACK);
-                    }
-                    gc.fillRect(i * scaleX, j * scaleY, scaleX, scaleY);
-                }
-            }
-            drawFlag = false;
-        });
+    public void setKeypad(Keypad keypad) {
+        this.keypad = keypad != null ? keypad : Keypad.NONE;
+    }
+
+    /**
+     * Grava a sessão a partir do próximo quadro; {@code null} para de gravar (quem abriu fecha o arquivo).
+     */
+    public void setRecorder(ReplayRecorder recorder) {
+        this.recorder = recorder;
+    }
+
+    public ReplayRecorder getRecorder() {
+        return recorder;
+    }
+
+    public void setClock(Clock clock) {
+        stop();
+        this.clock = clock;
+    }
+
+    public void setEngine(ExecutionEngine engine) {
+        this.engine = engine != null ? engine : new Interpreter();
+        this.engine.reset();
+        if (controlFlow != null) this.engine.prepare(this, controlFlow);
+    }
+
+    public ExecutionEngine getEngine() {
+        return engine;
+    }
+
+    // troca feita pelo depurador na thread da emulação, sem reset: os dois motores viram as mesmas escritas
+    void swapEngine(ExecutionEngine engine) {
+        this.engine = engine;
+    }
 
+    /**
+     * Liga o depurador a partir do próximo quadro; {@code null} desliga e devolve o motor original.
+     */
+    public void setDebugger(Debugger debugger) {
+        Debugger previous = this.debugger;
+        this.debugger = debugger;
+        if (previous != null) previous.wake();
     }
 
-    private void reset() {
+    public Debugger getDebugger() {
+        return debugger;
+    }
+
+    // semente do RND (CXKK), para execuções reproduzíveis
+    public void setRandomSeed(long seed) {
+        randomState = scramble(seed);
+    }
+
+    private static long scramble(long seed) {
+        return (seed ^ 0x5DEECE66DL) & ((1L << 48) - 1);
+    }
+
+    // equivalente a new Random(seed).nextInt(256)
+    int nextRandomByte() {
+        randomState = (randomState * 0x5DEECE66DL + 0xBL) & ((1L << 48) - 1);
+        return (int) (randomState >>> 40);
+    }
+
+    public SaveState saveState() {
+        return SaveState.capture(this);
+    }
+
+    public void loadState(SaveState state) {
+        state.restore(this);
+    }
+
+    public void setInstructionsPerFrame(int instructionsPerFrame) {
+        if (instructionsPerFrame <= 0) throw new IllegalArgumentException("instructionsPerFrame must be positive");
+        this.instructionsPerFrame = instructionsPerFrame;
+    }
+
+    public int getInstructionsPerFrame() {
+        return instructionsPerFrame;
+    }
+
+    public void start() {
+        if (started || clock == null) return;
+        started = true;
+        clock.start(this);
+    }
+
+    public void stop() {
+        if (!started) return;
         started = false;
-        memory = new byte[MEMORY_SIZE];
-        V = new byte[16];
+        Debugger debugger = this.debugger;
+        if (debugger != null) debugger.wake();
+        clock.stop();
+        audio.setTone(false);
+    }
+
+    public boolean IsStarted() {
+        return started;
+    }
+
+    public void reset() {
+        Arrays.fill(memory, (byte) 0);
+        Arrays.fill(V, (byte) 0);
         I = 0;
         pc = PROGRAM_START;
-        stack = new int[16];
+        Arrays.fill(stack, 0);
         sp = 0;
         delayTimer = 0;
         soundTimer = 0;
-        gfx = new boolean[DISPLAY_WIDTH][DISPLAY_HEIGHT];
-        drawFlag = true;
-        keys = new boolean[16];
+        setFramebuffer(DISPLAY_WIDTH, DISPLAY_HEIGHT, 1);
+        planeMask = 1;
+        Arrays.fill(flags, (byte) 0);
+        keys = 0;
+        cycles = 0;
+        generation++;
+        fault = null;
+        faultPc = 0;
         System.arraycopy(CHIP8_FONTSET, 0, memory, FONTSET_START, CHIP8_FONTSET.length);
+        System.arraycopy(BIG_FONTSET, 0, memory, BIG_FONT_START, BIG_FONTSET.length);
+        Arrays.fill(audioPattern, DEFAULT_PATTERN);
+        pitch = DEFAULT_PITCH;
+        audioChanged();
+        dirtyPages = -1L;
+        controlFlow = null;
+        engine.reset();
     }
 
-    private void shutdown() {
-        if (started) {
-            if (animTimer != null) {
-                animTimer.stop();
-                animTimer = null;
-            }
+    public void runFrame() {
+        runFrame(instructionsPerFrame, true);
+    }
+
+    /**
+     * Um quadro de 1/60 s: lê o teclado, executa {@code instructions} instruções, decrementa os
+     * temporizadores e, se {@code present}, apresenta a tela caso ela tenha mudado.
+     */
+    public void runFrame(int instructions, boolean present) {
+        ReplayRecorder recorder = this.recorder;
+        beginFrame(recorder);
+        int executed = 0;
+        while (executed < instructions && fault == null) {
+            executed += execute(instructions - executed, recorder);
         }
+        endFrame(recorder, instructions, present);
     }
 
-    public void setDisplay(Canvas canvasDisplay) {
-        this.gc = canvasDisplay.getGraphicsContext2D();
-        this.displayCanvas = canvasDisplay;
-        scaleX = canvasDisplay.getWidth() / DISPLAY_WIDTH;
-        scaleY = canvasDisplay.getHeight() / DISPLAY_HEIGHT;
+    // as três partes de runFrame ficam separadas para o Lockstep comparar duas máquinas no meio do quadro
+    void beginFrame(ReplayRecorder recorder) {
+        if (recorder != null) recorder.frameStarted(this);
+        Debugger debugger = this.debugger;
+        if (debugger != null) debugger.beforeFrame(this);
+        pollKeys(recorder);
     }
 
-    public boolean IsStarted() {
-        return started;
+    /**
+     * Executa até {@code budget} instruções e retorna quantas; 0 se só aplicou um evento de teclado que venceu.
+     */
+    int execute(int budget, ReplayRecorder recorder) {
+        // eventos de teclado datados valem a partir do seu ciclo: o engine para exatamente ali
+        long next = keypad.nextEventCycle();
+        if (next <= cycles) {
+            pollKeys(recorder);
+            return 0;
+        }
+        if (next - cycles < budget) budget = (int) (next - cycles);
+        // esperas pelo timer ou por tecla giram no lugar: avança o resto do orçamento sem executá-lo
+        int idle = engine.observesEveryInstruction() ? 0 : IdleLoops.fastForward(this, budget);
+        return idle > 0 ? idle : engine.execute(this, budget);
     }
 
-    public void sendKeyPress(int key) {
-        if (!started || key < 0) return;
-        keys[key] = true;
+    void endFrame(ReplayRecorder recorder, int instructions, boolean present) {
+        audio.setTone(soundTimer > 0);
+        updateTimers();
+        if (recorder != null) recorder.frameEnded(this, instructions);
+        if (present) present();
     }
 
-    public void sendKeyRelease(int key) {
-        if (!started || key < 0) return;
-        keys[key] = false;
+    private void pollKeys(ReplayRecorder recorder) {
+        keys = keypad.poll(cycles);
+        if (recorder != null) recorder.keysPolled(cycles, keys);
     }
 
-    private void clearDisplay() {
-        for (int i = 0; i < DISPLAY_WIDTH; i++) {
-            for (int j = 0; j < DISPLAY_HEIGHT; j++) {
-                gfx[i][j] = false;
-            }
+    /**
+     * Parado numa espera que só uma tecla encerra (FX0A sem tecla ou salto para si mesmo), sem temporizadores
+     * correndo, sem eventos na fila e sem gravador nem depurador armado: os próximos quadros só somam ciclos.
+     */
+    public boolean isIdle() {
+        return keypad.nextEventCycle() == Long.MAX_VALUE && isWaiting();
+    }
+
+    /**
+     * Equivale a quadros ociosos somando {@code instructions} instruções. Eventos de teclado que chegaram enquanto
+     * a máquina estava ociosa valem a partir do quadro seguinte, como se tivessem chegado agora. Não faz nada e
+     * retorna false se a máquina não está mais parada esperando (p. ex. um depurador foi armado).
+     */
+    public boolean skipIdle(long instructions) {
+        if (!isWaiting()) return false;
+        IdleLoops.skip(this, instructions);
+        return true;
+    }
+
+    private boolean isWaiting() {
+        Debugger debugger = this.debugger;
+        return fault == null && delayTimer == 0 && soundTimer == 0 && recorder == null
+                && (debugger == null || !debugger.isArmed()) && IdleLoops.isWaitingForever(this);
+    }
+
+    /**
+     * Pede ao teclado que chame {@code wakeup} a cada evento novo; false se ele não avisa (p. ex. é só consultado).
+     */
+    public boolean setInputWakeup(Runnable wakeup) {
+        return keypad.setWakeup(wakeup);
+    }
+
+    public void runFrames(int frames) {
+        for (int i = 0; i < frames && fault == null; i++) {
+            runFrame();
         }
-        drawFlag = true;
     }
 
-    private void updateTimers() {
+    void present() {
+        if (!drawFlag) return;
+        drawFlag = false;
+        display.present(gfx);
+    }
+
+    void updateTimers() {
         if (delayTimer > 0) delayTimer--;
         if (soundTimer > 0) soundTimer--;
     }
 
-    Opcode fetch(int instruction) {
-        Opcode n = new Opcode(instruction);
+    int fetch() {
+        int word = (memory[pc] & 0xFF) << 8 | (memory[pc + 1] & 0xFF);
         pc += 2;
-        return n;
+        return word;
     }
 
-    private void cycle() {
-        Opcode opcode = fetch((memory[pc] & 0xFF) << 8 | (memory[pc + 1] & 0xFF));
+    public void cycle() {
+        if (fault != null) return;
+        int pc = this.pc;
         try {
-            execute(opcode);
-        } catch (Exception e) {
-            IO.println(e);
-            shutdown();
+            execute(fetch());
+            cycles++;
+        } catch (RuntimeException e) {
+            // fetch() falha antes de avançar pc, as instruções depois: só o pc de antes aponta a instrução
+            fault(e, pc);
         }
     }
 
-    private void execute(Opcode opcode) {
-        switch (opcode.getInstruction()) {
-            case 0:
-                if (opcode.getOpcode() == 0x00e0) {
-                    clearDisplay();
-                } else if (opcode.getOpcode() == 0x00ee) {
-                    sp--;
-                    pc = stack[sp];
-                }
-                opcode.debug();
-                break;
-            case 0x1000:
-                pc = opcode.getNnn();
-                opcode.debug();
-                break;
-            case 0x2000:
-                stack[sp] = pc;
-                sp++;
-                pc = opcode.getNnn();
-                opcode.debug();
-                break;
-            case 0x3000:
-                if ((V[opcode.getX()] & 0xff) == opcode.getKk()) pc += 2;
-                opcode.debug();
-                break;
-            case 0x4000:
-                if ((V[opcode.getX()] & 0xff) != opcode.getKk()) pc += 2;
-                opcode.debug();
-                break;
-            case 0x5000:
-                if (opcode.getN() == 0 && V[opcode.getX()] == V[opcode.getY()]) pc += 2;
-                opcode.debug();
-                break;
-            case 0x6000:
-                V[opcode.getX()] = (byte) opcode.getKk();
-                opcode.debug();
-                break;
-            case 0x7000:
-                V[opcode.getX()] = (byte) ((V[opcode.getX()] & 0xff) + opcode.getKk());
-                opcode.debug();
-                break;
-            case 0x8000:
-                switch (opcode.getN()) {
-                    case 0:
-                        V[opcode.getX()] = V[opcode.getY()];
-                        break;
-                    case 1:
-                        V[opcode.getX()] = (byte) ((V[opcode.getX()] | V[opcode.getY()]) & 0xff);
-
-                        break;
-                    case 2:
-                        V[opcode.getX()] = (byte) ((V[opcode.getX()] & V[opcode.getY()]) & 0xFF);
-
-                        break;
-                    case 3:
-                        V[opcode.getX()] = (byte) ((V[opcode.getX()] ^ V[opcode.getY()]) & 0xFF);
-
-                        break;
-                    case 4:
-                        int sum = (V[opcode.getX()] & 0xFF) + (V[opcode.getY()] & 0xFF);
-                        V[0xF] = (byte) ((sum > 0xFF) ? 1 : 0);
-                        V[opcode.getX()] = (byte) (sum & 0xFF);
-
-                        break;
-                    case 5:
-                        V[0xF] = (byte) ((V[opcode.getX()] & 0xFF) > (V[opcode.getY()] & 0xFF) ? 1 : 0);
-                        V[opcode.getX()] = (byte) ((V[opcode.getX()] & 0xFF) - (V[opcode.getY()] & 0xFF));
-
-                        break;
-                    case 6:
-                        V[0xF] = (byte) ((V[opcode.getX()] & 0x01));
-                        V[opcode.getX()] = (byte) ((V[opcode.getX()] & 0xFF) >> 1);
-
-                        break;
-                    case 7:
-                        V[0xF] = (byte) ((V[opcode.getY()] & 0xFF) > (V[opcode.getX()] & 0xFF) ? 1 : 0);
-                        V[opcode.getX()] = (byte) ((V[opcode.getY()] & 0xFF) - (V[opcode.getX()] & 0xFF));
-                        opcode.debug();
-                        break;
-                    case 0xe:
-                        V[0xF] = (byte) ((V[opcode.getX()] & 0x80) >> 7);
-                        V[opcode.getX()] = (byte) ((V[opcode.getX()] & 0xFF) << 1);
-
-                        break;
-                }
-                opcode.debug();
-                break;
-            case 0x9000:
-                if (opcode.getN() == 0 && V[opcode.getX()] != V[opcode.getY()]) pc += 2;
-                opcode.debug();
-                break;
-            case 0xA000:
-                I = opcode.getNnn();
-                opcode.debug();
-                break;
-            case 0xB000:
-                pc = opcode.getNnn() + (V[0] & 0xff);
-                opcode.debug();
-                break;
-            case 0xc000:
-                V[opcode.getX()] = (byte) (random.nextInt(256) & opcode.getKk());
-                opcode.debug();
-                break;
-            case 0xD000:
-                int vx = V[opcode.getX()] & 0xFF;
-                int vy = V[opcode.getY()] & 0xFF;
-                int height = opcode.getN();
-                V[0xF] = 0;
-                for (int row = 0; row < height; row++) {
-                    int spriteByte = memory[I + row] & 0xFF;
-                    for (int col = 0; col < 8; col++) {
-                        int pixel = (spriteByte >> (7 - col)) & 1;
-                        int xpos = (vx + col) % DISPLAY_WIDTH;
-                        int ypos = (vy + row) % DISPLAY_HEIGHT;
-                        boolean prev = gfx[xpos][ypos];
-                        boolean newPixel = (pixel == 1);
-                        gfx[xpos][ypos] = prev ^ newPixel;
-                        if (prev && !gfx[xpos][ypos]) V[0xF] = 1;
-                    }
-                }
-                drawFlag = true;
-                opcode.debug();
-                break;
-            case 0xe000:
-                if (opcode.getKk() == 0x9e) {
-                    if (keys[V[opcode.getX()] & 0xff]) pc += 2;
-                } else if (opcode.getKk() == 0xa1) {
-                    if (!keys[V[opcode.getX()] & 0xff]) pc += 2;
-                }
-                opcode.debug();
-                break;
-            case 0xf000:
-                switch (opcode.getKk()) {
-                    case 0x07:
-                        V[opcode.getX()] = (byte) delayTimer;
-                        break;
-                    case 0x0a: {
-                        boolean pressed = false;
-                        for (int i = 0; i < 16; i++) {
-                            if (keys[i]) {
-                                V[opcode.getX()] = (byte) i;
-                                pressed = true;
-                                break;
-                            }
-                        }
-                        if (!pressed) pc -= 2;
-                        break;
-                    }
-                    case 0x15:
-                        delayTimer = V[opcode.getX()] & 0xff;
-                        break;
-                    case 0x18:
-                        soundTimer = V[opcode.getX()] & 0xff;
-                        break;
-                    case 0x1e:
-                        I = (I + (V[opcode.getX()] & 0xFF)) & 0xffff;
-                        break;
-                    case 0x29:
-                        I = FONTSET_START + ((V[opcode.getX()] & 0xff) * 5);
-                        break;
-                    case 0x33: {
-                        int val = V[opcode.getX()] & 0xff;
-                        memory[I] = (byte) (val / 100);
-                        memory[I + 1] = (byte) ((val / 10) % 10);
-                        memory[I + 2] = (byte) (val % 10);
-                        break;
-                    }
-                    case 0x55:
-                        if (opcode.getX() + 1 >= 0) System.arraycopy(V, 0, memory, I, opcode.getX() + 1);
-                        break;
-                    case 0x65:
-                        if (opcode.getX() + 1 >= 0) System.arraycopy(memory, I, V, 0, opcode.getX() + 1);
-                        break;
-                    default:
-                        break;
-                }
-                opcode.debug();
+    // toda escrita em memory feita pelo programa passa por aqui
+    void memoryWritten(int address, int length) {
+        int first = address >>> PAGE_SHIFT;
+        int last = (address + length - 1) >>> PAGE_SHIFT;
+        dirtyPages |= (-1L >>> (63 - last + first)) << first;
+        engine.invalidate(address, length);
+    }
+
+    /**
+     * 00FE/00FF: troca a resolução mantendo os planos; a tela é apagada nos dois casos.
+     */
+    void setResolution(boolean hires) {
+        setFramebuffer(hires ? HIRES_WIDTH : DISPLAY_WIDTH, hires ? HIRES_HEIGHT : DISPLAY_HEIGHT, gfx.getPlanes());
+    }
+
+    /**
+     * FN01: seleciona os planos; o segundo plano só é alocado quando um programa o usa pela primeira vez.
+     */
+    void selectPlanes(int mask) {
+        planeMask = mask & 3;
+        if (planeMask > 1 && gfx.getPlanes() == 1) {
+            Framebuffer upgraded = new Framebuffer(gfx.getWidth(), gfx.getHeight(), 2);
+            long[] words = new long[upgraded.wordCount()];
+            gfx.copyTo(words);
+            upgraded.copyFrom(words);
+            gfx = upgraded;
+        }
+    }
+
+    // apaga a tela, recriando-a só se o formato mudou
+    void setFramebuffer(int width, int height, int planes) {
+        if (gfx.getWidth() == width && gfx.getHeight() == height && gfx.getPlanes() == planes) {
+            gfx.clear();
+        } else {
+            gfx = new Framebuffer(width, height, planes);
+        }
+        drawFlag = true;
+    }
+
+    void audioChanged() {
+        audio.setPattern(audioPattern, pitch);
+    }
+
+    void fault(RuntimeException e, int pc) {
+        if (fault != null) return;
+        fault = e;
+        faultPc = pc;
+    }
+
+    // save states restauram a falha junto com o pc que já passou da instrução que falhou
+    void restoreFault(RuntimeException e, int pc) {
+        fault = e;
+        faultPc = pc;
+    }
+
+    public byte[] getMemory() {
+        return memory;
+    }
+
+    public int getV(int register) {
+        return V[register] & 0xFF;
+    }
+
+    public int getI() {
+        return I;
+    }
+
+    public int getPc() {
+        return pc;
+    }
+
+    public int getSp() {
+        return sp;
+    }
+
+    public int getDelayTimer() {
+        return delayTimer;
+    }
+
+    public int getSoundTimer() {
+        return soundTimer;
+    }
+
+    public int getPitch() {
+        return pitch;
+    }
+
+    public long getCycles() {
+        return cycles;
+    }
+
+    public long getOperationCount(int operation) {
+        return operationCounts[operation];
+    }
+
+    public boolean isPixelSet(int x, int y) {
+        return gfx.isSet(x, y);
+    }
+
+    public Framebuffer getFramebuffer() {
+        return gfx;
+    }
+
+    public boolean isFaulted() {
+        return fault != null;
+    }
+
+    public RuntimeException getFault() {
+        return fault;
+    }
+
+    /**
+     * Endereço da instrução que falhou, inclusive a que nem pôde ser lida (pc além do fim da memória).
+     */
+    public int getFaultPc() {
+        return faultPc;
+    }
+
+    void execute(int op) {
+        Opcode.debug(op);
+        int operation = Opcode.operation(op);
+        operationCounts[operation]++;
+        switch (operation) {
+            case Opcode.CLS -> Ops.cls(this, op);
+            case Opcode.RET -> Ops.ret(this, op);
+            case Opcode.JP -> Ops.jp(this, op);
+            case Opcode.CALL -> Ops.call(this, op);
+            case Opcode.SE_VX_KK -> Ops.seVxKk(this, op);
+            case Opcode.SNE_VX_KK -> Ops.sneVxKk(this, op);
+            case Opcode.SE_VX_VY -> Ops.seVxVy(this, op);
+            case Opcode.LD_VX_KK -> Ops.ldVxKk(this, op);
+            case Opcode.ADD_VX_KK -> Ops.addVxKk(this, op);
+            case Opcode.LD_VX_VY -> Ops.ldVxVy(this, op);
+            case Opcode.OR -> Ops.or(this, op);
+            case Opcode.AND -> Ops.and(this, op);
+            case Opcode.XOR -> Ops.xor(this, op);
+            case Opcode.ADD_VX_VY -> Ops.addVxVy(this, op);
+            case Opcode.SUB -> Ops.sub(this, op);
+            case Opcode.SHR -> Ops.shr(this, op);
+            case Opcode.SUBN -> Ops.subn(this, op);
+            case Opcode.SHL -> Ops.shl(this, op);
+            case Opcode.SNE_VX_VY -> Ops.sneVxVy(this, op);
+            case Opcode.LD_I -> Ops.ldI(this, op);
+            case Opcode.JP_V0 -> Ops.jpV0(this, op);
+            case Opcode.RND -> Ops.rnd(this, op);
+            case Opcode.DRW -> Ops.drw(this, op);
+            case Opcode.SKP -> Ops.skp(this, op);
+            case Opcode.SKNP -> Ops.sknp(this, op);
+            case Opcode.LD_VX_DT -> Ops.ldVxDt(this, op);
+            case Opcode.LD_VX_K -> Ops.ldVxK(this, op);
+            case Opcode.LD_DT_VX -> Ops.ldDtVx(this, op);
+            case Opcode.LD_ST_VX -> Ops.ldStVx(this, op);
+            case Opcode.ADD_I_VX -> Ops.addIVx(this, op);
+            case Opcode.LD_F_VX -> Ops.ldFVx(this, op);
+            case Opcode.LD_B_VX -> Ops.ldBVx(this, op);
+            case Opcode.LD_MEM_VX -> Ops.ldMemVx(this, op);
+            case Opcode.LD_VX_MEM -> Ops.ldVxMem(this, op);
+            case Opcode.AUDIO -> Ops.audio(this, op);
+            case Opcode.PITCH -> Ops.pitch(this, op);
+            case Opcode.SCD -> Ops.scd(this, op);
+            case Opcode.SCR -> Ops.scr(this, op);
+            case Opcode.SCL -> Ops.scl(this, op);
+            case Opcode.EXIT -> Ops.exit(this, op);
+            case Opcode.LOW -> Ops.low(this, op);
+            case Opcode.HIGH -> Ops.high(this, op);
+            case Opcode.LD_HF_VX -> Ops.ldHfVx(this, op);
+            case Opcode.LD_R_VX -> Ops.ldRVx(this, op);
+            case Opcode.LD_VX_R -> Ops.ldVxR(this, op);
+            case Opcode.SCU -> Ops.scu(this, op);
+            case Opcode.SAVE_RANGE -> Ops.saveRange(this, op);
+            case Opcode.LOAD_RANGE -> Ops.loadRange(this, op);
+            case Opcode.LD_I_LONG -> Ops.ldILong(this, op);
+            case Opcode.PLANE -> Ops.plane(this, op);
+            default -> {
+            }
         }
     }
 }
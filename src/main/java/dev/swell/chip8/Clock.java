@@ -0,0 +1,11 @@
+package dev.swell.chip8;
+
+public interface Clock {
+
+    /**
+     * Começa a conduzir {@code chip8} (instruções, temporizadores e apresentação) até {@link #stop()}.
+     */
+    void start(Chip8 chip8);
+
+    void stop();
+}
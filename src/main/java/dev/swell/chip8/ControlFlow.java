@@ -0,0 +1,416 @@
+package dev.swell.chip8;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Análise estática feita ao carregar a ROM: a partir do ponto de entrada segue saltos (1NNN), chamadas (2NNN) com
+ * o retorno, skips (os dois caminhos) e tabelas de salto de BNNN (a sequência de 1NNN em NNN), e monta o grafo de
+ * blocos básicos. Com ele separa o código dos dados (sprites e tabelas apontados por ANNN), marca as escritas
+ * em memória que atingem código (FX33, FX55, 5XY2 com I conhecido dentro do bloco) e encontra os laços por
+ * arestas de retorno, dos mais internos para os mais externos.
+ * <p>
+ * É uma aproximação: saltos indiretos que não formam uma tabela ficam sem destino ({@link #hasUnresolvedJumps()}),
+ * e código gerado ou modificado em tempo de execução não aparece. Os motores usam o resultado só como dica para
+ * preparar o código antes do primeiro quadro; a execução continua correta fora dele.
+ */
+public final class ControlFlow {
+
+    /**
+     * {@code [start, end)} executa em linha reta; {@code successors} são os inícios dos blocos seguintes e
+     * {@code loopDepth} é quantos laços contêm o bloco (0 fora de laços).
+     */
+    public record Block(int start, int end, int instructions, int[] successors, int loopDepth) {
+    }
+
+    /**
+     * Laço natural com cabeçalho em {@code header} e aresta de retorno saindo de {@code latch}; {@code depth} 1 é
+     * o mais externo.
+     */
+    public record Loop(int header, int latch, int instructions, int depth) {
+    }
+
+    private static final int MAX_JUMP_TABLE = 128;
+
+    private final long[] code;    // início de instrução
+    private final long[] covered; // bytes de instruções (F000 NNNN ocupa 4)
+    private final long[] data;
+    private final List<Block> blocks;
+    private final List<Loop> loops;
+    private final int[] selfModifyingWrites;
+    private final int unresolvedJumps;
+
+    private ControlFlow(long[] code, long[] covered, long[] data, List<Block> blocks, List<Loop> loops,
+                        int[] selfModifyingWrites, int unresolvedJumps) {
+        this.code = code;
+        this.covered = covered;
+        this.data = data;
+        this.blocks = blocks;
+        this.loops = loops;
+        this.selfModifyingWrites = selfModifyingWrites;
+        this.unresolvedJumps = unresolvedJumps;
+    }
+
+    public static ControlFlow analyze(byte[] memory, int entry) {
+        int size = memory.length;
+        long[] code = new long[(size + 63) >>> 6];
+        long[] covered = new long[code.length];
+        long[] leaders = new long[code.length];
+        long[] dataTargets = new long[code.length];
+        int unresolved = 0;
+
+        // 1) instruções alcançáveis, caminhando em linha reta a partir de cada destino
+        ArrayDeque<Integer> work = new ArrayDeque<>();
+        set(leaders, entry);
+        work.add(entry);
+        while (!work.isEmpty()) {
+            int address = work.poll();
+            while (word(memory, address) >= 0) {
+                // encontrou código já visto pelo meio: ali começa um bloco
+                if (isSet(code, address)) {
+                    set(leaders, address);
+                    break;
+                }
+                int word = word(memory, address);
+                int operation = Opcode.operation(word);
+                // palavra inválida (inclusive 0000): o fluxo caiu em dados ou em memória vazia
+                if (operation == Opcode.NOP) break;
+                int length = length(memory, address);
+                set(code, address);
+                for (int a = address; a < Math.min(address + length, size); a++) set(covered, a);
+                switch (operation) {
+                    case Opcode.LD_I -> set(dataTargets, Opcode.nnn(word));
+                    case Opcode.LD_I_LONG -> {
+                        int target = word(memory, address + 2);
+                        if (target >= 0 && target < size) set(dataTargets, target);
+                    }
+                    default -> {
+                    }
+                }
+                int next = address + length;
+                boolean branches = !fallsThrough(operation) || isBranch(operation);
+                int[] targets = branches ? targets(memory, address, word, next) : new int[0];
+                if (operation == Opcode.JP_V0 && targets.length == 0) unresolved++;
+                for (int target : targets) {
+                    if (target >= 0 && target < size && !isSet(leaders, target)) {
+                        set(leaders, target);
+                        work.add(target);
+                    }
+                }
+                if (!fallsThrough(operation) || isSet(leaders, next)) break;
+                address = next;
+            }
+        }
+
+        // 2) blocos básicos: de cada líder até o primeiro desvio ou o próximo líder
+        List<Block> blocks = new ArrayList<>();
+        int[] blockAt = new int[size];
+        Arrays.fill(blockAt, -1);
+        int writeSites = 0;
+        int[] writes = new int[16];
+        for (int leader = nextSet(leaders, 0, size); leader >= 0; leader = nextSet(leaders, leader + 1, size)) {
+            if (!isSet(code, leader)) continue;
+            int address = leader;
+            int instructions = 0;
+            int knownI = -1;
+            int[] successors = new int[0];
+            while (true) {
+                int word = word(memory, address);
+                int operation = Opcode.operation(word);
+                int next = address + length(memory, address);
+                instructions++;
+                // I conhecido só dentro do bloco: ANNN/F000 NNNN definem, qualquer outra mudança o perde
+                switch (operation) {
+                    case Opcode.LD_I -> knownI = Opcode.nnn(word);
+                    case Opcode.LD_I_LONG -> knownI = word(memory, address + 2);
+                    case Opcode.ADD_I_VX, Opcode.LD_F_VX, Opcode.LD_HF_VX -> knownI = -1;
+                    default -> {
+                        int written = written(word, operation);
+                        if (written > 0 && knownI >= 0 && overlaps(covered, knownI, knownI + written)) {
+                            if (writeSites == writes.length) writes = Arrays.copyOf(writes, writeSites * 2);
+                            writes[writeSites++] = address;
+                        }
+                    }
+                }
+                if (!fallsThrough(operation) || isBranch(operation)) {
+                    successors = targets(memory, address, word, next);
+                    break;
+                }
+                if (isSet(leaders, next) || !isSet(code, next)) {
+                    successors = isSet(code, next) ? new int[]{next} : new int[0];
+                    break;
+                }
+                address = next;
+            }
+            blockAt[leader] = blocks.size();
+            blocks.add(new Block(leader, address + length(memory, address), instructions, successors, 0));
+        }
+
+        List<Loop> loops = loops(blocks, blockAt, entry);
+
+        // 3) dados: de cada destino de ANNN até a próxima instrução, no máximo o maior acesso feito via I
+        int extent = dataExtent(memory, code, size);
+        long[] data = new long[code.length];
+        for (int target = nextSet(dataTargets, 0, size); target >= 0; target = nextSet(dataTargets, target + 1, size)) {
+            for (int a = target; a < Math.min(target + extent, size) && !isSet(covered, a); a++) set(data, a);
+        }
+        return new ControlFlow(code, covered, data, blocks, loops, Arrays.copyOf(writes, writeSites), unresolved);
+    }
+
+    /**
+     * Endereço em que começa uma instrução alcançável.
+     */
+    public boolean isCode(int address) {
+        return address >= 0 && address < code.length * 64 && isSet(code, address);
+    }
+
+    /**
+     * Byte que pertence a alguma instrução alcançável (inclusive o segundo par de F000 NNNN).
+     */
+    public boolean isCovered(int address) {
+        return address >= 0 && address < covered.length * 64 && isSet(covered, address);
+    }
+
+    /**
+     * Byte apontado por ANNN (sprite, tabela ou área de FX55/FX65) que não é código.
+     */
+    public boolean isData(int address) {
+        return address >= 0 && address < data.length * 64 && isSet(data, address);
+    }
+
+    /**
+     * Endereços de todas as instruções alcançáveis, em ordem.
+     */
+    public int[] getInstructions() {
+        int[] instructions = new int[count(code)];
+        for (int i = 0, a = nextSet(code, 0, code.length * 64); a >= 0; a = nextSet(code, a + 1, code.length * 64)) {
+            instructions[i++] = a;
+        }
+        return instructions;
+    }
+
+    public List<Block> getBlocks() {
+        return blocks;
+    }
+
+    /**
+     * Laços do mais interno (mais profundo, depois o menor) para o mais externo: os primeiros são os quentes.
+     */
+    public List<Loop> getLoops() {
+        return loops;
+    }
+
+    /**
+     * Instruções (FX33, FX55, 5XY2) cuja escrita atinge bytes de código.
+     */
+    public int[] getSelfModifyingWrites() {
+        return selfModifyingWrites.clone();
+    }
+
+    public boolean hasUnresolvedJumps() {
+        return unresolvedJumps > 0;
+    }
+
+    public String summary() {
+        StringBuilder out = new StringBuilder();
+        out.append(String.format("%d instructions in %d blocks, %d code bytes, %d data bytes, %d unresolved jumps%n",
+                count(code), blocks.size(), count(covered), count(data), unresolvedJumps));
+        for (Loop loop : loops) {
+            out.append(String.format("loop %03X-%03X depth %d, %d instructions%n", loop.header(), loop.latch(),
+                    loop.depth(), loop.instructions()));
+        }
+        for (int write : selfModifyingWrites) out.append(String.format("self-modifying write at %03X%n", write));
+        return out.toString();
+    }
+
+    private static int[] targets(byte[] memory, int address, int word, int next) {
+        return switch (Opcode.operation(word)) {
+            case Opcode.JP -> new int[]{Opcode.nnn(word)};
+            case Opcode.CALL -> new int[]{Opcode.nnn(word), next};
+            case Opcode.SE_VX_KK, Opcode.SNE_VX_KK, Opcode.SE_VX_VY, Opcode.SNE_VX_VY, Opcode.SKP, Opcode.SKNP ->
+                    new int[]{next, next + length(memory, next)};
+            case Opcode.JP_V0 -> jumpTable(memory, Opcode.nnn(word));
+            case Opcode.RET, Opcode.EXIT -> new int[0];
+            default -> new int[]{next};
+        };
+    }
+
+    private static boolean fallsThrough(int operation) {
+        return switch (operation) {
+            case Opcode.JP, Opcode.CALL, Opcode.RET, Opcode.EXIT, Opcode.JP_V0 -> false;
+            default -> true;
+        };
+    }
+
+    private static boolean isBranch(int operation) {
+        return switch (operation) {
+            case Opcode.SE_VX_KK, Opcode.SNE_VX_KK, Opcode.SE_VX_VY, Opcode.SNE_VX_VY, Opcode.SKP, Opcode.SKNP -> true;
+            default -> false;
+        };
+    }
+
+    // BNNN com V0 indexando uma sequência de 1NNN em NNN (o idioma comum de tabela de salto)
+    private static int[] jumpTable(byte[] memory, int table) {
+        int count = 0;
+        while (count < MAX_JUMP_TABLE) {
+            int word = word(memory, table + 2 * count);
+            // word() é -1 fora da memória: a tabela termina antes de chegar ao fim
+            if (word < 0 || Opcode.operation(word) != Opcode.JP) break;
+            count++;
+        }
+        int[] targets = new int[count];
+        for (int i = 0; i < count; i++) targets[i] = table + 2 * i;
+        return targets;
+    }
+
+    private static int length(byte[] memory, int address) {
+        return word(memory, address) == 0xF000 ? 4 : 2;
+    }
+
+    // bytes escritos a partir de I, ou 0 se a operação não escreve na memória
+    private static int written(int word, int operation) {
+        return switch (operation) {
+            case Opcode.LD_B_VX -> 3;
+            case Opcode.LD_MEM_VX -> Opcode.x(word) + 1;
+            case Opcode.SAVE_RANGE -> Math.abs(Opcode.y(word) - Opcode.x(word)) + 1;
+            default -> 0;
+        };
+    }
+
+    // maior leitura ou escrita via I no código: altura máxima de sprite (16x16 = 32 bytes) ou FX55/FX65
+    private static int dataExtent(byte[] memory, long[] code, int size) {
+        int extent = 1;
+        for (int a = nextSet(code, 0, size); a >= 0; a = nextSet(code, a + 1, size)) {
+            int word = word(memory, a);
+            int operation = Opcode.operation(word);
+            int bytes = switch (operation) {
+                case Opcode.DRW -> Opcode.n(word) == 0 ? 32 : Opcode.n(word);
+                case Opcode.LD_MEM_VX, Opcode.LD_VX_MEM -> Opcode.x(word) + 1;
+                case Opcode.SAVE_RANGE, Opcode.LOAD_RANGE -> Math.abs(Opcode.y(word) - Opcode.x(word)) + 1;
+                case Opcode.LD_B_VX -> 3;
+                case Opcode.AUDIO -> 16;
+                default -> 0;
+            };
+            extent = Math.max(extent, bytes);
+        }
+        return extent;
+    }
+
+    // arestas de retorno numa busca em profundidade a partir da entrada; o corpo é o laço natural
+    private static List<Loop> loops(List<Block> blocks, int[] blockAt, int entry) {
+        int n = blocks.size();
+        List<Loop> loops = new ArrayList<>();
+        if (n == 0 || entry < 0 || entry >= blockAt.length || blockAt[entry] < 0) return loops;
+        List<List<Integer>> predecessors = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) predecessors.add(new ArrayList<>());
+        for (int i = 0; i < n; i++) {
+            for (int successor : blocks.get(i).successors()) {
+                if (successor >= 0 && successor < blockAt.length && blockAt[successor] >= 0) {
+                    predecessors.get(blockAt[successor]).add(i);
+                }
+            }
+        }
+
+        byte[] state = new byte[n]; // 0 novo, 1 na pilha, 2 concluído
+        int[] edge = new int[n];
+        int[] stack = new int[n];
+        int top = 0;
+        stack[top++] = blockAt[entry];
+        state[blockAt[entry]] = 1;
+        List<int[]> backEdges = new ArrayList<>();
+        while (top > 0) {
+            int block = stack[top - 1];
+            int[] successors = blocks.get(block).successors();
+            if (edge[block] == successors.length) {
+                state[block] = 2;
+                top--;
+                continue;
+            }
+            int successor = successors[edge[block]++];
+            if (successor < 0 || successor >= blockAt.length || blockAt[successor] < 0) continue;
+            int target = blockAt[successor];
+            if (state[target] == 1) {
+                backEdges.add(new int[]{target, block});
+            } else if (state[target] == 0) {
+                state[target] = 1;
+                stack[top++] = target;
+            }
+        }
+
+        List<boolean[]> bodies = new ArrayList<>(backEdges.size());
+        for (int[] backEdge : backEdges) {
+            boolean[] body = new boolean[n];
+            body[backEdge[0]] = true;
+            ArrayDeque<Integer> work = new ArrayDeque<>();
+            if (!body[backEdge[1]]) {
+                body[backEdge[1]] = true;
+                work.add(backEdge[1]);
+            }
+            while (!work.isEmpty()) {
+                for (int predecessor : predecessors.get(work.poll())) {
+                    if (!body[predecessor]) {
+                        body[predecessor] = true;
+                        work.add(predecessor);
+                    }
+                }
+            }
+            bodies.add(body);
+        }
+        for (int b = 0; b < n; b++) {
+            int depth = 0;
+            for (boolean[] body : bodies) if (body[b]) depth++;
+            Block block = blocks.get(b);
+            if (depth > 0) blocks.set(b, new Block(block.start(), block.end(), block.instructions(), block.successors(), depth));
+        }
+        for (int l = 0; l < backEdges.size(); l++) {
+            int header = backEdges.get(l)[0];
+            int depth = 0;
+            for (boolean[] other : bodies) if (other[header]) depth++;
+            int instructions = 0;
+            boolean[] body = bodies.get(l);
+            for (int b = 0; b < n; b++) if (body[b]) instructions += blocks.get(b).instructions();
+            loops.add(new Loop(blocks.get(header).start(), blocks.get(backEdges.get(l)[1]).start(), instructions, depth));
+        }
+        loops.sort(Comparator.comparingInt(Loop::depth).reversed().thenComparingInt(Loop::instructions));
+        return loops;
+    }
+
+    private static int word(byte[] memory, int address) {
+        if (address < 0 || address + 1 >= memory.length) return -1;
+        return (memory[address] & 0xFF) << 8 | (memory[address + 1] & 0xFF);
+    }
+
+    private static boolean overlaps(long[] bitmap, int from, int to) {
+        for (int a = Math.max(from, 0); a < Math.min(to, bitmap.length * 64); a++) if (isSet(bitmap, a)) return true;
+        return false;
+    }
+
+    private static int nextSet(long[] bitmap, int from, int size) {
+        for (int a = from; a < size; ) {
+            long bits = bitmap[a >>> 6] >>> a;
+            if (bits != 0) {
+                int found = a + Long.numberOfTrailingZeros(bits);
+                return found < size ? found : -1;
+            }
+            a = (a | 63) + 1;
+        }
+        return -1;
+    }
+
+    private static int count(long[] bitmap) {
+        int count = 0;
+        for (long bits : bitmap) count += Long.bitCount(bits);
+        return count;
+    }
+
+    private static boolean isSet(long[] bitmap, int address) {
+        return address >= 0 && address < bitmap.length * 64 && (bitmap[address >>> 6] >>> address & 1) != 0;
+    }
+
+    private static void set(long[] bitmap, int address) {
+        if (address >= 0 && address < bitmap.length * 64) bitmap[address >>> 6] |= 1L << address;
+    }
+}
@@ -0,0 +1,108 @@
+package dev.swell.chip8;
+
+import java.util.function.Predicate;
+
+/**
+ * Interpretador instrumentado do {@link Debugger}: antes de cada instrução consulta o bitmap de breakpoints e o
+ * modo de passo; as escritas na memória chegam por {@link #invalidate(int, int)}, que também as repassa ao motor
+ * embrulhado para que ele continue válido quando voltar.
+ */
+class DebugInterpreter implements ExecutionEngine {
+
+    private final Debugger debugger;
+    private final ExecutionEngine inner;
+
+    // cópias locais do estado do depurador, renovadas quando a versão muda
+    private final long[] breakpoints = new long[Chip8.MEMORY_SIZE / 64];
+    private final long[] watchpoints = new long[Chip8.MEMORY_SIZE / 64];
+    @SuppressWarnings("unchecked")
+    private final Predicate<Chip8>[] conditions = new Predicate[Chip8.MEMORY_SIZE];
+    private Predicate<Chip8> condition;
+    private int version = -1;
+    private int watchHit = -1;
+
+    DebugInterpreter(Debugger debugger, ExecutionEngine inner) {
+        this.debugger = debugger;
+        this.inner = inner;
+    }
+
+    ExecutionEngine getInner() {
+        return inner;
+    }
+
+    @Override
+    public int execute(Chip8 chip8, int budget) {
+        if (chip8.getDebugger() != debugger || !debugger.isArmed()) {
+            // desarmado ou trocado: devolve o motor original, sem reset, porque ele viu todas as escritas
+            chip8.swapEngine(inner);
+            return inner.execute(chip8, budget);
+        }
+        for (int i = 0; i < budget; i++) {
+            check(chip8);
+            chip8.cycle();
+            if (chip8.isFaulted()) return i + 1;
+            if (watchHit >= 0) {
+                int address = watchHit;
+                watchHit = -1;
+                debugger.stop(chip8, Debugger.Stop.WATCHPOINT, address);
+            }
+        }
+        return budget;
+    }
+
+    // decide se para antes da instrução em pc; depois de uma parada a instrução executa sem nova checagem
+    private void check(Chip8 chip8) {
+        int pc = chip8.getPc();
+        // pc passou do fim da memória (linha reta depois de 0xFFE, BNNN, skip em 0xFFE): cycle() registra a falha
+        if (pc >= Chip8.MEMORY_SIZE) return;
+        if (version != debugger.version()) refresh();
+        Debugger.Stop reason = switch (debugger.mode()) {
+            case STEP -> Debugger.Stop.STEP;
+            case OVER, OUT -> chip8.getSp() <= debugger.targetDepth() ? Debugger.Stop.STEP : null;
+            case PAUSE -> Debugger.Stop.PAUSE;
+            default -> null;
+        };
+        if (reason == null && (breakpoints[pc >>> 6] >>> pc & 1) != 0) {
+            Predicate<Chip8> condition = conditions[pc];
+            if (condition == null || condition.test(chip8)) reason = Debugger.Stop.BREAKPOINT;
+        }
+        if (reason == null && condition != null && condition.test(chip8)) reason = Debugger.Stop.CONDITION;
+        if (reason != null) debugger.stop(chip8, reason, pc);
+    }
+
+    private void refresh() {
+        version = debugger.version();
+        debugger.copyTo(breakpoints, watchpoints, conditions);
+        condition = debugger.condition();
+    }
+
+    @Override
+    public void invalidate(int address, int length) {
+        inner.invalidate(address, length);
+        if (watchHit >= 0) return;
+        if (version != debugger.version()) refresh();
+        for (int a = address; a < address + length; a++) {
+            int wrapped = a & (Chip8.MEMORY_SIZE - 1);
+            if ((watchpoints[wrapped >>> 6] >>> wrapped & 1) != 0) {
+                watchHit = wrapped;
+                return;
+            }
+        }
+    }
+
+    @Override
+    public boolean observesEveryInstruction() {
+        return true;
+    }
+
+    @Override
+    public void prepare(Chip8 chip8, ControlFlow flow) {
+        inner.prepare(chip8, flow);
+    }
+
+    @Override
+    public void reset() {
+        inner.reset();
+        watchHit = -1;
+    }
+}
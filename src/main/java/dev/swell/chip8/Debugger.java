@@ -0,0 +1,245 @@
+package dev.swell.chip8;
+
+import java.util.Arrays;
+import java.util.function.Predicate;
+
+/**
+ * Breakpoints por endereço (um bitmap de 4096 bits, opcionalmente com condição sobre os registradores),
+ * watchpoints de escrita na memória (FX33, FX55, 5XY2) e passo a passo.
+ * <p>
+ * Não custa nada enquanto está desarmado: a máquina segue no motor dela. Ao armar qualquer coisa, o próximo
+ * quadro troca o motor por um {@link DebugInterpreter} que embrulha o original; ao desarmar, o próprio
+ * {@code DebugInterpreter} devolve o motor original, já coerente com a memória.
+ * <p>
+ * Numa parada, o {@link Listener} é chamado na thread da emulação com a máquina entre duas instruções. Com o
+ * relógio rodando, essa thread fica bloqueada até {@link #resume()}, {@link #step()}, {@link #stepOver()} ou
+ * {@link #stepOut()}, e a contagem de ciclos e dos temporizadores continua idêntica à de uma execução sem
+ * depurador. Sem relógio ({@code runFrame} chamado direto) não há outra thread para retomar: a execução segue
+ * com o comando que o listener deixar, ou continua normalmente.
+ */
+public final class Debugger {
+
+    public enum Stop {PAUSE, STEP, BREAKPOINT, CONDITION, WATCHPOINT}
+
+    @FunctionalInterface
+    public interface Listener {
+        /**
+         * {@code address} é o pc para breakpoints e passos, e o endereço escrito para watchpoints.
+         */
+        void stopped(Chip8 chip8, Stop reason, int address);
+    }
+
+    enum Mode {RUN, PAUSE, STEP, OVER, OUT, PAUSED}
+
+    private final long[] breakpoints = new long[Chip8.MEMORY_SIZE / 64];
+    private final long[] watchpoints = new long[Chip8.MEMORY_SIZE / 64];
+    @SuppressWarnings("unchecked")
+    private final Predicate<Chip8>[] conditions = new Predicate[Chip8.MEMORY_SIZE];
+    private int breakpointCount;
+    private int watchpointCount;
+    private Predicate<Chip8> condition;
+    private Listener listener = (chip8, reason, address) -> {
+    };
+
+    // lidos pela thread da emulação: armed uma vez por quadro, version e mode a cada instrução (só armado)
+    private volatile boolean armed;
+    private volatile int version;
+    private volatile Mode mode = Mode.RUN;
+    private int targetDepth;
+    private int currentDepth;
+
+    public synchronized void setListener(Listener listener) {
+        this.listener = listener != null ? listener : (chip8, reason, address) -> {
+        };
+    }
+
+    public void setBreakpoint(int address) {
+        setBreakpoint(address, (Predicate<Chip8>) null);
+    }
+
+    /**
+     * Para antes de executar a instrução em {@code address} se {@code condition} for verdadeira (ou sempre, se
+     * {@code null}).
+     */
+    public synchronized void setBreakpoint(int address, Predicate<Chip8> condition) {
+        checkAddress(address);
+        if (!isSet(breakpoints, address)) breakpointCount++;
+        breakpoints[address >>> 6] |= 1L << address;
+        conditions[address] = condition;
+        changed();
+    }
+
+    /**
+     * Condição em texto, a mesma sintaxe do {@code run --until}: {@code v3=5}, {@code i=0x300}, {@code [0x300]=1}...
+     */
+    public void setBreakpoint(int address, String condition) {
+        setBreakpoint(address, RomRunner.parseCondition(condition));
+    }
+
+    public synchronized void clearBreakpoint(int address) {
+        checkAddress(address);
+        if (isSet(breakpoints, address)) breakpointCount--;
+        breakpoints[address >>> 6] &= ~(1L << address);
+        conditions[address] = null;
+        changed();
+    }
+
+    public synchronized boolean hasBreakpoint(int address) {
+        return isSet(breakpoints, address);
+    }
+
+    /**
+     * Para antes de qualquer instrução em que {@code condition} for verdadeira; {@code null} remove. É avaliada a
+     * cada instrução, então custa bem mais que um breakpoint por endereço.
+     */
+    public synchronized void breakWhen(Predicate<Chip8> condition) {
+        this.condition = condition;
+        changed();
+    }
+
+    /**
+     * Para logo depois da instrução que escrever em {@code address}.
+     */
+    public synchronized void setWatchpoint(int address) {
+        checkAddress(address);
+        if (!isSet(watchpoints, address)) watchpointCount++;
+        watchpoints[address >>> 6] |= 1L << address;
+        changed();
+    }
+
+    public synchronized void clearWatchpoint(int address) {
+        checkAddress(address);
+        if (isSet(watchpoints, address)) watchpointCount--;
+        watchpoints[address >>> 6] &= ~(1L << address);
+        changed();
+    }
+
+    public synchronized void clearAll() {
+        Arrays.fill(breakpoints, 0);
+        Arrays.fill(watchpoints, 0);
+        Arrays.fill(conditions, null);
+        breakpointCount = 0;
+        watchpointCount = 0;
+        condition = null;
+        changed();
+    }
+
+    /**
+     * Para antes da próxima instrução (no máximo um quadro depois, se o motor ainda não estava trocado).
+     */
+    public synchronized void pause() {
+        if (mode != Mode.PAUSED) command(Mode.PAUSE);
+    }
+
+    public synchronized void resume() {
+        command(Mode.RUN);
+    }
+
+    public synchronized void step() {
+        command(Mode.STEP);
+    }
+
+    /**
+     * Durante uma parada: como {@link #step()}, mas um CALL roda a sub-rotina inteira (para quando a pilha volta à
+     * profundidade atual).
+     */
+    public synchronized void stepOver() {
+        targetDepth = currentDepth;
+        command(Mode.OVER);
+    }
+
+    /**
+     * Durante uma parada: roda até o RET da sub-rotina atual; no nível mais externo equivale a {@link #resume()}.
+     */
+    public synchronized void stepOut() {
+        targetDepth = currentDepth - 1;
+        command(currentDepth > 0 ? Mode.OUT : Mode.RUN);
+    }
+
+    public boolean isPaused() {
+        return mode == Mode.PAUSED;
+    }
+
+    public boolean isArmed() {
+        return armed;
+    }
+
+    private void command(Mode mode) {
+        this.mode = mode;
+        changed();
+        notifyAll();
+    }
+
+    private void changed() {
+        version++;
+        armed = breakpointCount > 0 || watchpointCount > 0 || condition != null || mode != Mode.RUN;
+    }
+
+    // Chip8.runFrame, na thread da emulação: arma o motor instrumentado para o quadro
+    void beforeFrame(Chip8 chip8) {
+        if (armed && !(chip8.getEngine() instanceof DebugInterpreter)) {
+            chip8.swapEngine(new DebugInterpreter(this, chip8.getEngine()));
+        }
+    }
+
+    // Chip8.stop e setDebugger: uma parada não pode segurar a thread do relógio enquanto ela é encerrada
+    synchronized void wake() {
+        notifyAll();
+    }
+
+    int version() {
+        return version;
+    }
+
+    Mode mode() {
+        return mode;
+    }
+
+    int targetDepth() {
+        return targetDepth;
+    }
+
+    synchronized void copyTo(long[] breakpoints, long[] watchpoints, Predicate<Chip8>[] conditions) {
+        System.arraycopy(this.breakpoints, 0, breakpoints, 0, breakpoints.length);
+        System.arraycopy(this.watchpoints, 0, watchpoints, 0, watchpoints.length);
+        System.arraycopy(this.conditions, 0, conditions, 0, conditions.length);
+    }
+
+    synchronized Predicate<Chip8> condition() {
+        return condition;
+    }
+
+    /**
+     * Parada na thread da emulação: avisa o listener e, com o relógio rodando, espera o próximo comando.
+     */
+    void stop(Chip8 chip8, Stop reason, int address) {
+        Listener listener;
+        synchronized (this) {
+            currentDepth = chip8.getSp();
+            command(Mode.PAUSED);
+            listener = this.listener;
+        }
+        listener.stopped(chip8, reason, address);
+        synchronized (this) {
+            while (mode == Mode.PAUSED && chip8.IsStarted() && chip8.getDebugger() == this) {
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+            if (mode == Mode.PAUSED) command(Mode.RUN);
+        }
+    }
+
+    private static boolean isSet(long[] bitmap, int address) {
+        return (bitmap[address >>> 6] >>> address & 1) != 0;
+    }
+
+    private static void checkAddress(int address) {
+        if (address < 0 || address >= Chip8.MEMORY_SIZE) {
+            throw new IllegalArgumentException("address out of range: " + address);
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package dev.swell.chip8;
+
+public interface Display {
+
+    Display NONE = framebuffer -> {
+    };
+
+    /**
+     * Chamado pelo núcleo ao fim de um quadro em que a tela mudou.
+     */
+    void present(Framebuffer framebuffer);
+
+    /**
+     * Apresenta nesta tela e depois em {@code next}, na mesma thread.
+     */
+    default Display andThen(Display next) {
+        return framebuffer -> {
+            present(framebuffer);
+            next.present(framebuffer);
+        };
+    }
+}
@@ -0,0 +1,266 @@
+package dev.swell.chip8;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Relógio em thread própria: executa {@code instructionsPerSecond} instruções por segundo divididas em
+ * quadros de 60 Hz contados por {@link System#nanoTime()}. Se a thread atrasar, os quadros devidos são
+ * executados sem apresentação (frame skip) até {@code maxFrameSkip}; além disso o atraso é descartado.
+ * No modo turbo não há espera: os temporizadores continuam a cada {@code instructionsPerSecond / 60}
+ * instruções e a tela é apresentada no máximo 60 vezes por segundo.
+ * <p>
+ * Com um {@link RewindBuffer} configurado, cada quadro executado é gravado nele, menos os que começam e terminam
+ * ociosos (só somam ciclos): o histórico pula a espera inteira de uma vez. Enquanto
+ * {@link #setRewinding(boolean) rewinding} estiver ativo, cada quadro volta um estado em vez de executar.
+ * <p>
+ * Com a máquina ociosa ({@link Chip8#isIdle()}: parada esperando tecla, temporizadores zerados) e um teclado que
+ * avisa a chegada de eventos, a thread dorme até uma tecla ou por até {@code IDLE_PARK} em vez de acordar a cada
+ * quadro, e ao acordar soma de uma vez os ciclos dos quadros dormidos, sem descartá-los. Rebobinando não dorme.
+ */
+public class EmulationScheduler implements Clock {
+
+    public static final int TIMER_HZ = 60;
+    public static final int DEFAULT_INSTRUCTIONS_PER_SECOND = Chip8.DEFAULT_INSTRUCTIONS_PER_FRAME * TIMER_HZ;
+
+    private static final long SECOND = 1_000_000_000L;
+    private static final long IDLE_PARK = SECOND / 4;
+
+    private volatile int instructionsPerSecond = DEFAULT_INSTRUCTIONS_PER_SECOND;
+    private volatile boolean turbo = false;
+    private volatile int maxFrameSkip = 5;
+    private volatile RewindBuffer rewind;
+    private volatile boolean rewinding = false;
+
+    private volatile double achievedIps = 0;
+    private volatile long presentedFrames = 0;
+    private volatile long skippedFrames = 0;
+    private volatile long droppedFrames = 0;
+    private volatile long idleFrames = 0;
+    private volatile long lastTimerDrift = 0;
+    private volatile long maxTimerDrift = 0;
+
+    private volatile Thread thread;
+    private volatile boolean running;
+
+    public EmulationScheduler() {
+    }
+
+    public EmulationScheduler(int instructionsPerSecond) {
+        setInstructionsPerSecond(instructionsPerSecond);
+    }
+
+    public void setInstructionsPerSecond(int instructionsPerSecond) {
+        if (instructionsPerSecond <= 0) throw new IllegalArgumentException("instructionsPerSecond must be positive");
+        this.instructionsPerSecond = instructionsPerSecond;
+    }
+
+    public int getInstructionsPerSecond() {
+        return instructionsPerSecond;
+    }
+
+    public void setTurbo(boolean turbo) {
+        this.turbo = turbo;
+        wake();
+    }
+
+    public boolean isTurbo() {
+        return turbo;
+    }
+
+    public void setMaxFrameSkip(int maxFrameSkip) {
+        if (maxFrameSkip < 0) throw new IllegalArgumentException("maxFrameSkip must not be negative");
+        this.maxFrameSkip = maxFrameSkip;
+    }
+
+    public void setRewind(RewindBuffer rewind) {
+        this.rewind = rewind;
+    }
+
+    public RewindBuffer getRewind() {
+        return rewind;
+    }
+
+    public void setRewinding(boolean rewinding) {
+        this.rewinding = rewinding;
+        wake();
+    }
+
+    public boolean isRewinding() {
+        return rewinding;
+    }
+
+    /**
+     * Instruções por segundo efetivamente executadas, medidas em janelas de ~1 s.
+     */
+    public double getAchievedIps() {
+        return achievedIps;
+    }
+
+    public long getPresentedFrames() {
+        return presentedFrames;
+    }
+
+    /**
+     * Quadros executados sem apresentação para recuperar atraso.
+     */
+    public long getSkippedFrames() {
+        return skippedFrames;
+    }
+
+    /**
+     * Quadros descartados (nem executados) quando o atraso passou de {@code maxFrameSkip}.
+     */
+    public long getDroppedFrames() {
+        return droppedFrames;
+    }
+
+    /**
+     * Quadros ociosos somados de uma vez depois de dormir esperando tecla (contados também como pulados).
+     */
+    public long getIdleFrames() {
+        return idleFrames;
+    }
+
+    /**
+     * Atraso, em ns, do último quadro em relação ao instante nominal do seu tick.
+     */
+    public long getLastTimerDriftNanos() {
+        return lastTimerDrift;
+    }
+
+    public long getMaxTimerDriftNanos() {
+        return maxTimerDrift;
+    }
+
+    public void resetMaxTimerDrift() {
+        maxTimerDrift = 0;
+    }
+
+    @Override
+    public synchronized void start(Chip8 chip8) {
+        if (running) return;
+        running = true;
+        // o histórico é da execução anterior (p. ex. outra ROM)
+        if (rewind != null) rewind.clear();
+        thread = Thread.ofPlatform().name("chip8-scheduler").daemon().start(() -> run(chip8));
+    }
+
+    @Override
+    public synchronized void stop() {
+        running = false;
+        if (thread != null && thread != Thread.currentThread()) {
+            LockSupport.unpark(thread);
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        thread = null;
+    }
+
+    private void run(Chip8 chip8) {
+        long origin = System.nanoTime();
+        long tick = 0;
+        long budget = 0;
+        long nextPresent = origin;
+        long windowStart = origin;
+        long windowCycles = chip8.getCycles();
+        Thread self = Thread.currentThread();
+        boolean wakesOnInput = chip8.setInputWakeup(() -> LockSupport.unpark(self));
+        boolean idle = false;
+
+        while (running && !chip8.isFaulted()) {
+            long now = System.nanoTime();
+
+            if (now - windowStart >= SECOND) {
+                long cycles = chip8.getCycles();
+                achievedIps = (cycles - windowCycles) * (double) SECOND / (now - windowStart);
+                windowStart = now;
+                windowCycles = cycles;
+            }
+
+            if (turbo && !rewinding) {
+                boolean present = now - nextPresent >= 0;
+                frame(chip8, Math.max(1, instructionsPerSecond / TIMER_HZ), present, 0);
+                if (present) {
+                    presentedFrames++;
+                    nextPresent = now + SECOND / TIMER_HZ;
+                } else {
+                    skippedFrames++;
+                }
+                // ao sair do turbo, o relógio real recomeça a partir daqui
+                origin = now;
+                tick = 0;
+                continue;
+            }
+
+            long due = (now - origin) * TIMER_HZ / SECOND;
+            if (tick >= due) {
+                idle = wakesOnInput && !rewinding && chip8.isIdle();
+                long wake = idle ? now + IDLE_PARK : origin + (tick + 1) * SECOND / TIMER_HZ;
+                LockSupport.parkNanos(wake - now);
+                continue;
+            }
+
+            if (idle && due - tick > 1) {
+                // os quadros dormidos só somam ciclos: a mesma conta do laço abaixo, de uma vez; o último roda normal
+                // e já lê a tecla que acordou a thread
+                long frames = due - tick - 1;
+                long total = budget + frames * instructionsPerSecond;
+                if (chip8.skipIdle(total / TIMER_HZ)) {
+                    budget = total % TIMER_HZ;
+                    idleFrames += frames;
+                    skippedFrames += frames;
+                    tick += frames;
+                }
+            }
+            idle = false;
+
+            if (due - tick > maxFrameSkip + 1) {
+                droppedFrames += due - tick - (maxFrameSkip + 1);
+                tick = due - (maxFrameSkip + 1);
+            }
+
+            while (tick < due && running) {
+                budget += instructionsPerSecond;
+                int instructions = (int) (budget / TIMER_HZ);
+                budget -= (long) instructions * TIMER_HZ;
+                boolean present = tick == due - 1;
+                long drift = now - (origin + (tick + 1) * SECOND / TIMER_HZ);
+                lastTimerDrift = drift;
+                if (drift > maxTimerDrift) maxTimerDrift = drift;
+                frame(chip8, instructions, present, drift);
+                if (present) presentedFrames++;
+                else skippedFrames++;
+                tick++;
+            }
+        }
+        if (wakesOnInput) chip8.setInputWakeup(null);
+    }
+
+    // uma thread dormindo ociosa precisa ver turbo e rewind já, não no fim de IDLE_PARK
+    private void wake() {
+        Thread thread = this.thread;
+        if (thread != null) LockSupport.unpark(thread);
+    }
+
+    private void frame(Chip8 chip8, int instructions, boolean present, long drift) {
+        FrameEvent event = new FrameEvent();
+        event.begin();
+        RewindBuffer rewind = this.rewind;
+        if (rewind != null && rewinding) {
+            if (rewind.stepBack(chip8) && present) chip8.present();
+            return;
+        }
+        boolean wasIdle = rewind != null && chip8.isIdle();
+        chip8.runFrame(instructions, present);
+        if (rewind != null && !(wasIdle && chip8.isIdle())) rewind.record(chip8);
+        if (event.shouldCommit()) {
+            event.instructions = instructions;
+            event.presented = present;
+            event.drift = drift;
+            event.commit();
+        }
+    }
+}
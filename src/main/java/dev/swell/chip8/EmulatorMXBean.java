@@ -0,0 +1,36 @@
+package dev.swell.chip8;
+
+import java.util.Map;
+
+/**
+ * Métricas do emulador expostas via JMX em {@value EmulatorMetrics#OBJECT_NAME}.
+ */
+public interface EmulatorMXBean {
+
+    double getInstructionsPerSecond();
+
+    long getCycles();
+
+    long getPresentedFrames();
+
+    long getSkippedFrames();
+
+    long getDroppedFrames();
+
+    long getLastTimerDriftNanos();
+
+    long getMaxTimerDriftNanos();
+
+    long getRenderedFrames();
+
+    long getLastRenderNanos();
+
+    double getAverageRenderNanos();
+
+    /**
+     * Execuções por operação (nomes de {@link Opcode#name(int)}) desde a criação da máquina.
+     */
+    Map<String, Long> getOperationCounts();
+
+    void resetMaxTimerDrift();
+}
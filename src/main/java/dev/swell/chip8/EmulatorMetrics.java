@@ -0,0 +1,131 @@
+package dev.swell.chip8;
+
+import jdk.jfr.FlightRecorder;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Junta os contadores da máquina, do escalonador e do frontend num {@link EmulatorMXBean}. Nada é
+ * acumulado aqui: cada leitura consulta os contadores de quem os escreve, que são campos simples
+ * confinados a uma thread, então o custo fica todo do lado de quem lê.
+ */
+public class EmulatorMetrics implements EmulatorMXBean {
+
+    public static final String OBJECT_NAME = "dev.swell.chip8:type=Emulator";
+
+    private final Chip8 chip8;
+    private final EmulationScheduler scheduler;
+    private final RenderTimer renderTimer;
+    private final Runnable operationCountHook = this::emitOperationCounts;
+
+    public EmulatorMetrics(Chip8 chip8, EmulationScheduler scheduler, RenderTimer renderTimer) {
+        this.chip8 = chip8;
+        this.scheduler = scheduler;
+        this.renderTimer = renderTimer != null ? renderTimer : new RenderTimer();
+    }
+
+    /**
+     * Registra o MXBean (substituindo um anterior com o mesmo nome) e o evento JFR periódico de contagens.
+     */
+    public static EmulatorMetrics register(Chip8 chip8, EmulationScheduler scheduler, RenderTimer renderTimer) {
+        EmulatorMetrics metrics = new EmulatorMetrics(chip8, scheduler, renderTimer);
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(OBJECT_NAME);
+            if (server.isRegistered(name)) server.unregisterMBean(name);
+            server.registerMBean(metrics, name);
+        } catch (JMException e) {
+            throw new IllegalStateException("could not register " + OBJECT_NAME, e);
+        }
+        FlightRecorder.addPeriodicEvent(OperationCountEvent.class, metrics.operationCountHook);
+        return metrics;
+    }
+
+    public void unregister() {
+        FlightRecorder.removePeriodicEvent(operationCountHook);
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(new ObjectName(OBJECT_NAME));
+        } catch (JMException e) {
+            // já não estava registrado
+        }
+    }
+
+    private void emitOperationCounts() {
+        for (int operation = 0; operation < Opcode.OPERATION_COUNT; operation++) {
+            OperationCountEvent event = new OperationCountEvent();
+            event.operation = Opcode.name(operation);
+            event.count = chip8.getOperationCount(operation);
+            event.commit();
+        }
+    }
+
+    @Override
+    public double getInstructionsPerSecond() {
+        return scheduler.getAchievedIps();
+    }
+
+    @Override
+    public long getCycles() {
+        return chip8.getCycles();
+    }
+
+    @Override
+    public long getPresentedFrames() {
+        return scheduler.getPresentedFrames();
+    }
+
+    @Override
+    public long getSkippedFrames() {
+        return scheduler.getSkippedFrames();
+    }
+
+    @Override
+    public long getDroppedFrames() {
+        return scheduler.getDroppedFrames();
+    }
+
+    @Override
+    public long getLastTimerDriftNanos() {
+        return scheduler.getLastTimerDriftNanos();
+    }
+
+    @Override
+    public long getMaxTimerDriftNanos() {
+        return scheduler.getMaxTimerDriftNanos();
+    }
+
+    @Override
+    public long getRenderedFrames() {
+        return renderTimer.getFrames();
+    }
+
+    @Override
+    public long getLastRenderNanos() {
+        return renderTimer.getLastNanos();
+    }
+
+    @Override
+    public double getAverageRenderNanos() {
+        long frames = renderTimer.getFrames();
+        return frames == 0 ? 0 : (double) renderTimer.getTotalNanos() / frames;
+    }
+
+    @Override
+    public Map<String, Long> getOperationCounts() {
+        Map<String, Long> counts = new LinkedHashMap<>();
+        for (int operation = 0; operation < Opcode.OPERATION_COUNT; operation++) {
+            counts.put(Opcode.name(operation), chip8.getOperationCount(operation));
+        }
+        return counts;
+    }
+
+    @Override
+    public void resetMaxTimerDrift() {
+        scheduler.resetMaxTimerDrift();
+    }
+}
@@ -0,0 +1,19 @@
+package dev.swell.chip8;
+
+import java.util.function.Supplier;
+
+public enum EngineType {
+    INTERPRETER(Interpreter::new),
+    THREADED(ThreadedInterpreter::new),
+    RECOMPILER(BlockRecompiler::new);
+
+    private final Supplier<ExecutionEngine> factory;
+
+    EngineType(Supplier<ExecutionEngine> factory) {
+        this.factory = factory;
+    }
+
+    public ExecutionEngine create() {
+        return factory.get();
+    }
+}
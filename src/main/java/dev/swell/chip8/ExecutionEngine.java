@@ -0,0 +1,37 @@
+package dev.swell.chip8;
+
+public interface ExecutionEngine {
+
+    /**
+     * Executa no máximo {@code budget} instruções a partir do {@code pc} atual e retorna quantas executou
+     * (pelo menos uma, a não ser que a máquina entre em falha).
+     */
+    int execute(Chip8 chip8, int budget);
+
+    /**
+     * Avisa que o programa escreveu em {@code memory[address .. address + length)}.
+     */
+    default void invalidate(int address, int length) {
+    }
+
+    /**
+     * Descarta qualquer estado derivado da memória (ROM nova, reset ou estado restaurado).
+     */
+    default void reset() {
+    }
+
+    /**
+     * Chamado ao carregar uma ROM (e ao trocar de motor com uma ROM carregada), antes do primeiro quadro: motores
+     * que decodificam ou compilam podem adiantar esse trabalho para o código que a análise encontrou.
+     */
+    default void prepare(Chip8 chip8, ControlFlow flow) {
+    }
+
+    /**
+     * Motores que precisam ver cada instrução (trace, depurador) retornam true, e o núcleo deixa de avançar de
+     * uma vez os laços de espera (ver {@link IdleLoops}) enquanto eles estão instalados.
+     */
+    default boolean observesEveryInstruction() {
+        return false;
+    }
+}
@@ -0,0 +1,27 @@
+package dev.swell.chip8;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+/**
+ * Evento JFR de um quadro emulado pelo {@link EmulationScheduler}; a duração do evento é o tempo do quadro.
+ */
+@Name("dev.swell.chip8.Frame")
+@Label("Emulated Frame")
+@Category("CHIP-8")
+class FrameEvent extends jdk.jfr.Event {
+
+    @Label("Instructions")
+    int instructions;
+
+    @Label("Presented")
+    boolean presented;
+
+    @Label("Timer Drift")
+    @Description("Atraso do quadro em relação ao instante nominal do tick de 60 Hz")
+    @Timespan(Timespan.NANOSECONDS)
+    long drift;
+}
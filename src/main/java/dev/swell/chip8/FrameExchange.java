@@ -0,0 +1,80 @@
+package dev.swell.chip8;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Troca de quadros sem locks entre a thread da emulação e a que apresenta (triple buffering): o produtor copia
+ * cada quadro completo para o seu buffer de trás e o publica trocando-o atomicamente com o do meio; o consumidor
+ * troca o seu buffer da frente pelo do meio só quando há um quadro novo. Cada lado só toca no buffer que possui,
+ * então não há rasgo nem cópia na thread do consumidor, e um consumidor lento simplesmente pula para o mais novo.
+ * <p>
+ * Um produtor e um consumidor; cada um pode ser qualquer thread, desde que seja sempre a mesma por vez.
+ */
+public final class FrameExchange {
+
+    /**
+     * Um quadro publicado. Pertence ao consumidor entre {@link #take()} e o próximo {@code take()}.
+     */
+    public static final class Frame {
+        private long[] words = new long[0];
+        private int width;
+        private int height;
+        private int planes;
+        private long sequence;
+
+        public long[] getWords() {
+            return words;
+        }
+
+        public int getWidth() {
+            return width;
+        }
+
+        public int getHeight() {
+            return height;
+        }
+
+        public int getPlanes() {
+            return planes;
+        }
+
+        /**
+         * Número do quadro publicado, a partir de 1; saltos indicam quadros que o consumidor não chegou a ver.
+         */
+        public long getSequence() {
+            return sequence;
+        }
+    }
+
+    // estado: índice do buffer do meio nos bits 0-1, FRESH se ele ainda não foi consumido
+    private static final int FRESH = 4;
+
+    private final Frame[] frames = {new Frame(), new Frame(), new Frame()};
+    private final AtomicInteger middle = new AtomicInteger(1);
+    private int back = 0; //só o produtor
+    private int front = 2; //só o consumidor
+    private long published; //só o produtor
+
+    /**
+     * Copia {@code framebuffer} e o publica; um quadro anterior ainda não consumido é descartado.
+     */
+    public void publish(Framebuffer framebuffer) {
+        Frame frame = frames[back];
+        if (frame.words.length != framebuffer.wordCount()) frame.words = new long[framebuffer.wordCount()];
+        framebuffer.copyTo(frame.words);
+        frame.width = framebuffer.getWidth();
+        frame.height = framebuffer.getHeight();
+        frame.planes = framebuffer.getPlanes();
+        frame.sequence = ++published;
+        back = middle.getAndSet(back | FRESH) & 3;
+    }
+
+    /**
+     * O quadro mais recente ainda não visto, ou {@code null} se nada foi publicado desde o último {@code take()}.
+     */
+    public Frame take() {
+        if ((middle.get() & FRESH) == 0) return null;
+        front = middle.getAndSet(front) & 3;
+        return frames[front];
+    }
+}
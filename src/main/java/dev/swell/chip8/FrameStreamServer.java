@@ -0,0 +1,496 @@
+package dev.swell.chip8;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Transmite a tela para visualizadores remotos por WebSocket. Uma única thread com um {@link Selector}
+ * atende todas as conexões sem bloquear; {@code GET /} sem upgrade devolve um visualizador HTML.
+ * <p>
+ * {@link #present(Framebuffer)} só copia o quadro e acorda o seletor, então a emulação nunca espera pela
+ * rede. Cada visualizador guarda o último quadro que recebeu e, quando termina de enviar uma mensagem, recebe
+ * o delta dele até o quadro mais recente: um cliente lento pula quadros em vez de acumular fila. Quem estava
+ * no quadro anterior (o caso comum) compartilha a mesma mensagem já codificada.
+ * <p>
+ * Mensagens (frames binários, big-endian): tipo ({@code 0} quadro-chave, aplicado sobre uma tela apagada;
+ * {@code 1} delta), sequência (int), largura e altura (short), planos (byte), um bit por linha de
+ * {@code planos * altura} dizendo quais mudaram (MSB primeiro, plano a plano) e o XOR dessas linhas
+ * (8 bytes por 64 pixels, pixel 0 no MSB) codificado com o RLE de {@link RewindBuffer}.
+ */
+public final class FrameStreamServer implements Display, AutoCloseable {
+
+    public static final int DEFAULT_PORT = 8088;
+
+    static final int KEYFRAME = 0;
+    static final int DELTA = 1;
+    static final int HEADER = 10;
+
+    private static final int MAX_REQUEST = 8192;
+    // buffer de envio curto: um visualizador lento passa a pular quadros em vez de acumular segundos de atraso
+    private static final int SEND_BUFFER = 16 * 1024;
+    private static final String WEBSOCKET_GUID = "258EAFA5-E914-47DA-95CA-C5AB0DC85B11";
+
+    private enum State {HTTP, STREAMING, CLOSING}
+
+    private final ServerSocketChannel server;
+    private final Selector selector;
+    private final byte[] viewerPage;
+    private final Thread thread;
+    private volatile boolean open = true;
+
+    // último quadro apresentado; escrito pela thread da emulação, copiado pela do seletor
+    private final Object lock = new Object();
+    private final Snapshot pending = new Snapshot();
+    private final AtomicBoolean wakeupPending = new AtomicBoolean();
+
+    // daqui em diante, só a thread do seletor
+    private Snapshot current = new Snapshot();
+    private Snapshot previous = new Snapshot();
+    private ByteBuffer sharedDelta; // de previous para current
+    private ByteBuffer keyframe; // current inteiro
+    private final List<Viewer> viewers = new ArrayList<>();
+    private byte[] before = new byte[0];
+    private byte[] after = new byte[0];
+    private byte[] encoded = new byte[0];
+
+    private volatile int viewerCount;
+    private volatile long sentMessages;
+    private volatile long droppedFrames;
+
+    private FrameStreamServer(InetSocketAddress address) throws IOException {
+        selector = Selector.open();
+        server = ServerSocketChannel.open();
+        try {
+            server.bind(address);
+            server.configureBlocking(false);
+            server.register(selector, SelectionKey.OP_ACCEPT);
+        } catch (IOException e) {
+            server.close();
+            selector.close();
+            throw e;
+        }
+        try (InputStream page = FrameStreamServer.class.getResourceAsStream("stream-viewer.html")) {
+            viewerPage = page != null ? page.readAllBytes() : null;
+        }
+        thread = Thread.ofPlatform().name("chip8-stream").daemon().start(this::run);
+    }
+
+    /**
+     * Escuta só na interface local; para telas em outras máquinas use {@link #open(InetSocketAddress)}.
+     */
+    public static FrameStreamServer open(int port) throws IOException {
+        return open(new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+    }
+
+    public static FrameStreamServer open(InetSocketAddress address) throws IOException {
+        return new FrameStreamServer(address);
+    }
+
+    public int getPort() throws IOException {
+        return ((InetSocketAddress) server.getLocalAddress()).getPort();
+    }
+
+    public int getViewerCount() {
+        return viewerCount;
+    }
+
+    public long getSentMessages() {
+        return sentMessages;
+    }
+
+    /**
+     * Quadros que algum visualizador pulou por estar ocupado enviando o anterior, somados entre todos.
+     */
+    public long getDroppedFrames() {
+        return droppedFrames;
+    }
+
+    @Override
+    public void present(Framebuffer framebuffer) {
+        synchronized (lock) {
+            pending.set(framebuffer);
+        }
+        if (wakeupPending.compareAndSet(false, true)) selector.wakeup();
+    }
+
+    @Override
+    public void close() throws IOException {
+        open = false;
+        selector.wakeup();
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void run() {
+        try {
+            while (open) {
+                selector.select();
+                wakeupPending.set(false);
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    if (!key.isValid()) continue;
+                    if (key.isAcceptable()) {
+                        accept();
+                        continue;
+                    }
+                    Viewer viewer = (Viewer) key.attachment();
+                    try {
+                        if (key.isReadable()) read(viewer);
+                        if (key.isValid() && key.isWritable()) pump(viewer);
+                    } catch (IOException e) {
+                        close(viewer);
+                    }
+                }
+                if (takeSnapshot()) {
+                    // de trás para frente: pump pode fechar e remover o visualizador
+                    for (int i = viewers.size() - 1; i >= 0; i--) {
+                        Viewer viewer = viewers.get(i);
+                        if (viewer.state != State.STREAMING || viewer.writing()) continue;
+                        try {
+                            pump(viewer);
+                        } catch (IOException e) {
+                            close(viewer);
+                        }
+                    }
+                }
+            }
+        } catch (IOException | ClosedSelectorException e) {
+            // servidor encerrado
+        } finally {
+            for (int i = viewers.size() - 1; i >= 0; i--) close(viewers.get(i));
+            try {
+                server.close();
+                selector.close();
+            } catch (IOException ignored) {
+                // nada a fazer ao encerrar
+            }
+        }
+    }
+
+    private void accept() throws IOException {
+        SocketChannel channel;
+        while ((channel = server.accept()) != null) {
+            channel.configureBlocking(false);
+            channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+            channel.setOption(StandardSocketOptions.SO_SNDBUF, SEND_BUFFER);
+            Viewer viewer = new Viewer(channel);
+            viewer.key = channel.register(selector, SelectionKey.OP_READ, viewer);
+            viewers.add(viewer);
+        }
+    }
+
+    private boolean takeSnapshot() {
+        synchronized (lock) {
+            if (pending.sequence == current.sequence) return false;
+            Snapshot oldest = previous;
+            previous = current;
+            current = oldest;
+            current.copyFrom(pending);
+        }
+        sharedDelta = null;
+        keyframe = null;
+        return true;
+    }
+
+    private void read(Viewer viewer) throws IOException {
+        if (viewer.channel.read(viewer.in) < 0) {
+            close(viewer);
+            return;
+        }
+        switch (viewer.state) {
+            case HTTP -> handleRequest(viewer);
+            case STREAMING -> handleFrames(viewer);
+            case CLOSING -> viewer.in.clear();
+        }
+    }
+
+    private void handleRequest(Viewer viewer) throws IOException {
+        String request = new String(viewer.in.array(), 0, viewer.in.position(), StandardCharsets.ISO_8859_1);
+        int end = request.indexOf("\r\n\r\n");
+        if (end < 0) {
+            if (!viewer.in.hasRemaining()) close(viewer);
+            return;
+        }
+        String[] lines = request.substring(0, end).split("\r\n");
+        String[] requestLine = lines[0].split(" ");
+        Map<String, String> headers = new HashMap<>();
+        for (int i = 1; i < lines.length; i++) {
+            int colon = lines[i].indexOf(':');
+            if (colon > 0) headers.put(lines[i].substring(0, colon).trim().toLowerCase(Locale.ROOT), lines[i].substring(colon + 1).trim());
+        }
+        viewer.in.clear();
+
+        boolean get = requestLine.length >= 2 && requestLine[0].equals("GET");
+        String key = headers.get("sec-websocket-key");
+        if (get && key != null && "websocket".equalsIgnoreCase(headers.get("upgrade"))) {
+            viewer.out = ascii("HTTP/1.1 101 Switching Protocols\r\nUpgrade: websocket\r\nConnection: Upgrade\r\n"
+                    + "Sec-WebSocket-Accept: " + accept(key) + "\r\n\r\n");
+            viewer.state = State.STREAMING;
+            viewerCount++;
+        } else if (get && viewerPage != null && (requestLine[1].equals("/") || requestLine[1].equals("/index.html"))) {
+            ByteBuffer header = ascii("HTTP/1.1 200 OK\r\nContent-Type: text/html; charset=utf-8\r\nContent-Length: "
+                    + viewerPage.length + "\r\nConnection: close\r\n\r\n");
+            viewer.out = ByteBuffer.allocate(header.remaining() + viewerPage.length).put(header).put(viewerPage).flip();
+            viewer.state = State.CLOSING;
+        } else {
+            viewer.out = ascii("HTTP/1.1 404 Not Found\r\nContent-Length: 0\r\nConnection: close\r\n\r\n");
+            viewer.state = State.CLOSING;
+        }
+        pump(viewer);
+    }
+
+    // os visualizadores não mandam dados: só interessa o frame de close; o resto é descartado
+    private void handleFrames(Viewer viewer) {
+        ByteBuffer in = viewer.in.flip();
+        while (in.remaining() >= 2) {
+            int position = in.position();
+            int opcode = in.get(position) & 0x0F;
+            int second = in.get(position + 1) & 0xFF;
+            long length = second & 0x7F;
+            int header = 2 + (length == 126 ? 2 : length == 127 ? 8 : 0) + ((second & 0x80) != 0 ? 4 : 0);
+            if (in.remaining() < header) break;
+            if (length == 126) length = in.getShort(position + 2) & 0xFFFF;
+            else if (length == 127) length = in.getLong(position + 2);
+            if (opcode == 0x8 || length < 0 || header + length > in.capacity()) {
+                close(viewer);
+                return;
+            }
+            if (in.remaining() < header + length) break;
+            in.position(position + header + (int) length);
+        }
+        in.compact();
+    }
+
+    /**
+     * Escreve o que der sem bloquear; sem nada pendente, prepara o delta para o quadro atual.
+     */
+    private void pump(Viewer viewer) throws IOException {
+        while (true) {
+            if (viewer.writing()) {
+                viewer.channel.write(viewer.out);
+                if (viewer.out.hasRemaining()) {
+                    viewer.key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+                    return;
+                }
+            }
+            viewer.out = null;
+            if (viewer.state == State.CLOSING) {
+                close(viewer);
+                return;
+            }
+            if (viewer.state != State.STREAMING || current.sequence == 0 || viewer.sent.sequence == current.sequence) {
+                viewer.key.interestOps(SelectionKey.OP_READ);
+                return;
+            }
+            viewer.out = message(viewer);
+        }
+    }
+
+    private ByteBuffer message(Viewer viewer) {
+        Snapshot sent = viewer.sent;
+        ByteBuffer message;
+        if (sent.sequence != 0 && sent.sequence == previous.sequence && previous.sameShape(current)) {
+            if (sharedDelta == null) sharedDelta = encode(previous, current);
+            message = sharedDelta.duplicate();
+        } else if (sent.sequence == 0 || !sent.sameShape(current)) {
+            if (keyframe == null) keyframe = encode(null, current);
+            message = keyframe.duplicate();
+        } else {
+            message = encode(sent, current);
+        }
+        if (sent.sequence != 0) droppedFrames += current.sequence - sent.sequence - 1;
+        sent.copyFrom(current);
+        sentMessages++;
+        return message;
+    }
+
+    // mensagem completa, já com o cabeçalho do frame WebSocket; from == null gera um quadro-chave
+    ByteBuffer encode(Snapshot from, Snapshot to) {
+        int rowWords = to.width >>> 6;
+        int rowBytes = rowWords * 8;
+        int rows = to.height * to.planes;
+        int bitmapBytes = (rows + 7) >>> 3;
+        if (after.length < rows * rowBytes) {
+            before = new byte[rows * rowBytes];
+            after = new byte[rows * rowBytes];
+            encoded = new byte[rows * rowBytes + rows * rowBytes / 128 + 2];
+        }
+        byte[] bitmap = new byte[bitmapBytes];
+        int length = 0;
+        for (int r = 0; r < rows; r++) {
+            int first = r * rowWords;
+            boolean changed = false;
+            for (int w = first; w < first + rowWords; w++) {
+                if (to.words[w] != (from != null ? from.words[w] : 0)) changed = true;
+            }
+            if (!changed) continue;
+            bitmap[r >>> 3] |= (byte) (0x80 >>> (r & 7));
+            for (int w = first; w < first + rowWords; w++) {
+                putLong(before, length, from != null ? from.words[w] : 0);
+                putLong(after, length, to.words[w]);
+                length += 8;
+            }
+        }
+        int encodedLength = RewindBuffer.encode(after, before, length, encoded);
+
+        int payload = HEADER + bitmapBytes + encodedLength;
+        int frameHeader = payload < 126 ? 2 : payload <= 0xFFFF ? 4 : 10;
+        ByteBuffer message = ByteBuffer.allocate(frameHeader + payload);
+        message.put((byte) 0x82); // FIN, binário
+        if (payload < 126) {
+            message.put((byte) payload);
+        } else if (payload <= 0xFFFF) {
+            message.put((byte) 126).putShort((short) payload);
+        } else {
+            message.put((byte) 127).putLong(payload);
+        }
+        message.put((byte) (from == null ? KEYFRAME : DELTA)).putInt(to.sequence)
+                .putShort((short) to.width).putShort((short) to.height).put((byte) to.planes)
+                .put(bitmap).put(encoded, 0, encodedLength);
+        return message.flip();
+    }
+
+    private void close(Viewer viewer) {
+        if (!viewers.remove(viewer)) return;
+        if (viewer.state == State.STREAMING) viewerCount--;
+        viewer.key.cancel();
+        try {
+            viewer.channel.close();
+        } catch (IOException ignored) {
+            // a conexão já caiu
+        }
+    }
+
+    private static void putLong(byte[] target, int offset, long value) {
+        for (int k = 0; k < 8; k++) target[offset + k] = (byte) (value >>> (56 - 8 * k));
+    }
+
+    private static ByteBuffer ascii(String text) {
+        return ByteBuffer.wrap(text.getBytes(StandardCharsets.ISO_8859_1));
+    }
+
+    static String accept(String key) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-1").digest((key + WEBSOCKET_GUID).getBytes(StandardCharsets.ISO_8859_1));
+            return Base64.getEncoder().encodeToString(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Cópia de um quadro com a sequência em que foi apresentado; sequência 0 é "nenhum quadro".
+     */
+    static final class Snapshot {
+        long[] words = new long[0];
+        int width;
+        int height;
+        int planes;
+        int sequence;
+
+        void set(Framebuffer framebuffer) {
+            if (words.length != framebuffer.wordCount()) words = new long[framebuffer.wordCount()];
+            framebuffer.copyTo(words);
+            width = framebuffer.getWidth();
+            height = framebuffer.getHeight();
+            planes = framebuffer.getPlanes();
+            sequence++;
+        }
+
+        void copyFrom(Snapshot other) {
+            if (words.length != other.words.length) words = new long[other.words.length];
+            System.arraycopy(other.words, 0, words, 0, words.length);
+            width = other.width;
+            height = other.height;
+            planes = other.planes;
+            sequence = other.sequence;
+        }
+
+        boolean sameShape(Snapshot other) {
+            return width == other.width && height == other.height && planes == other.planes;
+        }
+    }
+
+    private static final class Viewer {
+        final SocketChannel channel;
+        final ByteBuffer in = ByteBuffer.allocate(MAX_REQUEST);
+        final Snapshot sent = new Snapshot();
+        SelectionKey key;
+        State state = State.HTTP;
+        ByteBuffer out;
+
+        Viewer(SocketChannel channel) {
+            this.channel = channel;
+        }
+
+        boolean writing() {
+            return out != null && out.hasRemaining();
+        }
+    }
+
+    /**
+     * {@code stream <rom> [--port N] [--bind endereço] [--engine INTERPRETER|THREADED|RECOMPILER] [--ips N]}:
+     * roda a ROM sem interface e transmite a tela até o processo ser encerrado.
+     */
+    public static int main(List<String> args) throws IOException, InterruptedException {
+        Path rom = null;
+        int port = DEFAULT_PORT;
+        String bind = null;
+        EngineType engine = EngineType.THREADED;
+        int ips = EmulationScheduler.DEFAULT_INSTRUCTIONS_PER_SECOND;
+        for (int i = 0; i < args.size(); i++) {
+            String arg = args.get(i);
+            switch (arg) {
+                case "--port" -> port = Integer.parseInt(args.get(++i));
+                case "--bind" -> bind = args.get(++i);
+                case "--engine" -> engine = EngineType.valueOf(args.get(++i).toUpperCase());
+                case "--ips" -> ips = Integer.parseInt(args.get(++i));
+                default -> rom = Path.of(arg);
+            }
+        }
+        if (rom == null) {
+            IO.println("usage: stream <rom> [--port N] [--bind ADDRESS] [--engine TYPE] [--ips N]");
+            return 2;
+        }
+        FrameStreamServer stream = bind != null ? open(new InetSocketAddress(bind, port)) : open(port);
+        Chip8 chip8 = new Chip8();
+        chip8.setEngine(engine.create());
+        chip8.setDisplay(stream);
+        chip8.setClock(new EmulationScheduler(ips));
+        chip8.loadRom(Files.readAllBytes(rom));
+        chip8.start();
+        IO.println("streaming " + rom.getFileName() + " on http://" + (bind != null ? bind : "localhost") + ":" + stream.getPort() + "/");
+        while (true) {
+            Thread.sleep(10_000);
+            IO.println(String.format("%d viewers, %d messages, %d dropped frames", stream.getViewerCount(),
+                    stream.getSentMessages(), stream.getDroppedFrames()));
+        }
+    }
+}
@@ -0,0 +1,235 @@
+package dev.swell.chip8;
+
+import java.util.Arrays;
+
+/**
+ * Tela guardada em linhas empacotadas: cada linha ocupa {@code width / 64} longs e o bit mais
+ * significativo da primeira palavra é o pixel x = 0. Com mais de um plano (XO-CHIP), os planos ficam um
+ * depois do outro no mesmo array; os métodos sem {@code plane} usam o plano 0.
+ * <p>
+ * Rolagens movem linhas inteiras ({@code arraycopy}) ou deslocam palavras, nunca pixel a pixel.
+ */
+public class Framebuffer {
+
+    private final int width;
+    private final int height;
+    private final int planes;
+    private final int wordsPerRow;
+    private final int planeSize;
+    private final long[] rows;
+
+    public Framebuffer(int width, int height) {
+        this(width, height, 1);
+    }
+
+    public Framebuffer(int width, int height, int planes) {
+        if (width <= 0 || width % 64 != 0) throw new IllegalArgumentException("width must be a multiple of 64");
+        if (height <= 0) throw new IllegalArgumentException("height must be positive");
+        if (planes <= 0) throw new IllegalArgumentException("planes must be positive");
+        this.width = width;
+        this.height = height;
+        this.planes = planes;
+        this.wordsPerRow = width >>> 6;
+        this.planeSize = wordsPerRow * height;
+        this.rows = new long[planeSize * planes];
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public int getPlanes() {
+        return planes;
+    }
+
+    public int getWordsPerRow() {
+        return wordsPerRow;
+    }
+
+    public long getWord(int y, int word) {
+        return rows[y * wordsPerRow + word];
+    }
+
+    public long getWord(int plane, int y, int word) {
+        return rows[plane * planeSize + y * wordsPerRow + word];
+    }
+
+    public boolean isSet(int x, int y) {
+        return (rows[y * wordsPerRow + (x >>> 6)] << (x & 63)) < 0;
+    }
+
+    public boolean isSet(int plane, int x, int y) {
+        return (rows[plane * planeSize + y * wordsPerRow + (x >>> 6)] << (x & 63)) < 0;
+    }
+
+    public void clear() {
+        Arrays.fill(rows, 0L);
+    }
+
+    /**
+     * Apaga os planos cujo bit está em {@code planeMask}.
+     */
+    public void clear(int planeMask) {
+        for (int plane = 0; plane < planes; plane++) {
+            if ((planeMask >>> plane & 1) != 0) Arrays.fill(rows, plane * planeSize, (plane + 1) * planeSize, 0L);
+        }
+    }
+
+    /**
+     * Faz XOR de {@code bitCount} bits (alinhados à esquerda em {@code bits}) na linha {@code y}
+     * a partir da coluna {@code x}, com wrap horizontal. Retorna true se algum pixel aceso apagou.
+     */
+    public boolean xorRow(int x, int y, long bits, int bitCount) {
+        return xorRow(0, x, y, bits, bitCount);
+    }
+
+    public boolean xorRow(int plane, int x, int y, long bits, int bitCount) {
+        int base = plane * planeSize + y * wordsPerRow;
+        int word = x >>> 6;
+        int offset = x & 63;
+        long head = bits >>> offset;
+        long tail = offset == 0 ? 0L : bits << (64 - offset);
+        long collision = rows[base + word] & head;
+        rows[base + word] ^= head;
+        if (tail != 0 && offset + bitCount > 64) {
+            int next = base + (word + 1 == wordsPerRow ? 0 : word + 1);
+            collision |= rows[next] & tail;
+            rows[next] ^= tail;
+        }
+        return collision != 0;
+    }
+
+    /**
+     * Desenha um sprite de 8 pixels de largura lido de {@code memory[address..]}, com wrap nas duas
+     * direções. Retorna true em caso de colisão.
+     */
+    public boolean drawSprite(byte[] memory, int address, int x, int y, int height) {
+        return drawSprite(0, memory, address, x, y, height);
+    }
+
+    public boolean drawSprite(int plane, byte[] memory, int address, int x, int y, int height) {
+        x %= width;
+        y %= this.height;
+        int base = plane * planeSize;
+        boolean collision = false;
+        if (wordsPerRow == 1) {
+            for (int row = 0; row < height; row++) {
+                int r = base + (y + row) % this.height;
+                long sprite = Long.rotateRight((memory[address + row] & 0xFFL) << 56, x);
+                long old = rows[r];
+                collision |= (old & sprite) != 0;
+                rows[r] = old ^ sprite;
+            }
+        } else {
+            for (int row = 0; row < height; row++) {
+                collision |= xorRow(plane, x, (y + row) % this.height, (memory[address + row] & 0xFFL) << 56, 8);
+            }
+        }
+        return collision;
+    }
+
+    /**
+     * Sprite de 16x16 (SCHIP/XO-CHIP {@code DXY0}): 32 bytes, dois por linha.
+     */
+    public boolean drawWideSprite(int plane, byte[] memory, int address, int x, int y) {
+        x %= width;
+        y %= this.height;
+        boolean collision = false;
+        for (int row = 0; row < 16; row++) {
+            long bits = ((memory[address + 2 * row] & 0xFFL) << 56) | ((memory[address + 2 * row + 1] & 0xFFL) << 48);
+            if (wordsPerRow == 1) {
+                int r = plane * planeSize + (y + row) % this.height;
+                long sprite = Long.rotateRight(bits, x);
+                collision |= (rows[r] & sprite) != 0;
+                rows[r] ^= sprite;
+            } else {
+                collision |= xorRow(plane, x, (y + row) % this.height, bits, 16);
+            }
+        }
+        return collision;
+    }
+
+    public void scrollDown(int lines, int planeMask) {
+        lines = Math.min(lines, height);
+        for (int plane = 0; plane < planes; plane++) {
+            if ((planeMask >>> plane & 1) == 0) continue;
+            int base = plane * planeSize;
+            System.arraycopy(rows, base, rows, base + lines * wordsPerRow, (height - lines) * wordsPerRow);
+            Arrays.fill(rows, base, base + lines * wordsPerRow, 0L);
+        }
+    }
+
+    public void scrollUp(int lines, int planeMask) {
+        lines = Math.min(lines, height);
+        for (int plane = 0; plane < planes; plane++) {
+            if ((planeMask >>> plane & 1) == 0) continue;
+            int base = plane * planeSize;
+            System.arraycopy(rows, base + lines * wordsPerRow, rows, base, (height - lines) * wordsPerRow);
+            Arrays.fill(rows, base + (height - lines) * wordsPerRow, base + planeSize, 0L);
+        }
+    }
+
+    // deslocamentos horizontais de 1..63 pixels; as palavras de cada linha passam o excedente adiante
+    public void scrollRight(int pixels, int planeMask) {
+        for (int plane = 0; plane < planes; plane++) {
+            if ((planeMask >>> plane & 1) == 0) continue;
+            for (int row = plane * planeSize, end = row + planeSize; row < end; row += wordsPerRow) {
+                for (int w = wordsPerRow - 1; w > 0; w--) {
+                    rows[row + w] = rows[row + w] >>> pixels | rows[row + w - 1] << (64 - pixels);
+                }
+                rows[row] >>>= pixels;
+            }
+        }
+    }
+
+    public void scrollLeft(int pixels, int planeMask) {
+        for (int plane = 0; plane < planes; plane++) {
+            if ((planeMask >>> plane & 1) == 0) continue;
+            for (int row = plane * planeSize, end = row + planeSize; row < end; row += wordsPerRow) {
+                for (int w = 0; w < wordsPerRow - 1; w++) {
+                    rows[row + w] = rows[row + w] << pixels | rows[row + w + 1] >>> (64 - pixels);
+                }
+                rows[row + wordsPerRow - 1] <<= pixels;
+            }
+        }
+    }
+
+    public void copyTo(long[] target) {
+        System.arraycopy(rows, 0, target, 0, rows.length);
+    }
+
+    public void copyFrom(long[] source) {
+        System.arraycopy(source, 0, rows, 0, rows.length);
+    }
+
+    public void copyFrom(Framebuffer other) {
+        if (!sameShape(other)) throw new IllegalArgumentException("framebuffer size mismatch");
+        System.arraycopy(other.rows, 0, rows, 0, rows.length);
+    }
+
+    public boolean sameShape(Framebuffer other) {
+        return other.width == width && other.height == height && other.planes == planes;
+    }
+
+    public int wordCount() {
+        return rows.length;
+    }
+
+    public boolean contentEquals(Framebuffer other) {
+        return sameShape(other) && Arrays.equals(rows, other.rows);
+    }
+
+    public long contentHash() {
+        long h = 0xcbf29ce484222325L;
+        for (long word : rows) {
+            h ^= word;
+            h *= 0x100000001b3L;
+            h ^= h >>> 29;
+        }
+        return h;
+    }
+}
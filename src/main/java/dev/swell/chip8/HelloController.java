@@ -3,26 +3,31 @@ package dev.swell.chip8;
 import java.io.File;
 import java.io.IOException;
 import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.ResourceBundle;
 
+import dev.swell.chip8.fx.PixelBufferDisplay;
+import dev.swell.chip8.fx.RomBrowser;
+import dev.swell.chip8.fx.StreamingAudio;
+import dev.swell.chip8.library.RomLibrary;
 import javafx.application.Platform;
 import javafx.event.ActionEvent;
 import javafx.fxml.FXML;
 import javafx.scene.Scene;
 import javafx.scene.canvas.Canvas;
 import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.control.Alert;
 import javafx.scene.control.Button;
+import javafx.scene.control.ButtonType;
 import javafx.scene.control.TextField;
 import javafx.scene.input.KeyCode;
 import javafx.scene.input.KeyEvent;
 import javafx.scene.layout.GridPane;
 import javafx.stage.FileChooser;
-import javafx.util.Pair;
-
-import javax.sound.sampled.LineUnavailableException;
 
 public class HelloController {
 
@@ -46,6 +51,10 @@ public class HelloController {
 
     private String lastFolder;
 
+    private static final Path LIBRARY_ROOT_FILE = RomLibrary.defaultDirectory().resolve("library-root");
+
+    private RomLibrary library;
+
     private GraphicsContext gc;
 
     private final Map<Integer, Button> keyboardButton = new HashMap<>();
@@ -53,33 +62,98 @@ public class HelloController {
 
     private final Chip8 chip8 = new Chip8();
 
-    public HelloController() throws LineUnavailableException {
+    private final InputQueue input = new InputQueue();
+
+    private ReplayRecorder recorder;
+
+    private final EmulationScheduler scheduler = new EmulationScheduler();
+
+    private FrameStreamServer stream;
+
+    public HelloController() {
+        chip8.setKeypad(input);
+        chip8.setAudio(StreamingAudio.openOrNone());
+        chip8.setClock(scheduler);
+        scheduler.setRewind(new RewindBuffer());
     }
 
     @FXML
     void onButtonSelectRomAction(ActionEvent event) throws IOException {
+        File selectedFile = library() != null ? browseLibrary() : chooseFile();
+        if (selectedFile != null) {
+            textFiledSelectedRom.setText(selectedFile.getAbsolutePath());
+            lastFolder = selectedFile.getParent();
+            if (library == null || !selectedFile.toPath().toAbsolutePath().startsWith(library.getRoot())) {
+                setLibraryRoot(Paths.get(lastFolder));
+            }
+            stopRecording();
+            try {
+                chip8.loadRom(selectedFile.getAbsolutePath());
+            } catch (IllegalArgumentException e) {
+                new Alert(Alert.AlertType.ERROR, e.getMessage()).showAndWait();
+                return;
+            }
+            input.clear();
+            chip8.start();
+        }
+
+    }
+
+    private File browseLibrary() {
+        RomBrowser browser = new RomBrowser(scene.getWindow(), library);
+        ButtonType choice = browser.showAndWait().orElse(ButtonType.CANCEL);
+        if (choice == RomBrowser.OPEN) return browser.getSelectedRom().toFile();
+        return choice == RomBrowser.OTHER_FILE ? chooseFile() : null;
+    }
+
+    private File chooseFile() {
         FileChooser fileChooser = new FileChooser();
         fileChooser.setTitle("Open ROM");
         if (lastFolder != null) {
             fileChooser.setInitialDirectory(Paths.get(lastFolder).toFile());
         }
         fileChooser.getExtensionFilters().addAll(
-                new FileChooser.ExtensionFilter("Chip 8 ROM File", "*.ch8"),
+                new FileChooser.ExtensionFilter("Chip 8 ROM File", "*.ch8", "*.c8", "*.sc8", "*.xo8"),
                 new FileChooser.ExtensionFilter("All Files", "*.*"));
-        File selectedFile = fileChooser.showOpenDialog(scene.getWindow());
-        if (selectedFile != null) {
-            textFiledSelectedRom.setText(selectedFile.getAbsolutePath());
-            lastFolder = selectedFile.getParent();
-            chip8.loadRom(selectedFile.getAbsolutePath());
+        return fileChooser.showOpenDialog(scene.getWindow());
+    }
+
+    // a pasta da biblioteca é lembrada entre sessões; o índice dela abre sem varrer nada
+    private RomLibrary library() {
+        if (library != null) return library;
+        try {
+            Path root = Paths.get(Files.readString(LIBRARY_ROOT_FILE).trim());
+            if (Files.isDirectory(root)) {
+                library = RomLibrary.open(root);
+                lastFolder = root.toString();
+            }
+        } catch (IOException | RuntimeException ignored) {
+            // sem biblioteca: o seletor de arquivos é usado
         }
+        return library;
+    }
 
+    private void setLibraryRoot(Path root) {
+        try {
+            library = RomLibrary.open(root);
+            library.refreshAsync();
+            Files.createDirectories(LIBRARY_ROOT_FILE.getParent());
+            Files.writeString(LIBRARY_ROOT_FILE, library.getRoot().toString());
+        } catch (IOException ignored) {
+            // a biblioteca vale só para esta sessão
+        }
     }
 
     @FXML
     void initialize() throws IOException {
+        // -Dchip8.stream.port=8088 transmite a tela para http://localhost:8088/
+        String streamPort = System.getProperty("chip8.stream.port");
+        if (streamPort != null) stream = FrameStreamServer.open(Integer.parseInt(streamPort));
         Platform.runLater(() -> {
             scene = canvasDisplay.getScene();
-            chip8.setDisplay(this.canvasDisplay);
+            PixelBufferDisplay display = new PixelBufferDisplay(this.canvasDisplay);
+            chip8.setDisplay(stream != null ? display.andThen(stream) : display);
+            EmulatorMetrics.register(chip8, scheduler, display.getRenderTimer());
             setupKeyboardUI();
             setKeyHandlers();
         });
@@ -126,13 +200,11 @@ public class HelloController {
 
     private void sendKeyAction(int key, ActionKeyState action) {
         if (!chip8.IsStarted() || key < 0) return;
-      //  IO.println(String.format("[%s] %s", key, action));
+        // a fila ignora repetições do teclado (press de tecla já pressionada)
         if (action == ActionKeyState.PRESS) {
-            setButtonAsPressed(key);
-            chip8.sendKeyPress(key);
+            if (input.press(key)) setButtonAsPressed(key);
         } else if (action == ActionKeyState.RELEASE) {
-            chip8.sendKeyRelease(key);
-            setButtonAsReleased(key);
+            if (input.release(key)) setButtonAsReleased(key);
         }
     }
 
@@ -146,25 +218,50 @@ public class HelloController {
         }
     }
 
-    private Pair<KeyCode, ActionKeyState> lastAction;
-
     private void keyPressed(KeyEvent event) {
-        if (lastAction != null && lastAction.getValue() == ActionKeyState.PRESS) {
-            return;
+        switch (event.getCode()) {
+            case BACK_SPACE -> scheduler.setRewinding(true);
+            case F9 -> toggleRecording();
+            default -> sendKeyAction(mapKey(event.getCode()), ActionKeyState.PRESS);
         }
-
-        sendKeyAction(mapKey(event.getCode()), ActionKeyState.PRESS);
-        lastAction = new Pair<>(event.getCode(), ActionKeyState.PRESS);
-        IO.println("PRESS: " + lastAction);
     }
 
     private void keyReleased(KeyEvent event) {
-        if (lastAction == null || (lastAction.getKey() != event.getCode())) {
+        if (event.getCode() == KeyCode.BACK_SPACE) {
+            scheduler.setRewinding(false);
             return;
         }
-
         sendKeyAction(mapKey(event.getCode()), ActionKeyState.RELEASE);
-        lastAction = new Pair<>(event.getCode(), ActionKeyState.RELEASE);
-        IO.println("RELEASE: " + lastAction);
+    }
+
+    // F9: grava a sessão num arquivo de replay ao lado das ROMs
+    private void toggleRecording() {
+        if (recorder != null) {
+            stopRecording();
+            return;
+        }
+        if (!chip8.IsStarted()) return;
+        Path folder = Paths.get(lastFolder != null ? lastFolder : System.getProperty("user.dir"));
+        try {
+            recorder = ReplayRecorder.open(folder.resolve("session-" + System.currentTimeMillis() + ".c8replay"));
+            chip8.setRecorder(recorder);
+        } catch (IOException e) {
+            recorder = null;
+        }
+    }
+
+    // o recorder fecha com a emulação parada, para o registro final descrever o último quadro gravado
+    private void stopRecording() {
+        if (recorder == null) return;
+        boolean running = chip8.IsStarted();
+        chip8.stop();
+        chip8.setRecorder(null);
+        try {
+            recorder.close();
+        } catch (IOException ignored) {
+            // o que foi gravado até a falha continua reproduzível, só sem o registro final
+        }
+        recorder = null;
+        if (running) chip8.start();
     }
 }
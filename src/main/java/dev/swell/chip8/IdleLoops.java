@@ -0,0 +1,115 @@
+package dev.swell.chip8;
+
+/**
+ * Reconhece laços que só esperam e avança o resto do orçamento do quadro de uma vez, com o mesmo efeito (pc,
+ * registradores, ciclos e contagem por operação) de executá-los instrução a instrução:
+ * <ul>
+ *     <li>{@code FX07 / 3XKK ou 4XKK / 1NNN} voltando ao FX07: o delay timer só muda entre quadros, então se o
+ *     teste não sai do laço agora, não sai até o fim do quadro;</li>
+ *     <li>{@code FX0A} sem tecla pressionada, que reexecuta a si mesmo ({@code pc -= 2});</li>
+ *     <li>{@code 1NNN} saltando para si mesmo.</li>
+ * </ul>
+ * O orçamento já vem cortado no próximo evento de teclado, então nenhuma tecla muda no meio do avanço.
+ */
+final class IdleLoops {
+
+    private IdleLoops() {
+    }
+
+    /**
+     * Retorna quantas instruções avançou, ou 0 se o {@code pc} não está num laço de espera que siga girando.
+     */
+    static int fastForward(Chip8 c, int budget) {
+        int pc = c.pc;
+        int word = word(c.memory, pc);
+        if (word < 0) return 0;
+        if (word == (0x1000 | pc)) {
+            c.operationCounts[Opcode.JP] += budget;
+            c.cycles += budget;
+            return budget;
+        }
+        if (Opcode.operation(word) == Opcode.LD_VX_K) {
+            if (c.keys != 0) return 0;
+            c.operationCounts[Opcode.LD_VX_K] += budget;
+            c.cycles += budget;
+            return budget;
+        }
+        // o pc pode estar em qualquer uma das três instruções da espera pelo timer
+        for (int offset = 0; offset < 3; offset++) {
+            int start = pc - 2 * offset;
+            if (isTimerWait(c.memory, start)) return timerWait(c, start, offset, budget);
+        }
+        return 0;
+    }
+
+    /**
+     * Parado em FX0A sem tecla ou num salto para si mesmo: enquanto nenhuma tecla chegar, cada quadro só soma ciclos.
+     */
+    static boolean isWaitingForever(Chip8 c) {
+        int word = word(c.memory, c.pc);
+        if (word < 0) return false;
+        return word == (0x1000 | c.pc) || (Opcode.operation(word) == Opcode.LD_VX_K && c.keys == 0);
+    }
+
+    /**
+     * Avança {@code instructions} instruções de uma espera de {@link #isWaitingForever}.
+     */
+    static void skip(Chip8 c, long instructions) {
+        int operation = Opcode.operation(word(c.memory, c.pc));
+        c.operationCounts[operation] += instructions;
+        c.cycles += instructions;
+    }
+
+    private static boolean isTimerWait(byte[] memory, int start) {
+        int load = word(memory, start);
+        int test = word(memory, start + 2);
+        if (load < 0 || test < 0 || Opcode.operation(load) != Opcode.LD_VX_DT) return false;
+        int operation = Opcode.operation(test);
+        return (operation == Opcode.SE_VX_KK || operation == Opcode.SNE_VX_KK) && Opcode.x(test) == Opcode.x(load)
+                && word(memory, start + 4) == (0x1000 | start);
+    }
+
+    private static int timerWait(Chip8 c, int start, int offset, int budget) {
+        int load = word(c.memory, start);
+        int test = word(c.memory, start + 2);
+        int x = Opcode.x(load);
+        int kk = Opcode.kk(test);
+        int testOperation = Opcode.operation(test);
+        boolean exitsOnEqual = testOperation == Opcode.SE_VX_KK;
+        int done = 0;
+
+        // termina a volta atual, uma instrução por vez, até voltar ao FX07
+        if (offset == 1) {
+            if (((c.V[x] & 0xFF) == kk) == exitsOnEqual) return 0;
+            c.operationCounts[testOperation]++;
+            c.pc = start + 4;
+            c.cycles++;
+            if (++done == budget) return done;
+            offset = 2;
+        }
+        if (offset == 2) {
+            c.operationCounts[Opcode.JP]++;
+            c.pc = start;
+            c.cycles++;
+            if (++done == budget) return done;
+        }
+
+        // no FX07: se o teste não sai com o valor atual do timer, todo o resto gira no laço
+        if ((c.delayTimer == kk) == exitsOnEqual) return done;
+        int rest = budget - done;
+        int loops = rest / 3;
+        int partial = rest % 3;
+        c.V[x] = (byte) c.delayTimer;
+        c.operationCounts[Opcode.LD_VX_DT] += loops + (partial >= 1 ? 1 : 0);
+        c.operationCounts[testOperation] += loops + (partial >= 2 ? 1 : 0);
+        c.operationCounts[Opcode.JP] += loops;
+        c.pc = start + 2 * partial;
+        c.cycles += rest;
+        return budget;
+    }
+
+    private static int word(byte[] memory, int address) {
+        if (address < 0 || address + 1 >= memory.length) return -1;
+        return (memory[address] & 0xFF) << 8 | (memory[address + 1] & 0xFF);
+    }
+}
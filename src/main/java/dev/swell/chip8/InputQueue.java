@@ -0,0 +1,93 @@
+package dev.swell.chip8;
+
+/**
+ * Teclado alimentado por uma fila SPSC sem locks: a thread da interface (ou o player de replay) produz
+ * estados das teclas marcados com o ciclo em que valem, e a thread da emulação os consome entre instruções.
+ * Eventos da interface usam {@link #IMMEDIATE} e entram na próxima fronteira que a emulação verificar; o
+ * ciclo em que de fato foram aplicados é o que {@link ReplayRecorder} grava.
+ * <p>
+ * Cada entrada carrega a máscara inteira, de modo que o consumidor só precisa da última entrada vencida.
+ * Com a fila cheia (emulação parada), {@code offer} recusa a entrada.
+ */
+public class InputQueue implements Keypad {
+
+    public static final long IMMEDIATE = Long.MIN_VALUE;
+
+    private static final int CAPACITY = 256; // potência de 2
+
+    private final long[] cycles = new long[CAPACITY];
+    private final int[] masks = new int[CAPACITY];
+    private volatile long written = 0;
+    private volatile long read = 0;
+
+    private volatile Runnable wakeup;
+
+    private int producerMask = 0; // só a thread produtora
+    private int mask = 0;         // só a thread consumidora
+
+    /**
+     * Retorna false se a tecla já estava pressionada (repetição do teclado) ou se a fila está cheia.
+     */
+    public boolean press(int key) {
+        if (key < 0 || key > 0xF || (producerMask >>> key & 1) != 0) return false;
+        return offer(IMMEDIATE, producerMask | 1 << key);
+    }
+
+    public boolean release(int key) {
+        if (key < 0 || key > 0xF || (producerMask >>> key & 1) == 0) return false;
+        return offer(IMMEDIATE, producerMask & ~(1 << key));
+    }
+
+    public void clear() {
+        if (producerMask != 0) offer(IMMEDIATE, 0);
+    }
+
+    /**
+     * Enfileira o estado {@code keys} para valer a partir do ciclo {@code cycle}. Os ciclos devem ser não
+     * decrescentes.
+     */
+    public boolean offer(long cycle, int keys) {
+        long w = written;
+        if (w - read >= CAPACITY) return false;
+        int slot = (int) (w & (CAPACITY - 1));
+        cycles[slot] = cycle;
+        masks[slot] = keys & 0xFFFF;
+        producerMask = keys & 0xFFFF;
+        written = w + 1;
+        Runnable wakeup = this.wakeup;
+        if (wakeup != null) wakeup.run();
+        return true;
+    }
+
+    @Override
+    public int poll() {
+        return poll(Long.MAX_VALUE);
+    }
+
+    @Override
+    public int poll(long cycle) {
+        long r = read;
+        long w = written;
+        while (r < w) {
+            int slot = (int) (r & (CAPACITY - 1));
+            if (cycles[slot] > cycle) break;
+            mask = masks[slot];
+            r++;
+        }
+        read = r;
+        return mask;
+    }
+
+    @Override
+    public boolean setWakeup(Runnable wakeup) {
+        this.wakeup = wakeup;
+        return true;
+    }
+
+    @Override
+    public long nextEventCycle() {
+        long r = read;
+        if (r == written) return Long.MAX_VALUE;
+        return cycles[(int) (r & (CAPACITY - 1))];
+    }
+}
@@ -0,0 +1,16 @@
+package dev.swell.chip8;
+
+/**
+ * Motor de referência: busca, decodifica e executa uma instrução por vez com {@link Chip8#cycle()}.
+ */
+public class Interpreter implements ExecutionEngine {
+
+    @Override
+    public int execute(Chip8 chip8, int budget) {
+        for (int i = 0; i < budget; i++) {
+            chip8.cycle();
+            if (chip8.isFaulted()) return i + 1;
+        }
+        return budget;
+    }
+}
@@ -0,0 +1,25 @@
+package dev.swell.chip8;
+
+public class KeyState implements Keypad {
+
+    private volatile int mask = 0;
+
+    public void press(int key) {
+        if (key < 0 || key > 0xF) return;
+        mask |= 1 << key;
+    }
+
+    public void release(int key) {
+        if (key < 0 || key > 0xF) return;
+        mask &= ~(1 << key);
+    }
+
+    public void clear() {
+        mask = 0;
+    }
+
+    @Override
+    public int poll() {
+        return mask;
+    }
+}
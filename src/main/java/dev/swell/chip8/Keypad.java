@@ -0,0 +1,34 @@
+package dev.swell.chip8;
+
+public interface Keypad {
+
+    Keypad NONE = () -> 0;
+
+    /**
+     * Estado atual das 16 teclas como bitmask (bit {@code n} = tecla {@code n}).
+     */
+    int poll();
+
+    /**
+     * Estado das teclas no ciclo {@code cycle}; teclados com eventos datados aplicam aqui os que já venceram.
+     */
+    default int poll(long cycle) {
+        return poll();
+    }
+
+    /**
+     * Ciclo do próximo evento já enfileirado, ou {@link Long#MAX_VALUE}. A emulação para nesse ciclo (entre
+     * duas instruções) e chama {@link #poll(long)} de novo.
+     */
+    default long nextEventCycle() {
+        return Long.MAX_VALUE;
+    }
+
+    /**
+     * Registra quem acordar quando um evento chegar (chamado na thread que o produz); retorna false se este
+     * teclado não avisa, e aí quem espera precisa consultá-lo.
+     */
+    default boolean setWakeup(Runnable wakeup) {
+        return false;
+    }
+}
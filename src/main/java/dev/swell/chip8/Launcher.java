@@ -1,9 +1,46 @@
 package dev.swell.chip8;
 
-import javafx.application.Application;
+import dev.swell.chip8.batch.BatchEnv;
+import dev.swell.chip8.batch.RomFarm;
+import dev.swell.chip8.library.RomLibrary;
 
+import java.util.Arrays;
+
+/**
+ * Ponto de entrada: subcomandos headless ou a janela. Nada aqui referencia {@code javafx.*}, então os
+ * subcomandos não carregam o toolkit.
+ */
 public class Launcher {
-    static void main(String[] args) {
-        Application.launch(HelloApplication.class, args);
+    static void main(String[] args) throws Exception {
+        if (args.length > 0 && args[0].equals("run")) {
+            System.exit(RomRunner.main(Arrays.asList(args).subList(1, args.length)));
+        }
+        if (args.length > 0 && args[0].equals("batch")) {
+            System.exit(RomFarm.main(Arrays.asList(args).subList(1, args.length)));
+        }
+        if (args.length > 0 && args[0].equals("trace")) {
+            System.exit(TraceDecoder.main(Arrays.asList(args).subList(1, args.length)));
+        }
+        if (args.length > 0 && args[0].equals("replay")) {
+            System.exit(Replay.main(Arrays.asList(args).subList(1, args.length)));
+        }
+        if (args.length > 0 && args[0].equals("env")) {
+            // a Vector API é opcional no módulo: sem ela carregar o BatchEnv falharia com NoClassDefFoundError
+            if (ModuleLayer.boot().findModule("jdk.incubator.vector").isEmpty()) {
+                IO.println("env needs the Vector API: run java with --add-modules jdk.incubator.vector");
+                System.exit(2);
+            }
+            System.exit(BatchEnv.main(Arrays.asList(args).subList(1, args.length)));
+        }
+        if (args.length > 0 && args[0].equals("stream")) {
+            System.exit(FrameStreamServer.main(Arrays.asList(args).subList(1, args.length)));
+        }
+        if (args.length > 0 && args[0].equals("lockstep")) {
+            System.exit(Lockstep.main(Arrays.asList(args).subList(1, args.length)));
+        }
+        if (args.length > 0 && args[0].equals("library")) {
+            System.exit(RomLibrary.main(Arrays.asList(args).subList(1, args.length)));
+        }
+        HelloApplication.main(args);
     }
 }
@@ -0,0 +1,287 @@
+package dev.swell.chip8;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Validação diferencial: roda a mesma ROM, com a mesma semente e as mesmas teclas, no interpretador de referência
+ * ({@link Chip8#cycle()} por instrução, gravando um trace) e num motor candidato, e compara pc, I, sp, V, pilha,
+ * temporizadores, tela e memória depois de cada fatia de até {@code stride} instruções. A fatia deixa o candidato
+ * rodar blocos inteiros; quando algo diverge, a execução é refeita com fatias de uma instrução para apontar a
+ * instrução exata (se a divergência só aparece com fatias maiores, o relatório fica no nível da fatia).
+ * <p>
+ * O candidato passa pelo mesmo caminho de {@code runFrame}, inclusive o avanço dos laços de espera
+ * ({@link IdleLoops}), que a referência não usa.
+ */
+public final class Lockstep {
+
+    public static final int DEFAULT_FRAMES = 120;
+    public static final int DEFAULT_STRIDE = 64;
+    public static final int DEFAULT_WINDOW = 16;
+    public static final long SEED = 0x5eed_c8L;
+
+    /**
+     * Primeira diferença entre referência e candidato; {@code stride} 1 quer dizer que a última linha do trace é
+     * a instrução que divergiu.
+     */
+    public record Divergence(String engine, int frame, long cycle, int stride, List<String> differences,
+                             List<String> trace) {
+
+        public String report() {
+            StringBuilder out = new StringBuilder();
+            out.append(String.format("%s diverged at cycle %d (frame %d)%s:%n", engine, cycle, frame,
+                    stride == 1 ? "" : ", within the last " + stride + " instructions"));
+            differences.forEach(d -> out.append("  ").append(d).append('\n'));
+            out.append("reference trace:\n");
+            trace.forEach(line -> out.append("  ").append(line).append('\n'));
+            return out.toString();
+        }
+    }
+
+    public record Result(String engine, int frames, long instructions, Divergence divergence) {
+
+        public boolean matches() {
+            return divergence == null;
+        }
+    }
+
+    // teclas iguais para as duas máquinas: uma máscara a cada KEY_PERIOD quadros, função só da semente e do ciclo
+    private record ScriptedKeys(long seed, long period) implements Keypad {
+
+        @Override
+        public int poll() {
+            return 0;
+        }
+
+        @Override
+        public int poll(long cycle) {
+            long h = mix(seed + cycle / period);
+            return (h & 3) == 0 ? 1 << (int) (h >>> 2 & 0xF) : 0;
+        }
+    }
+
+    private static final int KEY_PERIOD = 8;
+
+    private int frames = DEFAULT_FRAMES;
+    private int instructionsPerFrame = Chip8.DEFAULT_INSTRUCTIONS_PER_FRAME;
+    private int stride = DEFAULT_STRIDE;
+    private int window = DEFAULT_WINDOW;
+    private long seed = SEED;
+
+    public Lockstep frames(int frames) {
+        this.frames = frames;
+        return this;
+    }
+
+    public Lockstep instructionsPerFrame(int instructionsPerFrame) {
+        this.instructionsPerFrame = instructionsPerFrame;
+        return this;
+    }
+
+    /**
+     * Instruções que o candidato roda entre duas comparações (no máximo o resto do quadro).
+     */
+    public Lockstep stride(int stride) {
+        if (stride <= 0) throw new IllegalArgumentException("stride must be positive");
+        this.stride = stride;
+        return this;
+    }
+
+    /**
+     * Instruções da referência mostradas antes da divergência.
+     */
+    public Lockstep window(int window) {
+        this.window = window;
+        return this;
+    }
+
+    /**
+     * Semente do RND e das teclas roteirizadas.
+     */
+    public Lockstep seed(long seed) {
+        this.seed = seed;
+        return this;
+    }
+
+    public Result run(byte[] rom, EngineType engine) {
+        return run(rom, engine.name(), engine::create);
+    }
+
+    /**
+     * Para motores ainda fora de {@link EngineType}: {@code engine} cria uma instância nova por execução.
+     */
+    public Result run(byte[] rom, String name, Supplier<? extends ExecutionEngine> engine) {
+        long[] instructions = new long[1];
+        int[] framesRun = new int[1];
+        Divergence divergence = compare(rom, name, engine, stride, Long.MAX_VALUE, instructions, framesRun);
+        if (divergence != null && stride > 1) {
+            Divergence exact = compare(rom, name, engine, 1, divergence.cycle(), new long[1], new int[1]);
+            if (exact != null) divergence = exact;
+        }
+        return new Result(name, framesRun[0], instructions[0], divergence);
+    }
+
+    private Divergence compare(byte[] rom, String name, Supplier<? extends ExecutionEngine> engine, int stride,
+                               long until, long[] instructions, int[] framesRun) {
+        TraceRecorder trace = TraceRecorder.inMemory(Math.max(1, window));
+        Chip8 reference = machine(rom, new TracingInterpreter(trace));
+        Chip8 candidate = machine(rom, engine.get());
+        for (int frame = 0; frame < frames && !candidate.isFaulted() && !reference.isFaulted(); frame++) {
+            framesRun[0] = frame + 1;
+            reference.beginFrame(null);
+            candidate.beginFrame(null);
+            int executed = 0;
+            while (executed < instructionsPerFrame && !candidate.isFaulted() && !reference.isFaulted()) {
+                int slice = candidate.execute(Math.min(stride, instructionsPerFrame - executed), null);
+                for (int done = 0; done < slice && !reference.isFaulted(); ) {
+                    done += reference.execute(slice - done, null);
+                }
+                executed += slice;
+                instructions[0] = candidate.cycles;
+                List<String> differences = differences(reference, candidate);
+                if (!differences.isEmpty()) {
+                    return new Divergence(name, frame, reference.cycles, stride, differences, trace.lastLines(window));
+                }
+                if (candidate.cycles >= until) return null;
+            }
+            reference.endFrame(null, instructionsPerFrame, false);
+            candidate.endFrame(null, instructionsPerFrame, false);
+        }
+        return null;
+    }
+
+    private Chip8 machine(byte[] rom, ExecutionEngine engine) {
+        Chip8 chip8 = new Chip8();
+        chip8.setEngine(engine);
+        chip8.setKeypad(new ScriptedKeys(seed, (long) KEY_PERIOD * instructionsPerFrame));
+        chip8.loadRom(rom);
+        chip8.setRandomSeed(seed);
+        return chip8;
+    }
+
+    /**
+     * Uma linha por campo diferente, no formato {@code campo: referência != candidato}.
+     */
+    static List<String> differences(Chip8 reference, Chip8 candidate) {
+        List<String> out = new ArrayList<>();
+        field(out, "cycles", reference.cycles, candidate.cycles);
+        field(out, "pc", reference.pc, candidate.pc);
+        field(out, "I", reference.I, candidate.I);
+        field(out, "sp", reference.sp, candidate.sp);
+        for (int x = 0; x < 16; x++) {
+            field(out, "v" + Character.toUpperCase(Character.forDigit(x, 16)), reference.V[x] & 0xFF, candidate.V[x] & 0xFF);
+        }
+        field(out, "dt", reference.delayTimer, candidate.delayTimer);
+        field(out, "st", reference.soundTimer, candidate.soundTimer);
+        // acima do topo a pilha guarda lixo de chamadas antigas, que nenhuma instrução lê
+        int depth = Math.min(reference.stack.length, Math.max(reference.sp, candidate.sp));
+        for (int level = 0; level < depth; level++) {
+            field(out, "stack[" + level + "]", reference.stack[level], candidate.stack[level]);
+        }
+        field(out, "planes", reference.planeMask, candidate.planeMask);
+        for (int x = 0; x < 16; x++) field(out, "flags[" + x + "]", reference.flags[x], candidate.flags[x]);
+        Framebuffer expected = reference.getFramebuffer();
+        Framebuffer actual = candidate.getFramebuffer();
+        if (!expected.sameShape(actual) || !expected.contentEquals(actual)) {
+            out.add(String.format("screen: %dx%d/%d %016x != %dx%d/%d %016x", expected.getWidth(), expected.getHeight(),
+                    expected.getPlanes(), expected.contentHash(), actual.getWidth(), actual.getHeight(),
+                    actual.getPlanes(), actual.contentHash()));
+        }
+        int address = Arrays.mismatch(reference.memory, candidate.memory);
+        if (address >= 0) {
+            int count = 0;
+            for (int a = address; a < reference.memory.length; a++) if (reference.memory[a] != candidate.memory[a]) count++;
+            out.add(String.format("memory: %d bytes differ, first [%03X] %02X != %02X", count, address,
+                    reference.memory[address] & 0xFF, candidate.memory[address] & 0xFF));
+        }
+        String expectedFault = reference.isFaulted() ? reference.getFault().getClass().getSimpleName() : "none";
+        String actualFault = candidate.isFaulted() ? candidate.getFault().getClass().getSimpleName() : "none";
+        if (!expectedFault.equals(actualFault)) out.add("fault: " + expectedFault + " != " + actualFault);
+        return out;
+    }
+
+    private static void field(List<String> out, String name, long expected, long actual) {
+        if (expected != actual) out.add(String.format("%s: %X != %X", name, expected, actual));
+    }
+
+    static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+
+    /**
+     * {@code lockstep <rom> [--engine TYPE|all] [--frames N] [--ipf N] [--stride N] [--window N] [--seed N]} ou
+     * {@code lockstep --fuzz N [--length N] [--threads N] [--save diretório] ...}: sai com 1 na primeira divergência.
+     */
+    public static int main(List<String> args) throws IOException, InterruptedException {
+        Lockstep lockstep = new Lockstep();
+        RomFuzzer fuzzer = null;
+        List<EngineType> engines = List.of(EngineType.values());
+        Path rom = null;
+        Path save = null;
+        Long seed = null;
+        for (int i = 0; i < args.size(); i++) {
+            String arg = args.get(i);
+            switch (arg) {
+                case "--engine" -> {
+                    String engine = args.get(++i).toUpperCase();
+                    engines = engine.equals("ALL") ? List.of(EngineType.values()) : List.of(EngineType.valueOf(engine));
+                }
+                case "--frames" -> lockstep.frames(Integer.parseInt(args.get(++i)));
+                case "--ipf" -> lockstep.instructionsPerFrame(Integer.parseInt(args.get(++i)));
+                case "--stride" -> lockstep.stride(Integer.parseInt(args.get(++i)));
+                case "--window" -> lockstep.window(Integer.parseInt(args.get(++i)));
+                case "--seed" -> seed = Long.decode(args.get(++i));
+                case "--fuzz" -> fuzzer = (fuzzer != null ? fuzzer : new RomFuzzer()).count(Integer.parseInt(args.get(++i)));
+                case "--length" -> fuzzer = (fuzzer != null ? fuzzer : new RomFuzzer()).length(Integer.parseInt(args.get(++i)));
+                case "--threads" -> fuzzer = (fuzzer != null ? fuzzer : new RomFuzzer()).parallelism(Integer.parseInt(args.get(++i)));
+                case "--save" -> save = Path.of(args.get(++i));
+                default -> rom = Path.of(arg);
+            }
+        }
+        if ((rom == null) == (fuzzer == null)) {
+            IO.println("usage: lockstep <rom> [--engine TYPE|all] [--frames N] [--ipf N] [--stride N] [--window N] [--seed N]\n"
+                    + "       lockstep --fuzz N [--length N] [--threads N] [--save DIR] [--engine TYPE|all] [--frames N] [--ipf N] [--stride N] [--seed N]");
+            return 2;
+        }
+
+        if (seed != null) {
+            lockstep.seed(seed);
+            if (fuzzer != null) fuzzer.seed(seed);
+        }
+
+        if (rom != null) {
+            byte[] bytes = Files.readAllBytes(rom);
+            boolean matches = true;
+            for (EngineType engine : engines) {
+                Result result = lockstep.run(bytes, engine);
+                if (result.matches()) {
+                    IO.println(String.format("%s: ok, %d frames, %d instructions", engine, result.frames(), result.instructions()));
+                } else {
+                    IO.print(result.divergence().report());
+                    matches = false;
+                }
+            }
+            return matches ? 0 : 1;
+        }
+
+        long start = System.nanoTime();
+        List<RomFuzzer.Failure> failures = fuzzer.run(lockstep, engines);
+        for (RomFuzzer.Failure failure : failures) {
+            IO.print("rom seed " + failure.seed() + ": " + failure.result().divergence().report());
+            if (save != null) {
+                Files.createDirectories(save);
+                Files.write(save.resolve(String.format("fuzz-%d-%s.ch8", failure.seed(), failure.result().engine())), failure.rom());
+            }
+        }
+        IO.println(String.format("# %d roms x %d engines, %d divergences, %.1f ms", fuzzer.getCount(), engines.size(),
+                failures.size(), (System.nanoTime() - start) / 1e6));
+        return failures.isEmpty() ? 0 : 1;
+    }
+}
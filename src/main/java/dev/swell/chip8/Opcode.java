@@ -2,7 +2,90 @@ package dev.swell.chip8;
 
 public class Opcode {
 
-    private static final boolean PRINT_DEBUG = false;
+    static final boolean PRINT_DEBUG = false;
+
+    // operações já resolvidas (incluindo sub-opcodes de 0, 8, E e F); NOP cobre as palavras inválidas
+    public static final int NOP = 0;
+    public static final int CLS = 1;
+    public static final int RET = 2;
+    public static final int JP = 3;
+    public static final int CALL = 4;
+    public static final int SE_VX_KK = 5;
+    public static final int SNE_VX_KK = 6;
+    public static final int SE_VX_VY = 7;
+    public static final int LD_VX_KK = 8;
+    public static final int ADD_VX_KK = 9;
+    public static final int LD_VX_VY = 10;
+    public static final int OR = 11;
+    public static final int AND = 12;
+    public static final int XOR = 13;
+    public static final int ADD_VX_VY = 14;
+    public static final int SUB = 15;
+    public static final int SHR = 16;
+    public static final int SUBN = 17;
+    public static final int SHL = 18;
+    public static final int SNE_VX_VY = 19;
+    public static final int LD_I = 20;
+    public static final int JP_V0 = 21;
+    public static final int RND = 22;
+    public static final int DRW = 23;
+    public static final int SKP = 24;
+    public static final int SKNP = 25;
+    public static final int LD_VX_DT = 26;
+    public static final int LD_VX_K = 27;
+    public static final int LD_DT_VX = 28;
+    public static final int LD_ST_VX = 29;
+    public static final int ADD_I_VX = 30;
+    public static final int LD_F_VX = 31;
+    public static final int LD_B_VX = 32;
+    public static final int LD_MEM_VX = 33;
+    public static final int LD_VX_MEM = 34;
+    // XO-CHIP: F002 carrega o padrão de áudio de 16 bytes, FX3A define o pitch
+    public static final int AUDIO = 35;
+    public static final int PITCH = 36;
+    // SUPER-CHIP: rolagens, saída, modos de resolução, fonte grande e flags RPL
+    public static final int SCD = 37;
+    public static final int SCR = 38;
+    public static final int SCL = 39;
+    public static final int EXIT = 40;
+    public static final int LOW = 41;
+    public static final int HIGH = 42;
+    public static final int LD_HF_VX = 43;
+    public static final int LD_R_VX = 44;
+    public static final int LD_VX_R = 45;
+    // XO-CHIP: rolagem para cima, faixas de registradores, I de 16 bits e seleção de planos
+    public static final int SCU = 46;
+    public static final int SAVE_RANGE = 47;
+    public static final int LOAD_RANGE = 48;
+    public static final int LD_I_LONG = 49;
+    public static final int PLANE = 50;
+    public static final int OPERATION_COUNT = 51;
+
+    private static final String[] NAMES = {
+            "NOP", "CLS", "RET", "JP", "CALL", "SE_VX_KK", "SNE_VX_KK", "SE_VX_VY", "LD_VX_KK", "ADD_VX_KK",
+            "LD_VX_VY", "OR", "AND", "XOR", "ADD_VX_VY", "SUB", "SHR", "SUBN", "SHL", "SNE_VX_VY",
+            "LD_I", "JP_V0", "RND", "DRW", "SKP", "SKNP", "LD_VX_DT", "LD_VX_K", "LD_DT_VX", "LD_ST_VX",
+            "ADD_I_VX", "LD_F_VX", "LD_B_VX", "LD_MEM_VX", "LD_VX_MEM", "AUDIO", "PITCH",
+            "SCD", "SCR", "SCL", "EXIT", "LOW", "HIGH", "LD_HF_VX", "LD_R_VX", "LD_VX_R",
+            "SCU", "SAVE_RANGE", "LOAD_RANGE", "LD_I_LONG", "PLANE"
+    };
+
+    // tabela de decodificação para as 65536 palavras, construída uma única vez
+    private static final byte[] OPERATIONS = new byte[0x10000];
+
+    static {
+        // fora dos grupos 0 e F a operação não depende de X: classifica só X = 0 e replica a linha, o que corta
+        // o custo do inicializador (roda interpretado, antes de qualquer JIT) a menos de um quinto
+        for (int high = 0; high < 0x10000; high += 0x1000) {
+            int words = high == 0 || high == 0xF000 ? 0x1000 : 0x100;
+            for (int word = high; word < high + words; word++) {
+                OPERATIONS[word] = (byte) classify(word);
+            }
+            for (int x = words; x < 0x1000; x += 0x100) {
+                System.arraycopy(OPERATIONS, high, OPERATIONS, high + x, 0x100);
+            }
+        }
+    }
 
     private final int opcode;
     private final int nnn;
@@ -23,6 +106,112 @@ public class Opcode {
     }
 
 
+    public static int operation(int word) {
+        return OPERATIONS[word];
+    }
+
+    public static String name(int operation) {
+        return NAMES[operation];
+    }
+
+    public static int x(int word) {
+        return (word >>> 8) & 0xF;
+    }
+
+    public static int y(int word) {
+        return (word >>> 4) & 0xF;
+    }
+
+    public static int n(int word) {
+        return word & 0xF;
+    }
+
+    public static int kk(int word) {
+        return word & 0xFF;
+    }
+
+    public static int nnn(int word) {
+        return word & 0xFFF;
+    }
+
+    private static int classify(int word) {
+        int n = word & 0xF;
+        int kk = word & 0xFF;
+        switch (word & 0xF000) {
+            case 0x0000:
+                if (word == 0x00E0) return CLS;
+                if (word == 0x00EE) return RET;
+                if ((word & 0xFFF0) == 0x00C0) return SCD;
+                if ((word & 0xFFF0) == 0x00D0) return SCU;
+                if (word == 0x00FB) return SCR;
+                if (word == 0x00FC) return SCL;
+                if (word == 0x00FD) return EXIT;
+                if (word == 0x00FE) return LOW;
+                if (word == 0x00FF) return HIGH;
+                return NOP;
+            case 0x1000: return JP;
+            case 0x2000: return CALL;
+            case 0x3000: return SE_VX_KK;
+            case 0x4000: return SNE_VX_KK;
+            case 0x5000:
+                switch (n) {
+                    case 0: return SE_VX_VY;
+                    case 2: return SAVE_RANGE;
+                    case 3: return LOAD_RANGE;
+                    default: return NOP;
+                }
+            case 0x6000: return LD_VX_KK;
+            case 0x7000: return ADD_VX_KK;
+            case 0x8000:
+                switch (n) {
+                    case 0: return LD_VX_VY;
+                    case 1: return OR;
+                    case 2: return AND;
+                    case 3: return XOR;
+                    case 4: return ADD_VX_VY;
+                    case 5: return SUB;
+                    case 6: return SHR;
+                    case 7: return SUBN;
+                    case 0xE: return SHL;
+                    default: return NOP;
+                }
+            case 0x9000: return n == 0 ? SNE_VX_VY : NOP;
+            case 0xA000: return LD_I;
+            case 0xB000: return JP_V0;
+            case 0xC000: return RND;
+            case 0xD000: return DRW;
+            case 0xE000:
+                if (kk == 0x9E) return SKP;
+                if (kk == 0xA1) return SKNP;
+                return NOP;
+            default:
+                switch (kk) {
+                    case 0x00: return word == 0xF000 ? LD_I_LONG : NOP;
+                    case 0x01: return PLANE;
+                    case 0x02: return word == 0xF002 ? AUDIO : NOP;
+                    case 0x07: return LD_VX_DT;
+                    case 0x0A: return LD_VX_K;
+                    case 0x15: return LD_DT_VX;
+                    case 0x18: return LD_ST_VX;
+                    case 0x1E: return ADD_I_VX;
+                    case 0x29: return LD_F_VX;
+                    case 0x30: return LD_HF_VX;
+                    case 0x3A: return PITCH;
+                    case 0x33: return LD_B_VX;
+                    case 0x55: return LD_MEM_VX;
+                    case 0x65: return LD_VX_MEM;
+                    case 0x75: return LD_R_VX;
+                    case 0x85: return LD_VX_R;
+                    default: return NOP;
+                }
+        }
+    }
+
+    static void debug(int word) {
+        if (!PRINT_DEBUG) return;
+        new Opcode(word).debug();
+    }
+
     public int getOpcode() {
         return opcode;
     }
@@ -53,38 +242,89 @@ public class Opcode {
 
     public void debug() {
         if (!PRINT_DEBUG) return;
+        IO.println(mnemonic());
+    }
+
+    /**
+     * A linha que {@link #debug()} imprime para esta instrução.
+     */
+    public String mnemonic() {
         switch (instruction) {
             case 0:
                 switch (opcode) {
-                    case 0x0e0: IO.println(String.format("[%x] CLS", opcode)); break;
-                    case 0x0ee: IO.println(String.format("[%x] RET", opcode)); break;
+                    case 0x0e0: return String.format("[%x] CLS", opcode);
+                    case 0x0ee: return String.format("[%x] RET", opcode);
+                    case 0x0fb: return String.format("[%x] SCR", opcode);
+                    case 0x0fc: return String.format("[%x] SCL", opcode);
+                    case 0x0fd: return String.format("[%x] EXIT", opcode);
+                    case 0x0fe: return String.format("[%x] LOW", opcode);
+                    case 0x0ff: return String.format("[%x] HIGH", opcode);
+                }
+                switch (opcode & 0xfff0) {
+                    case 0x0c0: return String.format("[%x] SCD %x", opcode, n);
+                    case 0x0d0: return String.format("[%x] SCU %x", opcode, n);
+                    default: return String.format("[%x] SYS %x", opcode, nnn);
+                }
+            case 0x1000: return String.format("[%x] JP %x", opcode, nnn);
+            case 0x2000: return String.format("[%x] CALL %x", opcode, nnn);
+            case 0x3000: return String.format("[%x] IF V[%x], %x", opcode, x,  kk);
+            case 0x4000: return String.format("[%x] SNE V[%x], %x", opcode, x,  kk);
+            case 0x5000: {
+                switch (n) {
+                    case 2: return String.format("[%x] LD [I], V[%x]-V[%x]", opcode, x,  y);
+                    case 3: return String.format("[%x] LD V[%x]-V[%x], [I]", opcode, x,  y);
+                    default: return String.format("[%x] IF V[%x], V[%x]", opcode, x,  y);
                 }
-                break;
-            case 0x1000: IO.println(String.format("[%x] JP %x", opcode, nnn)); break;
-            case 0x2000: IO.println(String.format("[%x] CALL %x", opcode, nnn)); break;
-            case 0x3000: IO.println(String.format("[%x] IF V[%x], %x", opcode, x,  kk)); break;
-            case 0x4000: IO.println(String.format("[%x] SNE V[%x], %x", opcode, x,  kk)); break;
-            case 0x5000: IO.println(String.format("[%x] IF V[%x], V[%x]", opcode, x,  y)); break;
-            case 0x6000: IO.println(String.format("[%x] LD V[%x], %x", opcode, x,  kk)); break;
-            case 0x7000: IO.println(String.format("[%x] ADD V[%x], %x", opcode, x,  kk)); break;
+            }
+            case 0x6000: return String.format("[%x] LD V[%x], %x", opcode, x,  kk);
+            case 0x7000: return String.format("[%x] ADD V[%x], %x", opcode, x,  kk);
             case 0x8000: {
                 switch (n) {
-                    case 0: IO.println(String.format("[%x] LD V[%x], V[%x]", opcode, x,  y)); break;
-                    case 1: IO.println(String.format("[%x] OR V[%x], V[%x]", opcode, x,  y)); break;
-                    case 2: IO.println(String.format("[%x] AND V[%x], V[%x]", opcode, x,  y)); break;
-                    case 3: IO.println(String.format("[%x] XOR V[%x], V[%x]", opcode, x,  y)); break;
-                    case 4: IO.println(String.format("[%x] AND V[%x], V[%x], VF=carry", opcode, x,  y)); break;
-                    case 5: IO.println(String.format("[%x] SUB V[%x], V[%x], VF = NOT 0", opcode, x,  y)); break;
-                    case 6: IO.println(String.format("[%x] SHR V[%x], V[%x]", opcode, x,  y)); break;
-                    case 7: IO.println(String.format("[%x] SUBN V[%x], V[%x]", opcode, x,  y)); break;
-                    case 0xE: IO.println(String.format("[%x] SHL V[%x], V[%x]", opcode, x,  y)); break;
-                    default: IO.println(String.format("[%x] V[%x], V[%x] NOT IMPLEMENTED", opcode, x,  y)); break;
+                    case 0: return String.format("[%x] LD V[%x], V[%x]", opcode, x,  y);
+                    case 1: return String.format("[%x] OR V[%x], V[%x]", opcode, x,  y);
+                    case 2: return String.format("[%x] AND V[%x], V[%x]", opcode, x,  y);
+                    case 3: return String.format("[%x] XOR V[%x], V[%x]", opcode, x,  y);
+                    case 4: return String.format("[%x] ADD V[%x], V[%x], VF=carry", opcode, x,  y);
+                    case 5: return String.format("[%x] SUB V[%x], V[%x], VF = NOT 0", opcode, x,  y);
+                    case 6: return String.format("[%x] SHR V[%x], V[%x]", opcode, x,  y);
+                    case 7: return String.format("[%x] SUBN V[%x], V[%x]", opcode, x,  y);
+                    case 0xE: return String.format("[%x] SHL V[%x], V[%x]", opcode, x,  y);
+                    default: return String.format("[%x] V[%x], V[%x] NOT IMPLEMENTED", opcode, x,  y);
                 }
-                break;
             }
-            default:
-                IO.println(String.format("[ %x ] NOT IMPLEMENTED.",  opcode));
+            case 0x9000: return String.format("[%x] SNE V[%x], V[%x]", opcode, x,  y);
+            case 0xA000: return String.format("[%x] LD I, %x", opcode, nnn);
+            case 0xB000: return String.format("[%x] JP V[0], %x", opcode, nnn);
+            case 0xC000: return String.format("[%x] RND V[%x], %x", opcode, x,  kk);
+            case 0xD000: return String.format("[%x] DRW V[%x], V[%x], %x", opcode, x,  y, n);
+            case 0xE000: {
+                switch (kk) {
+                    case 0x9E: return String.format("[%x] SKP V[%x]", opcode, x);
+                    case 0xA1: return String.format("[%x] SKNP V[%x]", opcode, x);
+                    default: return String.format("[ %x ] NOT IMPLEMENTED.",  opcode);
+                }
+            }
+            default: {
+                switch (kk) {
+                    case 0x00: if (x == 0) return String.format("[%x] LD I, NNNN", opcode); break;
+                    case 0x01: return String.format("[%x] PLANE %x", opcode, x);
+                    case 0x02: if (x == 0) return String.format("[%x] AUDIO", opcode); break;
+                    case 0x07: return String.format("[%x] LD V[%x], DT", opcode, x);
+                    case 0x0A: return String.format("[%x] LD V[%x], K", opcode, x);
+                    case 0x15: return String.format("[%x] LD DT, V[%x]", opcode, x);
+                    case 0x18: return String.format("[%x] LD ST, V[%x]", opcode, x);
+                    case 0x1E: return String.format("[%x] ADD I, V[%x]", opcode, x);
+                    case 0x29: return String.format("[%x] LD F, V[%x]", opcode, x);
+                    case 0x30: return String.format("[%x] LD HF, V[%x]", opcode, x);
+                    case 0x33: return String.format("[%x] LD B, V[%x]", opcode, x);
+                    case 0x3A: return String.format("[%x] PITCH V[%x]", opcode, x);
+                    case 0x55: return String.format("[%x] LD [I], V[%x]", opcode, x);
+                    case 0x65: return String.format("[%x] LD V[%x], [I]", opcode, x);
+                    case 0x75: return String.format("[%x] LD R, V[%x]", opcode, x);
+                    case 0x85: return String.format("[%x] LD V[%x], R", opcode, x);
+                }
+                return String.format("[ %x ] NOT IMPLEMENTED.",  opcode);
+            }
         }
-
     }
 }
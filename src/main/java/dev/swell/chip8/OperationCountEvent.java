@@ -0,0 +1,22 @@
+package dev.swell.chip8;
+
+import jdk.jfr.Category;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Period;
+
+/**
+ * Evento JFR periódico com o total de execuções de uma operação; emitido por {@link EmulatorMetrics}.
+ */
+@Name("dev.swell.chip8.OperationCount")
+@Label("Operation Count")
+@Category("CHIP-8")
+@Period("1 s")
+class OperationCountEvent extends jdk.jfr.Event {
+
+    @Label("Operation")
+    String operation;
+
+    @Label("Count")
+    long count;
+}
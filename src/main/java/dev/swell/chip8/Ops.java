@@ -0,0 +1,308 @@
+package dev.swell.chip8;
+
+/**
+ * Semântica de cada operação decodificada, compartilhada por todos os motores de execução.
+ * Todas recebem a palavra completa e assumem que {@code pc} já aponta para a instrução seguinte.
+ */
+final class Ops {
+
+    // nome do método de cada operação, indexado pelas constantes de Opcode (usado pelo recompilador)
+    static final String[] METHOD_NAMES = {
+            "nop", "cls", "ret", "jp", "call", "seVxKk", "sneVxKk", "seVxVy", "ldVxKk", "addVxKk",
+            "ldVxVy", "or", "and", "xor", "addVxVy", "sub", "shr", "subn", "shl", "sneVxVy",
+            "ldI", "jpV0", "rnd", "drw", "skp", "sknp", "ldVxDt", "ldVxK", "ldDtVx", "ldStVx",
+            "addIVx", "ldFVx", "ldBVx", "ldMemVx", "ldVxMem", "audio", "pitch",
+            "scd", "scr", "scl", "exit", "low", "high", "ldHfVx", "ldRVx", "ldVxR",
+            "scu", "saveRange", "loadRange", "ldILong", "plane"
+    };
+
+    private Ops() {
+    }
+
+    static void nop(Chip8 c, int op) {
+    }
+
+    static void cls(Chip8 c, int op) {
+        c.gfx.clear(c.planeMask);
+        c.drawFlag = true;
+    }
+
+    static void ret(Chip8 c, int op) {
+        c.sp--;
+        c.pc = c.stack[c.sp];
+    }
+
+    static void jp(Chip8 c, int op) {
+        c.pc = Opcode.nnn(op);
+    }
+
+    static void call(Chip8 c, int op) {
+        c.stack[c.sp] = c.pc;
+        c.sp++;
+        c.pc = Opcode.nnn(op);
+    }
+
+    static void seVxKk(Chip8 c, int op) {
+        if ((c.V[Opcode.x(op)] & 0xff) == Opcode.kk(op)) skip(c);
+    }
+
+    static void sneVxKk(Chip8 c, int op) {
+        if ((c.V[Opcode.x(op)] & 0xff) != Opcode.kk(op)) skip(c);
+    }
+
+    static void seVxVy(Chip8 c, int op) {
+        if (c.V[Opcode.x(op)] == c.V[Opcode.y(op)]) skip(c);
+    }
+
+    // pula a próxima instrução; F000 NNNN ocupa 4 bytes
+    private static void skip(Chip8 c) {
+        int pc = c.pc;
+        boolean longLoad = pc + 1 < c.memory.length && c.memory[pc] == (byte) 0xF0 && c.memory[pc + 1] == 0;
+        c.pc = pc + (longLoad ? 4 : 2);
+    }
+
+    static void ldVxKk(Chip8 c, int op) {
+        c.V[Opcode.x(op)] = (byte) Opcode.kk(op);
+    }
+
+    static void addVxKk(Chip8 c, int op) {
+        c.V[Opcode.x(op)] = (byte) ((c.V[Opcode.x(op)] & 0xff) + Opcode.kk(op));
+    }
+
+    static void ldVxVy(Chip8 c, int op) {
+        c.V[Opcode.x(op)] = c.V[Opcode.y(op)];
+    }
+
+    static void or(Chip8 c, int op) {
+        c.V[Opcode.x(op)] = (byte) (c.V[Opcode.x(op)] | c.V[Opcode.y(op)]);
+    }
+
+    static void and(Chip8 c, int op) {
+        c.V[Opcode.x(op)] = (byte) (c.V[Opcode.x(op)] & c.V[Opcode.y(op)]);
+    }
+
+    static void xor(Chip8 c, int op) {
+        c.V[Opcode.x(op)] = (byte) (c.V[Opcode.x(op)] ^ c.V[Opcode.y(op)]);
+    }
+
+    static void addVxVy(Chip8 c, int op) {
+        int x = Opcode.x(op);
+        int sum = (c.V[x] & 0xFF) + (c.V[Opcode.y(op)] & 0xFF);
+        c.V[0xF] = (byte) ((sum > 0xFF) ? 1 : 0);
+        c.V[x] = (byte) sum;
+    }
+
+    static void sub(Chip8 c, int op) {
+        int x = Opcode.x(op);
+        int vx = c.V[x] & 0xFF;
+        int vy = c.V[Opcode.y(op)] & 0xFF;
+        c.V[0xF] = (byte) (vx > vy ? 1 : 0);
+        c.V[x] = (byte) (vx - vy);
+    }
+
+    static void shr(Chip8 c, int op) {
+        int x = Opcode.x(op);
+        c.V[0xF] = (byte) (c.V[x] & 0x01);
+        c.V[x] = (byte) ((c.V[x] & 0xFF) >> 1);
+    }
+
+    static void subn(Chip8 c, int op) {
+        int x = Opcode.x(op);
+        int vx = c.V[x] & 0xFF;
+        int vy = c.V[Opcode.y(op)] & 0xFF;
+        c.V[0xF] = (byte) (vy > vx ? 1 : 0);
+        c.V[x] = (byte) (vy - vx);
+    }
+
+    static void shl(Chip8 c, int op) {
+        int x = Opcode.x(op);
+        c.V[0xF] = (byte) ((c.V[x] & 0x80) >> 7);
+        c.V[x] = (byte) ((c.V[x] & 0xFF) << 1);
+    }
+
+    static void sneVxVy(Chip8 c, int op) {
+        if (c.V[Opcode.x(op)] != c.V[Opcode.y(op)]) skip(c);
+    }
+
+    static void ldI(Chip8 c, int op) {
+        c.I = Opcode.nnn(op);
+    }
+
+    static void jpV0(Chip8 c, int op) {
+        c.pc = Opcode.nnn(op) + (c.V[0] & 0xff);
+    }
+
+    static void rnd(Chip8 c, int op) {
+        c.V[Opcode.x(op)] = (byte) (c.nextRandomByte() & Opcode.kk(op));
+    }
+
+    // com mais de um plano selecionado, cada plano lê o seu sprite logo após o do anterior
+    static void drw(Chip8 c, int op) {
+        int x = c.V[Opcode.x(op)] & 0xFF;
+        int y = c.V[Opcode.y(op)] & 0xFF;
+        int n = Opcode.n(op);
+        boolean collision = false;
+        if (c.planeMask == 1) {
+            collision = n == 0 ? c.gfx.drawWideSprite(0, c.memory, c.I, x, y) : c.gfx.drawSprite(0, c.memory, c.I, x, y, n);
+        } else {
+            int address = c.I;
+            for (int plane = 0; plane < c.gfx.getPlanes(); plane++) {
+                if ((c.planeMask >>> plane & 1) == 0) continue;
+                if (n == 0) {
+                    collision |= c.gfx.drawWideSprite(plane, c.memory, address, x, y);
+                    address += 32;
+                } else {
+                    collision |= c.gfx.drawSprite(plane, c.memory, address, x, y, n);
+                    address += n;
+                }
+            }
+        }
+        c.V[0xF] = (byte) (collision ? 1 : 0);
+        c.drawFlag = true;
+    }
+
+    static void skp(Chip8 c, int op) {
+        if ((c.keys >> (c.V[Opcode.x(op)] & 0xf) & 1) != 0) skip(c);
+    }
+
+    static void sknp(Chip8 c, int op) {
+        if ((c.keys >> (c.V[Opcode.x(op)] & 0xf) & 1) == 0) skip(c);
+    }
+
+    static void ldVxDt(Chip8 c, int op) {
+        c.V[Opcode.x(op)] = (byte) c.delayTimer;
+    }
+
+    static void ldVxK(Chip8 c, int op) {
+        if (c.keys != 0) {
+            c.V[Opcode.x(op)] = (byte) Integer.numberOfTrailingZeros(c.keys);
+        } else {
+            c.pc -= 2;
+        }
+    }
+
+    static void ldDtVx(Chip8 c, int op) {
+        c.delayTimer = c.V[Opcode.x(op)] & 0xff;
+    }
+
+    static void ldStVx(Chip8 c, int op) {
+        c.soundTimer = c.V[Opcode.x(op)] & 0xff;
+    }
+
+    static void addIVx(Chip8 c, int op) {
+        c.I = (c.I + (c.V[Opcode.x(op)] & 0xFF)) & 0xffff;
+    }
+
+    static void ldFVx(Chip8 c, int op) {
+        c.I = Chip8.FONTSET_START + ((c.V[Opcode.x(op)] & 0xff) * 5);
+    }
+
+    static void ldBVx(Chip8 c, int op) {
+        // tudo ou nada, como o arraycopy do FX55: bytes escritos antes da falha escapariam de memoryWritten
+        checkWrite(c, 3);
+        int val = c.V[Opcode.x(op)] & 0xff;
+        c.memory[c.I] = (byte) (val / 100);
+        c.memory[c.I + 1] = (byte) ((val / 10) % 10);
+        c.memory[c.I + 2] = (byte) (val % 10);
+        c.memoryWritten(c.I, 3);
+    }
+
+    static void ldMemVx(Chip8 c, int op) {
+        System.arraycopy(c.V, 0, c.memory, c.I, Opcode.x(op) + 1);
+        c.memoryWritten(c.I, Opcode.x(op) + 1);
+    }
+
+    static void ldVxMem(Chip8 c, int op) {
+        System.arraycopy(c.memory, c.I, c.V, 0, Opcode.x(op) + 1);
+    }
+
+    static void audio(Chip8 c, int op) {
+        System.arraycopy(c.memory, c.I, c.audioPattern, 0, c.audioPattern.length);
+        c.audioChanged();
+    }
+
+    static void pitch(Chip8 c, int op) {
+        c.pitch = c.V[Opcode.x(op)] & 0xFF;
+        c.audioChanged();
+    }
+
+    static void scd(Chip8 c, int op) {
+        c.gfx.scrollDown(Opcode.n(op), c.planeMask);
+        c.drawFlag = true;
+    }
+
+    static void scu(Chip8 c, int op) {
+        c.gfx.scrollUp(Opcode.n(op), c.planeMask);
+        c.drawFlag = true;
+    }
+
+    static void scr(Chip8 c, int op) {
+        c.gfx.scrollRight(4, c.planeMask);
+        c.drawFlag = true;
+    }
+
+    static void scl(Chip8 c, int op) {
+        c.gfx.scrollLeft(4, c.planeMask);
+        c.drawFlag = true;
+    }
+
+    // não há para onde sair: a máquina fica parada nesta instrução
+    static void exit(Chip8 c, int op) {
+        c.pc -= 2;
+    }
+
+    static void low(Chip8 c, int op) {
+        c.setResolution(false);
+    }
+
+    static void high(Chip8 c, int op) {
+        c.setResolution(true);
+    }
+
+    static void ldHfVx(Chip8 c, int op) {
+        c.I = Chip8.BIG_FONT_START + ((c.V[Opcode.x(op)] & 0xf) * 10);
+    }
+
+    static void ldRVx(Chip8 c, int op) {
+        System.arraycopy(c.V, 0, c.flags, 0, Opcode.x(op) + 1);
+    }
+
+    static void ldVxR(Chip8 c, int op) {
+        System.arraycopy(c.flags, 0, c.V, 0, Opcode.x(op) + 1);
+    }
+
+    // 5XY2/5XY3 não alteram I; com X > Y os registradores são percorridos em ordem decrescente
+    static void saveRange(Chip8 c, int op) {
+        int x = Opcode.x(op);
+        int y = Opcode.y(op);
+        int step = x <= y ? 1 : -1;
+        int count = Math.abs(y - x) + 1;
+        checkWrite(c, count);
+        for (int k = 0; k < count; k++) c.memory[c.I + k] = c.V[x + k * step];
+        c.memoryWritten(c.I, count);
+    }
+
+    static void loadRange(Chip8 c, int op) {
+        int x = Opcode.x(op);
+        int y = Opcode.y(op);
+        int step = x <= y ? 1 : -1;
+        int count = Math.abs(y - x) + 1;
+        for (int k = 0; k < count; k++) c.V[x + k * step] = c.memory[c.I + k];
+    }
+
+    private static void checkWrite(Chip8 c, int length) {
+        if (c.I + length > c.memory.length) {
+            throw new ArrayIndexOutOfBoundsException("write of " + length + " bytes at " + c.I + " past memory");
+        }
+    }
+
+    // F000 NNNN: o endereço vem na palavra seguinte, que é consumida aqui
+    static void ldILong(Chip8 c, int op) {
+        c.I = (c.memory[c.pc] & 0xFF) << 8 | (c.memory[c.pc + 1] & 0xFF);
+        c.pc += 2;
+    }
+
+    static void plane(Chip8 c, int op) {
+        c.selectPlanes(Opcode.x(op));
+    }
+}
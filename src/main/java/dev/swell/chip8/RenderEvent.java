@@ -0,0 +1,17 @@
+package dev.swell.chip8;
+
+import jdk.jfr.Category;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Evento JFR de uma apresentação da tela pelo frontend; a duração do evento é o tempo de renderização.
+ */
+@Name("dev.swell.chip8.Render")
+@Label("Render")
+@Category("CHIP-8")
+public class RenderEvent extends jdk.jfr.Event {
+
+    @Label("Dirty Rows")
+    public int rows;
+}
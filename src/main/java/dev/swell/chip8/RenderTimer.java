@@ -0,0 +1,30 @@
+package dev.swell.chip8;
+
+/**
+ * Tempo de renderização medido pelo frontend. Um único escritor (a thread que desenha); os leitores só
+ * precisam de valores recentes, não de um retrato consistente.
+ */
+public final class RenderTimer {
+
+    private volatile long frames = 0;
+    private volatile long totalNanos = 0;
+    private volatile long lastNanos = 0;
+
+    public void record(long nanos) {
+        lastNanos = nanos;
+        totalNanos += nanos;
+        frames++;
+    }
+
+    public long getFrames() {
+        return frames;
+    }
+
+    public long getTotalNanos() {
+        return totalNanos;
+    }
+
+    public long getLastNanos() {
+        return lastNanos;
+    }
+}
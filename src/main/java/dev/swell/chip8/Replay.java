@@ -0,0 +1,118 @@
+package dev.swell.chip8;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Reproduz sem interface um arquivo de {@link ReplayRecorder}: os eventos de teclado entram numa
+ * {@link InputQueue} com o ciclo gravado e os quadros rodam com a mesma quantidade de instruções, sem
+ * esperar pelo relógio (ou limitados a {@code fps}). Qualquer engine serve, já que todos são equivalentes.
+ */
+public final class Replay {
+
+    /**
+     * {@code instructions} soma o orçamento dos quadros; {@code verified} indica se o arquivo tinha o registro
+     * final e {@code matched}, se o estado bateu com ele.
+     */
+    public record Result(long frames, long instructions, long nanos, boolean verified, boolean matched) {
+    }
+
+    private Replay() {
+    }
+
+    public static Result play(Path file, Chip8 chip8) throws IOException {
+        return play(file, chip8, 0);
+    }
+
+    public static Result play(Path file, Chip8 chip8, int fps) throws IOException {
+        InputQueue input = new InputQueue();
+        chip8.setKeypad(input);
+        long frameNanos = fps > 0 ? 1_000_000_000L / fps : 0;
+        long frames = 0;
+        long executed = 0;
+        boolean verified = false;
+        boolean matched = false;
+        long start = System.nanoTime();
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(Files.readAllBytes(file)))) {
+            if (in.readInt() != ReplayRecorder.MAGIC) throw new IllegalArgumentException("not a replay file");
+            int version = in.readUnsignedShort();
+            if (version != ReplayRecorder.VERSION) throw new IllegalArgumentException("unsupported replay version " + version);
+            for (int tag = in.read(); tag >= 0; tag = in.read()) {
+                switch (tag) {
+                    case ReplayRecorder.STATE -> {
+                        byte[] state = new byte[in.readInt()];
+                        in.readFully(state);
+                        chip8.loadState(SaveState.fromBytes(state));
+                    }
+                    case ReplayRecorder.KEYS -> {
+                        long cycle = readVarLong(in);
+                        if (!input.offer(cycle, in.readUnsignedShort())) {
+                            throw new IllegalStateException("too many key events in one frame at cycle " + cycle);
+                        }
+                    }
+                    case ReplayRecorder.FRAMES -> {
+                        long count = readVarLong(in);
+                        int instructions = (int) readVarLong(in);
+                        for (long f = 0; f < count; f++) {
+                            chip8.runFrame(instructions, false);
+                            frames++;
+                            executed += instructions;
+                            if (frameNanos > 0) LockSupport.parkNanos(start + frames * frameNanos - System.nanoTime());
+                        }
+                    }
+                    case ReplayRecorder.END -> {
+                        long cycles = in.readLong();
+                        long digest = in.readLong();
+                        verified = true;
+                        matched = chip8.getCycles() == cycles && ReplayRecorder.digest(chip8) == digest;
+                    }
+                    default -> throw new IllegalArgumentException("bad replay record " + tag);
+                }
+            }
+        } catch (EOFException e) {
+            throw new IllegalArgumentException("truncated replay file", e);
+        }
+        return new Result(frames, executed, System.nanoTime() - start, verified, matched);
+    }
+
+    static long readVarLong(DataInputStream in) throws IOException {
+        long value = 0;
+        for (int shift = 0; ; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (long) (b & 0x7F) << shift;
+            if (b < 0x80) return value;
+        }
+    }
+
+    public static int main(List<String> args) throws IOException {
+        Path file = null;
+        EngineType engine = EngineType.THREADED;
+        int fps = 0;
+        for (int i = 0; i < args.size(); i++) {
+            String arg = args.get(i);
+            switch (arg) {
+                case "--engine" -> engine = EngineType.valueOf(args.get(++i).toUpperCase());
+                case "--fps" -> fps = Integer.parseInt(args.get(++i));
+                default -> file = Path.of(arg);
+            }
+        }
+        if (file == null) {
+            IO.println("usage: replay <file> [--engine INTERPRETER|THREADED|RECOMPILER] [--fps N]");
+            return 2;
+        }
+        Chip8 chip8 = new Chip8();
+        chip8.setEngine(engine.create());
+        Result result = play(file, chip8, fps);
+        double millis = result.nanos() / 1e6;
+        String status = !result.verified() ? "unverified" : result.matched() ? "bit-exact" : "DIVERGED";
+        IO.println(String.format("%s: %d frames, %d instructions in %.1f ms (%.1f M instr/s), %s",
+                file.getFileName(), result.frames(), result.instructions(), millis, result.instructions() / millis / 1000, status));
+        return result.verified() && !result.matched() ? 1 : 0;
+    }
+}
@@ -0,0 +1,155 @@
+package dev.swell.chip8;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * Grava uma sessão para {@link Replay}: o estado inicial, quantas instruções cada quadro executou e o ciclo
+ * exato em que o estado das teclas lido pela emulação mudou. Isso basta para reproduzir a sessão bit a bit,
+ * já que o RND faz parte do estado salvo.
+ * <p>
+ * Formato (big-endian): {@code "C8RP"}, versão (short) e registros marcados por um byte:
+ * <ul>
+ *     <li>{@code STATE}: tamanho (int) e {@link SaveState#toBytes()}, no início e sempre que o estado foi
+ *     trocado por fora da execução (reset, carregar estado, rebobinar);</li>
+ *     <li>{@code FRAMES}: quantidade e instruções por quadro (varints); quadros seguidos iguais viram um só;</li>
+ *     <li>{@code KEYS}: ciclo (varint) e máscara (short);</li>
+ *     <li>{@code END}: ciclo final e {@link #digest(Chip8) digest} do estado, para o replay conferir.</li>
+ * </ul>
+ * Os métodos de gravação rodam na thread da emulação; {@link #close()} deve ser chamado com ela parada.
+ */
+public final class ReplayRecorder implements AutoCloseable {
+
+    public static final int MAGIC = 0x43385250; // "C8RP"
+    public static final int VERSION = 1;
+
+    static final int STATE = 1;
+    static final int FRAMES = 2;
+    static final int KEYS = 3;
+    static final int END = 4;
+
+    private final DataOutputStream out;
+    private Chip8 chip8;
+    private long expectedCycles = -1;
+    private int expectedGeneration;
+    private int lastKeys = -1;
+    private int runInstructions = -1;
+    private int runFrames = 0;
+    private boolean closed = false;
+    private IOException failure;
+
+    private ReplayRecorder(DataOutputStream out) throws IOException {
+        this.out = out;
+        out.writeInt(MAGIC);
+        out.writeShort(VERSION);
+    }
+
+    public static ReplayRecorder open(Path file) throws IOException {
+        return new ReplayRecorder(new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file), 1 << 16)));
+    }
+
+    synchronized void frameStarted(Chip8 c) {
+        if (closed) return;
+        chip8 = c;
+        if (c.cycles == expectedCycles && c.generation == expectedGeneration) return;
+        try {
+            flushFrames();
+            byte[] state = c.saveState().toBytes();
+            out.writeByte(STATE);
+            out.writeInt(state.length);
+            out.write(state);
+        } catch (IOException e) {
+            fail(e);
+        }
+    }
+
+    synchronized void keysPolled(long cycle, int keys) {
+        if (closed || keys == lastKeys) return;
+        lastKeys = keys;
+        try {
+            flushFrames();
+            out.writeByte(KEYS);
+            writeVarLong(out, cycle);
+            out.writeShort(keys);
+        } catch (IOException e) {
+            fail(e);
+        }
+    }
+
+    synchronized void frameEnded(Chip8 c, int instructions) {
+        if (closed) return;
+        if (instructions != runInstructions) {
+            try {
+                flushFrames();
+            } catch (IOException e) {
+                fail(e);
+                return;
+            }
+            runInstructions = instructions;
+        }
+        runFrames++;
+        expectedCycles = c.cycles;
+        expectedGeneration = c.generation;
+    }
+
+    private void flushFrames() throws IOException {
+        if (runFrames == 0) return;
+        out.writeByte(FRAMES);
+        writeVarLong(out, runFrames);
+        writeVarLong(out, runInstructions);
+        runFrames = 0;
+    }
+
+    private void fail(IOException e) {
+        failure = e;
+        closed = true;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (!closed) {
+            closed = true;
+            try {
+                flushFrames();
+                if (chip8 != null) {
+                    out.writeByte(END);
+                    out.writeLong(chip8.cycles);
+                    out.writeLong(digest(chip8));
+                }
+            } catch (IOException e) {
+                failure = e;
+            }
+        }
+        try {
+            out.close();
+        } catch (IOException e) {
+            if (failure == null) failure = e;
+        }
+        if (failure != null) throw failure;
+    }
+
+    /**
+     * Resumo do estado observável (memória, registradores, pilha, tela e RND) usado para conferir o replay.
+     */
+    static long digest(Chip8 c) {
+        long h = c.gfx.contentHash();
+        h = h * 31 + Arrays.hashCode(c.memory);
+        h = h * 31 + Arrays.hashCode(c.V);
+        h = h * 31 + Arrays.hashCode(c.stack);
+        h = h * 31 + (c.pc | (long) c.I << 16 | (long) c.sp << 32 | (long) c.delayTimer << 40 | (long) c.soundTimer << 48);
+        h = h * 31 + c.randomState;
+        return h;
+    }
+
+    static void writeVarLong(DataOutputStream out, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.writeByte((int) (value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+}
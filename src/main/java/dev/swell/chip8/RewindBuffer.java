@@ -0,0 +1,297 @@
+package dev.swell.chip8;
+
+import java.util.Arrays;
+
+/**
+ * Histórico para rebobinar: a cada {@link #record(Chip8)} o estado inteiro da máquina é serializado num
+ * layout fixo e guardado como o XOR contra o estado anterior, codificado em RLE, num anel de bytes
+ * pré-alocado. Só o estado mais recente fica inteiro; voltar um quadro aplica o XOR da última entrada
+ * sobre ele. Quando o anel enche, as entradas mais antigas são descartadas.
+ * <p>
+ * Entradas no anel: {@code [tamanho][dados][tamanho]}, para poder andar para trás a partir do fim.
+ * Códigos RLE: {@code 0xxxxxxx yyyyyyyy} são {@code x:y + 1} bytes iguais; {@code 1xxxxxxx} é seguido de
+ * {@code x + 1} bytes de XOR literais.
+ * <p>
+ * Não aloca por quadro: o layout reserva espaço para a maior tela (128x64 com dois planos), e as palavras
+ * que a tela atual não usa ficam zeradas, de modo que trocar de resolução não interrompe o histórico.
+ */
+public class RewindBuffer {
+
+    public static final int DEFAULT_CAPACITY = 8 << 20;
+
+    private static final int MAX_RUN = 0x8000;
+    private static final int MAX_LITERAL = 0x80;
+
+    // layout do estado serializado
+    private static final int PC = 0;
+    private static final int I = 2;
+    private static final int SP = 4;
+    private static final int DT = 5;
+    private static final int ST = 6;
+    private static final int FAULT = 7;
+    private static final int KEYS = 8;
+    private static final int CYCLES = 10;
+    private static final int RANDOM = 18;
+    private static final int PITCH = 26;
+    private static final int PATTERN = 27;
+    private static final int FLAGS = PATTERN + 16;
+    private static final int V = FLAGS + 16;
+    private static final int STACK = V + 16;
+    private static final int MEMORY = STACK + 32;
+    private static final int WIDTH = MEMORY + Chip8.MEMORY_SIZE;
+    private static final int HEIGHT = WIDTH + 2;
+    private static final int PLANES = HEIGHT + 1;
+    private static final int PLANE_MASK = PLANES + 1;
+    private static final int FAULT_PC = PLANE_MASK + 1;
+    private static final int FRAMEBUFFER = FAULT_PC + 2;
+    private static final int MAX_FRAMEBUFFER_WORDS = (Chip8.HIRES_WIDTH >>> 6) * Chip8.HIRES_HEIGHT * 2;
+    private static final int SIZE = FRAMEBUFFER + MAX_FRAMEBUFFER_WORDS * 8;
+
+    private final byte[] ring;
+    private int head = 0; // próxima escrita
+    private int tail = 0; // entrada mais antiga
+    private int used = 0;
+    private int entries = 0;
+
+    private byte[] current;   // último estado gravado, inteiro
+    private byte[] next;
+    private byte[] encoded;
+    private final long[] framebuffer = new long[MAX_FRAMEBUFFER_WORDS];
+
+    public RewindBuffer() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public RewindBuffer(int capacityBytes) {
+        if (capacityBytes <= 0) throw new IllegalArgumentException("capacityBytes must be positive");
+        ring = new byte[capacityBytes];
+    }
+
+    /**
+     * Quadros para os quais ainda dá para voltar.
+     */
+    public int size() {
+        return entries;
+    }
+
+    public int getUsedBytes() {
+        return used;
+    }
+
+    public int getCapacity() {
+        return ring.length;
+    }
+
+    public void clear() {
+        head = tail = used = entries = 0;
+        current = null;
+    }
+
+    public void record(Chip8 c) {
+        if (current == null) {
+            // primeiro quadro: só o estado inteiro
+            clear();
+            if (next == null) {
+                next = new byte[SIZE];
+                encoded = new byte[SIZE + SIZE / MAX_LITERAL + 8];
+            }
+            current = new byte[SIZE];
+            write(c, current);
+            return;
+        }
+        write(c, next);
+        int length = encode(next, current, encoded);
+        byte[] swap = current;
+        current = next;
+        next = swap;
+
+        int needed = length + 8;
+        if (needed > ring.length) {
+            // não cabe nem sozinho: o histórico recomeça do estado atual
+            head = tail = used = entries = 0;
+            return;
+        }
+        while (ring.length - used < needed) {
+            int dropped = readInt(tail);
+            tail = (tail + dropped + 8) % ring.length;
+            used -= dropped + 8;
+            entries--;
+        }
+        writeInt(head, length);
+        copyIn(encoded, (head + 4) % ring.length, length);
+        writeInt((head + 4 + length) % ring.length, length);
+        head = (head + needed) % ring.length;
+        used += needed;
+        entries++;
+    }
+
+    /**
+     * Volta um quadro: restaura na máquina o estado gravado antes do último. Retorna false se não há
+     * histórico.
+     */
+    public boolean stepBack(Chip8 c) {
+        if (entries == 0) return false;
+        int end = (head - 4 + ring.length) % ring.length;
+        int length = readInt(end);
+        int start = (end - length + ring.length) % ring.length;
+        copyOut(start, encoded, length);
+        decode(encoded, length, current);
+        head = (start - 4 + ring.length) % ring.length;
+        used -= length + 8;
+        entries--;
+        read(current, c);
+        return true;
+    }
+
+    private void write(Chip8 c, byte[] s) {
+        putShort(s, PC, c.pc);
+        putShort(s, I, c.I);
+        s[SP] = (byte) c.sp;
+        s[DT] = (byte) c.delayTimer;
+        s[ST] = (byte) c.soundTimer;
+        s[FAULT] = (byte) (c.isFaulted() ? 1 : 0);
+        putShort(s, KEYS, c.keys);
+        putLong(s, CYCLES, c.cycles);
+        putLong(s, RANDOM, c.randomState);
+        s[PITCH] = (byte) c.pitch;
+        System.arraycopy(c.audioPattern, 0, s, PATTERN, 16);
+        System.arraycopy(c.flags, 0, s, FLAGS, 16);
+        System.arraycopy(c.V, 0, s, V, 16);
+        for (int i = 0; i < 16; i++) putShort(s, STACK + 2 * i, c.stack[i]);
+        System.arraycopy(c.memory, 0, s, MEMORY, Chip8.MEMORY_SIZE);
+        putShort(s, WIDTH, c.gfx.getWidth());
+        s[HEIGHT] = (byte) c.gfx.getHeight();
+        s[PLANES] = (byte) c.gfx.getPlanes();
+        s[PLANE_MASK] = (byte) c.planeMask;
+        putShort(s, FAULT_PC, c.getFaultPc());
+        int words = c.gfx.wordCount();
+        c.gfx.copyTo(framebuffer);
+        for (int i = 0; i < words; i++) putLong(s, FRAMEBUFFER + 8 * i, framebuffer[i]);
+        Arrays.fill(s, FRAMEBUFFER + 8 * words, SIZE, (byte) 0);
+    }
+
+    private void read(byte[] s, Chip8 c) {
+        c.pc = getShort(s, PC);
+        c.I = getShort(s, I);
+        c.sp = s[SP] & 0xFF;
+        c.delayTimer = s[DT] & 0xFF;
+        c.soundTimer = s[ST] & 0xFF;
+        c.keys = getShort(s, KEYS);
+        c.cycles = getLong(s, CYCLES);
+        c.generation++;
+        c.randomState = getLong(s, RANDOM);
+        if (c.pitch != (s[PITCH] & 0xFF) || !Arrays.equals(s, PATTERN, PATTERN + 16, c.audioPattern, 0, 16)) {
+            c.pitch = s[PITCH] & 0xFF;
+            System.arraycopy(s, PATTERN, c.audioPattern, 0, 16);
+            c.audioChanged();
+        }
+        System.arraycopy(s, FLAGS, c.flags, 0, 16);
+        System.arraycopy(s, V, c.V, 0, 16);
+        for (int i = 0; i < 16; i++) c.stack[i] = getShort(s, STACK + 2 * i);
+        // só as páginas que mudaram: o engine descarta apenas o código afetado
+        int page = 1 << Chip8.PAGE_SHIFT;
+        for (int a = 0; a < Chip8.MEMORY_SIZE; a += page) {
+            if (!Arrays.equals(s, MEMORY + a, MEMORY + a + page, c.memory, a, a + page)) {
+                System.arraycopy(s, MEMORY + a, c.memory, a, page);
+                c.memoryWritten(a, page);
+            }
+        }
+        c.setFramebuffer(getShort(s, WIDTH), s[HEIGHT] & 0xFF, s[PLANES] & 0xFF);
+        c.planeMask = s[PLANE_MASK];
+        int words = c.gfx.wordCount();
+        for (int i = 0; i < words; i++) framebuffer[i] = getLong(s, FRAMEBUFFER + 8 * i);
+        c.gfx.copyFrom(framebuffer);
+        if (s[FAULT] == 0) {
+            c.restoreFault(null, 0);
+        } else if (!c.isFaulted()) {
+            c.restoreFault(new IllegalStateException("faulted before the rewound frame"), getShort(s, FAULT_PC));
+        }
+    }
+
+    // RLE do XOR entre a e b; retorna o tamanho codificado
+    static int encode(byte[] a, byte[] b, byte[] out) {
+        return encode(a, b, a.length, out);
+    }
+
+    // o mesmo sobre os n primeiros bytes; a saída precisa de até n + n / 128 + 2 bytes
+    static int encode(byte[] a, byte[] b, int n, byte[] out) {
+        int o = 0;
+        int i = 0;
+        while (i < n) {
+            int run = i;
+            while (run < n && run - i < MAX_RUN && a[run] == b[run]) run++;
+            if (run - i >= 3 || (run == n && run > i)) {
+                int count = run - i - 1;
+                out[o++] = (byte) (count >>> 8);
+                out[o++] = (byte) count;
+                i = run;
+                continue;
+            }
+            // literal até achar 3 bytes iguais seguidos (onde um código de repetição compensa)
+            int start = i;
+            while (i < n && i - start < MAX_LITERAL
+                    && !(i + 2 < n && a[i] == b[i] && a[i + 1] == b[i + 1] && a[i + 2] == b[i + 2])) {
+                i++;
+            }
+            out[o++] = (byte) (0x80 | (i - start - 1));
+            for (int k = start; k < i; k++) out[o++] = (byte) (a[k] ^ b[k]);
+        }
+        return o;
+    }
+
+    // aplica o XOR codificado sobre state
+    static void decode(byte[] in, int length, byte[] state) {
+        int p = 0;
+        int i = 0;
+        while (i < length) {
+            int code = in[i++] & 0xFF;
+            if (code < 0x80) {
+                p += (code << 8 | (in[i++] & 0xFF)) + 1;
+            } else {
+                int count = (code & 0x7F) + 1;
+                for (int k = 0; k < count; k++) state[p++] ^= in[i++];
+            }
+        }
+    }
+
+    private void copyIn(byte[] source, int position, int length) {
+        int first = Math.min(length, ring.length - position);
+        System.arraycopy(source, 0, ring, position, first);
+        System.arraycopy(source, first, ring, 0, length - first);
+    }
+
+    private void copyOut(int position, byte[] target, int length) {
+        int first = Math.min(length, ring.length - position);
+        System.arraycopy(ring, position, target, 0, first);
+        System.arraycopy(ring, 0, target, first, length - first);
+    }
+
+    private int readInt(int position) {
+        int value = 0;
+        for (int k = 0; k < 4; k++) value = value << 8 | (ring[(position + k) % ring.length] & 0xFF);
+        return value;
+    }
+
+    private void writeInt(int position, int value) {
+        for (int k = 0; k < 4; k++) ring[(position + k) % ring.length] = (byte) (value >>> (24 - 8 * k));
+    }
+
+    private static void putShort(byte[] s, int offset, int value) {
+        s[offset] = (byte) (value >>> 8);
+        s[offset + 1] = (byte) value;
+    }
+
+    private static int getShort(byte[] s, int offset) {
+        return (s[offset] & 0xFF) << 8 | (s[offset + 1] & 0xFF);
+    }
+
+    private static void putLong(byte[] s, int offset, long value) {
+        for (int k = 0; k < 8; k++) s[offset + k] = (byte) (value >>> (56 - 8 * k));
+    }
+
+    private static long getLong(byte[] s, int offset) {
+        long value = 0;
+        for (int k = 0; k < 8; k++) value = value << 8 | (s[offset + k] & 0xFFL);
+        return value;
+    }
+}
@@ -0,0 +1,129 @@
+package dev.swell.chip8;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Gera ROMs de instruções aleatórias válidas e roda cada uma no {@link Lockstep} contra os motores, distribuindo as
+ * ROMs entre os núcleos. Cada ROM depende só da sua semente ({@code seed + índice}), então uma divergência se
+ * reproduz com {@link #generate(long, int)}.
+ * <p>
+ * A operação é sorteada antes da palavra, para que os grupos pequenos (0, E, F) apareçam tanto quanto os de
+ * 4096 palavras. RET e EXIT são mais raros, saltos e chamadas caem dentro da própria ROM, e I aponta para
+ * qualquer lugar, inclusive o código (o que exercita a invalidação de código automodificável).
+ */
+public final class RomFuzzer {
+
+    public static final int DEFAULT_COUNT = 1000;
+    public static final int DEFAULT_LENGTH = 128;
+
+    public record Failure(long seed, byte[] rom, Lockstep.Result result) {
+    }
+
+    // palavras de cada operação, sem NOP (que cobre as inválidas)
+    private static final int[][] WORDS = words();
+
+    private int count = DEFAULT_COUNT;
+    private int length = DEFAULT_LENGTH;
+    private long seed = 1;
+    private int parallelism = Runtime.getRuntime().availableProcessors();
+
+    public RomFuzzer count(int count) {
+        this.count = count;
+        return this;
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    /**
+     * Instruções por ROM.
+     */
+    public RomFuzzer length(int length) {
+        if (length <= 0 || length * 2 > Chip8.MAX_ROM_SIZE) throw new IllegalArgumentException("invalid length: " + length);
+        this.length = length;
+        return this;
+    }
+
+    public RomFuzzer seed(long seed) {
+        this.seed = seed;
+        return this;
+    }
+
+    public RomFuzzer parallelism(int parallelism) {
+        this.parallelism = parallelism;
+        return this;
+    }
+
+    /**
+     * Roda {@code count} ROMs em cada motor e retorna as divergências, em ordem de semente.
+     */
+    public List<Failure> run(Lockstep lockstep, List<EngineType> engines) throws InterruptedException {
+        ExecutorService pool = Executors.newWorkStealingPool(parallelism);
+        try {
+            List<Future<List<Failure>>> futures = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                long romSeed = seed + i;
+                futures.add(pool.submit(() -> {
+                    byte[] rom = generate(romSeed, length);
+                    List<Failure> failures = new ArrayList<>();
+                    for (EngineType engine : engines) {
+                        Lockstep.Result result = lockstep.run(rom, engine);
+                        if (!result.matches()) failures.add(new Failure(romSeed, rom, result));
+                    }
+                    return failures;
+                }));
+            }
+            List<Failure> failures = new ArrayList<>();
+            for (Future<List<Failure>> future : futures) {
+                try {
+                    failures.addAll(future.get());
+                } catch (ExecutionException e) {
+                    throw new IllegalStateException(e.getCause());
+                }
+            }
+            return failures;
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    public static byte[] generate(long seed, int length) {
+        SplittableRandom random = new SplittableRandom(seed);
+        byte[] rom = new byte[length * 2];
+        for (int i = 0; i < length; i++) {
+            int operation = 1 + random.nextInt(Opcode.OPERATION_COUNT - 1);
+            // RET sem CALL e EXIT encerram a ROM cedo: sorteia de novo três em cada quatro vezes
+            if ((operation == Opcode.RET || operation == Opcode.EXIT) && random.nextInt(4) != 0) {
+                operation = 1 + random.nextInt(Opcode.OPERATION_COUNT - 1);
+            }
+            int[] words = WORDS[operation];
+            int word = words[random.nextInt(words.length)];
+            if (operation == Opcode.JP || operation == Opcode.CALL || operation == Opcode.JP_V0) {
+                word = word & 0xF000 | Chip8.PROGRAM_START + 2 * random.nextInt(length);
+            }
+            rom[2 * i] = (byte) (word >>> 8);
+            rom[2 * i + 1] = (byte) word;
+        }
+        return rom;
+    }
+
+    private static int[][] words() {
+        int[] counts = new int[Opcode.OPERATION_COUNT];
+        for (int word = 0; word < 0x10000; word++) counts[Opcode.operation(word)]++;
+        int[][] words = new int[Opcode.OPERATION_COUNT][];
+        for (int operation = 0; operation < words.length; operation++) words[operation] = new int[counts[operation]];
+        int[] next = new int[Opcode.OPERATION_COUNT];
+        for (int word = 0; word < 0x10000; word++) {
+            int operation = Opcode.operation(word);
+            words[operation][next[operation]++] = word;
+        }
+        return words;
+    }
+}
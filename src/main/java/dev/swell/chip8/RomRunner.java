@@ -0,0 +1,182 @@
+package dev.swell.chip8;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.function.Predicate;
+
+/**
+ * Modo de linha de comando para execuções curtas e roteirizadas: roda uma ROM sem interface por N quadros ou até
+ * uma condição e despeja a tela e/ou o estado. Não toca em nenhuma classe {@code javafx.*}, então a JVM sobe só
+ * com o núcleo do emulador.
+ */
+public final class RomRunner {
+
+    public static final int DEFAULT_FRAMES = 600;
+
+    private RomRunner() {
+    }
+
+    public enum Stop {FRAMES, CONDITION, FAULT}
+
+    public record Result(int frames, Stop stop, String condition) {
+    }
+
+    /**
+     * Roda até {@code frames} quadros; as condições são avaliadas ao fim de cada quadro e a primeira verdadeira
+     * encerra a execução.
+     */
+    public static Result run(Chip8 chip8, int frames, List<String> conditions) {
+        List<Predicate<Chip8>> predicates = new ArrayList<>(conditions.size());
+        for (String condition : conditions) predicates.add(parseCondition(condition));
+        int frame = 0;
+        while (frame < frames) {
+            chip8.runFrame();
+            frame++;
+            if (chip8.isFaulted()) return new Result(frame, Stop.FAULT, null);
+            for (int i = 0; i < predicates.size(); i++) {
+                if (predicates.get(i).test(chip8)) return new Result(frame, Stop.CONDITION, conditions.get(i));
+            }
+        }
+        return new Result(frame, Stop.FRAMES, null);
+    }
+
+    /**
+     * {@code halt} (salto para si mesmo), {@code key} (parado em FX0A sem tecla), {@code pc=N}, {@code i=N},
+     * {@code vX=N} ou {@code [endereço]=N}; números em decimal ou {@code 0x}.
+     */
+    static Predicate<Chip8> parseCondition(String condition) {
+        String text = condition.trim().toLowerCase();
+        if (text.equals("halt")) return c -> word(c, c.getPc()) == (0x1000 | c.getPc());
+        if (text.equals("key")) return c -> c.keys == 0 && (word(c, c.getPc()) & 0xF0FF) == 0xF00A;
+        int equals = text.indexOf('=');
+        if (equals < 0) throw new IllegalArgumentException("invalid condition: " + condition);
+        String left = text.substring(0, equals).trim();
+        int value = Integer.decode(text.substring(equals + 1).trim());
+        if (left.equals("pc")) return c -> c.getPc() == value;
+        if (left.equals("i")) return c -> c.getI() == value;
+        if (left.length() == 2 && left.charAt(0) == 'v') {
+            int register = Character.digit(left.charAt(1), 16);
+            if (register >= 0) return c -> c.getV(register) == value;
+        }
+        if (left.startsWith("[") && left.endsWith("]")) {
+            int address = Integer.decode(left.substring(1, left.length() - 1).trim());
+            if (address >= 0 && address < Chip8.MEMORY_SIZE) return c -> (c.getMemory()[address] & 0xFF) == value;
+        }
+        throw new IllegalArgumentException("invalid condition: " + condition);
+    }
+
+    private static int word(Chip8 chip8, int address) {
+        byte[] memory = chip8.getMemory();
+        if (address + 1 >= memory.length) return -1;
+        return (memory[address] & 0xFF) << 8 | (memory[address + 1] & 0xFF);
+    }
+
+    /**
+     * Uma linha por linha de pixels: {@code .} apagado, {@code #} aceso; com mais de um plano, o índice da cor.
+     */
+    public static String screen(Framebuffer framebuffer) {
+        int planes = framebuffer.getPlanes();
+        StringBuilder out = new StringBuilder((framebuffer.getWidth() + 1) * framebuffer.getHeight());
+        for (int y = 0; y < framebuffer.getHeight(); y++) {
+            for (int x = 0; x < framebuffer.getWidth(); x++) {
+                int color = 0;
+                for (int plane = 0; plane < planes; plane++) {
+                    if (framebuffer.isSet(plane, x, y)) color |= 1 << plane;
+                }
+                out.append(color == 0 ? '.' : planes == 1 ? '#' : Character.forDigit(color, 16));
+            }
+            out.append('\n');
+        }
+        return out.toString();
+    }
+
+    public static String state(Chip8 chip8) {
+        HexFormat hex = HexFormat.of().withUpperCase();
+        StringBuilder out = new StringBuilder(256);
+        out.append(String.format("pc=%03X i=%03X sp=%d dt=%d st=%d cycles=%d%n", chip8.getPc(), chip8.getI(),
+                chip8.getSp(), chip8.getDelayTimer(), chip8.getSoundTimer(), chip8.getCycles()));
+        for (int register = 0; register < 16; register++) {
+            out.append(register == 0 ? "" : " ").append('v').append(Character.toUpperCase(Character.forDigit(register, 16)))
+                    .append('=').append(hex.toHexDigits((byte) chip8.getV(register)));
+        }
+        out.append('\n');
+        if (chip8.isFaulted()) out.append("fault=").append(chip8.getFault()).append('\n');
+        return out.toString();
+    }
+
+    /**
+     * {@code run <rom> [--frames N] [--until COND]... [--engine TYPE] [--ipf N] [--seed N]
+     * [--dump screen|state|all|flow] [--save arquivo] [--break ENDEREÇO[:COND]]... [--watch ENDEREÇO]...}; cada
+     * breakpoint ou watchpoint atingido imprime o estado. Sai com 1 se a ROM falhou.
+     */
+    public static int main(List<String> args) throws IOException {
+        Path rom = null;
+        int frames = DEFAULT_FRAMES;
+        List<String> conditions = new ArrayList<>();
+        // execuções curtas: o interpretador simples não tem custo de preparação antes do primeiro quadro
+        EngineType engine = EngineType.INTERPRETER;
+        int instructionsPerFrame = Chip8.DEFAULT_INSTRUCTIONS_PER_FRAME;
+        Long seed = null;
+        String dump = "none";
+        Path save = null;
+        Debugger debugger = new Debugger();
+        for (int i = 0; i < args.size(); i++) {
+            String arg = args.get(i);
+            switch (arg) {
+                case "--frames" -> frames = Integer.parseInt(args.get(++i));
+                case "--until" -> conditions.add(args.get(++i));
+                case "--engine" -> engine = EngineType.valueOf(args.get(++i).toUpperCase());
+                case "--ipf" -> instructionsPerFrame = Integer.parseInt(args.get(++i));
+                case "--seed" -> seed = Long.decode(args.get(++i));
+                case "--dump" -> dump = args.get(++i);
+                case "--save" -> save = Path.of(args.get(++i));
+                case "--break" -> {
+                    String[] breakpoint = args.get(++i).split(":", 2);
+                    int address = Integer.decode(breakpoint[0]);
+                    if (breakpoint.length == 1) debugger.setBreakpoint(address);
+                    else debugger.setBreakpoint(address, breakpoint[1]);
+                }
+                case "--watch" -> debugger.setWatchpoint(Integer.decode(args.get(++i)));
+                default -> rom = Path.of(arg);
+            }
+        }
+        if (rom == null || !List.of("none", "screen", "state", "all", "flow").contains(dump)) {
+            IO.println("usage: run <rom> [--frames N] [--until halt|key|pc=N|i=N|vX=N|[ADDR]=N]... [--engine TYPE] "
+                    + "[--ipf N] [--seed N] [--dump screen|state|all|flow] [--save FILE] [--break ADDR[:COND]]... [--watch ADDR]...");
+            return 2;
+        }
+        for (String condition : conditions) parseCondition(condition);
+
+        Chip8 chip8 = new Chip8();
+        chip8.setEngine(engine.create());
+        chip8.setInstructionsPerFrame(instructionsPerFrame);
+        chip8.loadRom(Files.readAllBytes(rom));
+        if (seed != null) chip8.setRandomSeed(seed);
+        if (debugger.isArmed()) {
+            // sem relógio o depurador não bloqueia: cada parada só imprime o estado e a execução segue
+            debugger.setListener((c, reason, address) ->
+                    IO.print(String.format("%s @%03X%n%s", reason, address, state(c))));
+            chip8.setDebugger(debugger);
+        }
+        long start = System.nanoTime();
+        Result result = run(chip8, frames, conditions);
+        double millis = (System.nanoTime() - start) / 1e6;
+
+        String stop = switch (result.stop()) {
+            case FRAMES -> "frames";
+            case CONDITION -> "until " + result.condition();
+            case FAULT -> "fault " + chip8.getFault().getClass().getSimpleName() + "@" + Integer.toHexString(chip8.getFaultPc());
+        };
+        IO.println(String.format("%s: %d frames, %d instructions in %.1f ms, stop=%s, screen=%016x", rom.getFileName(),
+                result.frames(), chip8.getCycles(), millis, stop, chip8.getFramebuffer().contentHash()));
+        if (dump.equals("state") || dump.equals("all")) IO.print(state(chip8));
+        if (dump.equals("screen") || dump.equals("all")) IO.print(screen(chip8.getFramebuffer()));
+        if (dump.equals("flow")) IO.print(chip8.getControlFlow().summary());
+        if (save != null) Files.write(save, chip8.saveState().toBytes());
+        return result.stop() == Stop.FAULT ? 1 : 0;
+    }
+}
@@ -0,0 +1,117 @@
+package dev.swell.chip8;
+
+import java.nio.IntBuffer;
+import java.util.Arrays;
+
+/**
+ * Converte linhas empacotadas de um {@link Framebuffer} em pixels ARGB, reescrevendo apenas as linhas que
+ * mudaram desde a última chamada. Não depende do JavaFX para poder ser medido e reaproveitado fora dele.
+ * <p>
+ * Com vários planos (XO-CHIP), a cor de cada pixel é {@code palette[bit do plano 0 | bit do plano 1 << 1 ...]}.
+ */
+public class RowRasterizer {
+
+    private final int width;
+    private final int height;
+    private final int planes;
+    private final int wordsPerRow;
+    private final int planeSize;
+    private final int[] palette;
+    private final long[] shown; //linhas da última chamada, de todos os planos
+    private boolean full = true;
+    private int dirtyMinY = -1;
+    private int dirtyMaxY = -1;
+
+    public RowRasterizer(int width, int height, int colorOn, int colorOff) {
+        this(width, height, 1, new int[]{colorOff, colorOn});
+    }
+
+    public RowRasterizer(int width, int height, int planes, int[] palette) {
+        if (palette.length < 1 << planes) throw new IllegalArgumentException("palette needs " + (1 << planes) + " colors");
+        this.width = width;
+        this.height = height;
+        this.planes = planes;
+        this.wordsPerRow = width >>> 6;
+        this.planeSize = wordsPerRow * height;
+        this.palette = palette.clone();
+        this.shown = new long[planeSize * planes];
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public int getPlanes() {
+        return planes;
+    }
+
+    /**
+     * Força o próximo {@link #rasterize} a reescrever todas as linhas.
+     */
+    public void invalidate() {
+        full = true;
+    }
+
+    /**
+     * Escreve em {@code pixels} (linha a linha, {@code width} ints por linha) as linhas de {@code frame}
+     * que mudaram. Retorna false se nada mudou; caso contrário a faixa alterada fica em
+     * {@link #getDirtyMinY()}..{@link #getDirtyMaxY()}.
+     */
+    public boolean rasterize(long[] frame, IntBuffer pixels) {
+        int minY = -1;
+        int maxY = -1;
+        for (int y = 0; y < height; y++) {
+            int base = y * wordsPerRow;
+            if (!full && unchanged(frame, base)) continue;
+
+            int offset = y * width;
+            if (planes == 1) {
+                int colorOff = palette[0];
+                int colorOn = palette[1];
+                for (int k = 0; k < wordsPerRow; k++) {
+                    long word = frame[base + k];
+                    shown[base + k] = word;
+                    for (int bit = 0; bit < 64; bit++) {
+                        pixels.put(offset++, (word << bit) < 0 ? colorOn : colorOff);
+                    }
+                }
+            } else {
+                for (int k = 0; k < wordsPerRow; k++) {
+                    for (int p = 0; p < planes; p++) shown[p * planeSize + base + k] = frame[p * planeSize + base + k];
+                    for (int bit = 0; bit < 64; bit++) {
+                        int index = 0;
+                        for (int p = 0; p < planes; p++) {
+                            index |= (int) ((frame[p * planeSize + base + k] << bit) >>> 63) << p;
+                        }
+                        pixels.put(offset++, palette[index]);
+                    }
+                }
+            }
+            if (minY < 0) minY = y;
+            maxY = y;
+        }
+        full = false;
+        dirtyMinY = minY;
+        dirtyMaxY = maxY;
+        return maxY >= 0;
+    }
+
+    private boolean unchanged(long[] frame, int base) {
+        for (int p = 0, from = base; p < planes; p++, from += planeSize) {
+            if (!Arrays.equals(frame, from, from + wordsPerRow, shown, from, from + wordsPerRow)) return false;
+        }
+        return true;
+    }
+
+    public int getDirtyMinY() {
+        return dirtyMinY;
+    }
+
+    public int getDirtyMaxY() {
+        return dirtyMaxY;
+    }
+}
@@ -0,0 +1,232 @@
+package dev.swell.chip8;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+
+/**
+ * Estado completo da máquina. A memória é guardada em páginas imutáveis de 64 bytes compartilhadas
+ * entre estados: uma captura só copia as páginas escritas desde a captura anterior, de modo que tirar
+ * um estado por quadro custa os registradores, a tela e, em geral, nenhuma ou uma página.
+ * <p>
+ * {@link #toBytes()} gera o formato binário versionado: cabeçalho, registradores, tela e apenas as páginas
+ * de memória que não são todas zero.
+ */
+public final class SaveState {
+
+    private static final int MAGIC = 0x43385353; // "C8SS"
+    public static final int VERSION = 4;
+
+    private static final int PAGE_SIZE = 1 << Chip8.PAGE_SHIFT;
+
+    final int pc;
+    final int I;
+    final int sp;
+    final int delayTimer;
+    final int soundTimer;
+    final int keys;
+    final long cycles;
+    final long randomState;
+    final byte[] V;
+    final int[] stack;
+    final int width;
+    final int height;
+    final int planes;
+    final int planeMask;
+    final long[] framebuffer;
+    final byte[][] pages;
+    final RuntimeException fault;
+    final int faultPc;
+    final byte[] audioPattern;
+    final int pitch;
+    final byte[] flags;
+
+    private SaveState(int pc, int I, int sp, int delayTimer, int soundTimer, int keys, long cycles, long randomState,
+                      byte[] V, int[] stack, int width, int height, int planes, int planeMask, long[] framebuffer,
+                      byte[][] pages, RuntimeException fault, int faultPc, byte[] audioPattern, int pitch,
+                      byte[] flags) {
+        this.pc = pc;
+        this.I = I;
+        this.sp = sp;
+        this.delayTimer = delayTimer;
+        this.soundTimer = soundTimer;
+        this.keys = keys;
+        this.cycles = cycles;
+        this.randomState = randomState;
+        this.V = V;
+        this.stack = stack;
+        this.width = width;
+        this.height = height;
+        this.planes = planes;
+        this.planeMask = planeMask;
+        this.framebuffer = framebuffer;
+        this.pages = pages;
+        this.fault = fault;
+        this.faultPc = faultPc;
+        this.audioPattern = audioPattern;
+        this.pitch = pitch;
+        this.flags = flags;
+    }
+
+    static SaveState capture(Chip8 c) {
+        byte[][] pages = c.savedPages.clone();
+        long dirty = c.dirtyPages;
+        while (dirty != 0) {
+            int page = Long.numberOfTrailingZeros(dirty);
+            dirty &= dirty - 1;
+            pages[page] = Arrays.copyOfRange(c.memory, page << Chip8.PAGE_SHIFT, (page + 1) << Chip8.PAGE_SHIFT);
+        }
+        c.savedPages = pages;
+        c.dirtyPages = 0;
+
+        long[] framebuffer = new long[c.gfx.wordCount()];
+        c.gfx.copyTo(framebuffer);
+        return new SaveState(c.pc, c.I, c.sp, c.delayTimer, c.soundTimer, c.keys, c.cycles, c.randomState,
+                c.V.clone(), c.stack.clone(), c.gfx.getWidth(), c.gfx.getHeight(), c.gfx.getPlanes(), c.planeMask,
+                framebuffer, pages, c.getFault(), c.getFaultPc(), c.audioPattern.clone(), c.pitch, c.flags.clone());
+    }
+
+    void restore(Chip8 c) {
+        for (int page = 0; page < pages.length; page++) {
+            System.arraycopy(pages[page], 0, c.memory, page << Chip8.PAGE_SHIFT, PAGE_SIZE);
+        }
+        c.savedPages = pages.clone();
+        c.dirtyPages = 0;
+        System.arraycopy(V, 0, c.V, 0, V.length);
+        System.arraycopy(stack, 0, c.stack, 0, stack.length);
+        c.pc = pc;
+        c.I = I;
+        c.sp = sp;
+        c.delayTimer = delayTimer;
+        c.soundTimer = soundTimer;
+        c.keys = keys;
+        c.cycles = cycles;
+        c.generation++;
+        c.randomState = randomState;
+        System.arraycopy(audioPattern, 0, c.audioPattern, 0, audioPattern.length);
+        c.pitch = pitch;
+        c.audioChanged();
+        System.arraycopy(flags, 0, c.flags, 0, flags.length);
+        c.setFramebuffer(width, height, planes);
+        c.gfx.copyFrom(framebuffer);
+        c.planeMask = planeMask;
+        c.restoreFault(fault, faultPc);
+        c.getEngine().reset();
+    }
+
+    public int getPc() {
+        return pc;
+    }
+
+    public long getCycles() {
+        return cycles;
+    }
+
+    public boolean isFaulted() {
+        return fault != null;
+    }
+
+    public byte[] toBytes() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(512);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(MAGIC);
+            out.writeShort(VERSION);
+            out.writeShort(pc);
+            out.writeShort(I);
+            out.writeByte(sp);
+            out.writeByte(delayTimer);
+            out.writeByte(soundTimer);
+            out.writeShort(keys);
+            out.writeLong(cycles);
+            out.writeLong(randomState);
+            out.writeBoolean(fault != null);
+            out.writeShort(faultPc);
+            out.write(audioPattern);
+            out.writeByte(pitch);
+            out.write(V);
+            for (int address : stack) out.writeShort(address);
+            out.writeShort(width);
+            out.writeShort(height);
+            out.writeByte(planes);
+            out.writeByte(planeMask);
+            out.write(flags);
+            for (long word : framebuffer) out.writeLong(word);
+
+            long present = 0;
+            for (int page = 0; page < pages.length; page++) {
+                if (!isZero(pages[page])) present |= 1L << page;
+            }
+            out.writeLong(present);
+            for (int page = 0; page < pages.length; page++) {
+                if ((present >>> page & 1) != 0) out.write(pages[page]);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    public static SaveState fromBytes(byte[] data) {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(data))) {
+            if (in.readInt() != MAGIC) throw new IllegalArgumentException("not a save state");
+            int version = in.readUnsignedShort();
+            if (version != VERSION) throw new IllegalArgumentException("unsupported save state version " + version);
+            int pc = in.readUnsignedShort();
+            int I = in.readUnsignedShort();
+            int sp = in.readUnsignedByte();
+            int delayTimer = in.readUnsignedByte();
+            int soundTimer = in.readUnsignedByte();
+            int keys = in.readUnsignedShort();
+            long cycles = in.readLong();
+            long randomState = in.readLong();
+            RuntimeException fault = in.readBoolean() ? new IllegalStateException("faulted before the save state") : null;
+            int faultPc = in.readUnsignedShort();
+            byte[] audioPattern = new byte[16];
+            in.readFully(audioPattern);
+            int pitch = in.readUnsignedByte();
+            byte[] V = new byte[16];
+            in.readFully(V);
+            int[] stack = new int[16];
+            for (int i = 0; i < stack.length; i++) stack[i] = in.readUnsignedShort();
+            int width = in.readUnsignedShort();
+            int height = in.readUnsignedShort();
+            int planes = in.readUnsignedByte();
+            int planeMask = in.readUnsignedByte();
+            byte[] flags = new byte[16];
+            in.readFully(flags);
+            if (width == 0 || width % 64 != 0 || height == 0 || planes == 0) {
+                throw new IllegalArgumentException("bad save state display " + width + "x" + height + "x" + planes);
+            }
+            long[] framebuffer = new long[(width >>> 6) * height * planes];
+            for (int i = 0; i < framebuffer.length; i++) framebuffer[i] = in.readLong();
+
+            long present = in.readLong();
+            byte[][] pages = new byte[Chip8.PAGE_COUNT][];
+            byte[] zero = new byte[PAGE_SIZE];
+            for (int page = 0; page < pages.length; page++) {
+                if ((present >>> page & 1) != 0) {
+                    pages[page] = new byte[PAGE_SIZE];
+                    in.readFully(pages[page]);
+                } else {
+                    pages[page] = zero;
+                }
+            }
+            return new SaveState(pc, I, sp, delayTimer, soundTimer, keys, cycles, randomState,
+                    V, stack, width, height, planes, planeMask, framebuffer, pages, fault, faultPc,
+                    audioPattern, pitch, flags);
+        } catch (IOException e) {
+            throw new IllegalArgumentException("truncated save state", e);
+        }
+    }
+
+    private static boolean isZero(byte[] page) {
+        for (byte b : page) {
+            if (b != 0) return false;
+        }
+        return true;
+    }
+}
@@ -0,0 +1,218 @@
+package dev.swell.chip8;
+
+import java.util.Arrays;
+
+/**
+ * Interpretador de código "threaded": cada endereço tem um handler já decodificado, de modo que uma instrução
+ * custa um acesso ao array e uma chamada. Sequências comuns viram superinstruções:
+ * <ul>
+ *     <li>{@code FX07 / 3XKK / 1NNN} voltando ao FX07 (espera pelo delay timer), que gira todas as voltas que
+ *     cabem no quadro de uma vez, já que o timer só muda entre quadros;</li>
+ *     <li>{@code 6XKK + DXYN}, carregando a coordenada e desenhando num único despacho.</li>
+ * </ul>
+ * Escritas em memória descartam os handlers que cobrem os bytes escritos, que são decodificados de novo
+ * quando o {@code pc} passar por lá.
+ */
+public class ThreadedInterpreter implements ExecutionEngine {
+
+    // maior trecho coberto por um handler (a espera do timer ocupa 3 instruções)
+    private static final int MAX_SPAN = 6;
+
+    @FunctionalInterface
+    interface Handler {
+        /**
+         * Executa com {@code pc} já apontando para depois da primeira instrução e retorna quantas instruções
+         * executou, nunca mais que {@code budget}.
+         */
+        int run(Chip8 c, int budget);
+    }
+
+    private final Handler[] handlers = new Handler[Chip8.MEMORY_SIZE];
+    private final byte[] operations = new byte[Chip8.MEMORY_SIZE]; //primeira operação de cada handler
+    private final boolean superinstructions;
+    private boolean predecode = true;
+
+    public ThreadedInterpreter() {
+        this(true);
+    }
+
+    public ThreadedInterpreter(boolean superinstructions) {
+        this.superinstructions = superinstructions;
+    }
+
+    @Override
+    public int execute(Chip8 chip8, int budget) {
+        if (predecode) {
+            for (int a = Chip8.PROGRAM_START; a + 1 < handlers.length; a += 2) {
+                handlers[a] = decode(chip8.memory, a);
+            }
+            predecode = false;
+        }
+        int done = 0;
+        while (done < budget && !chip8.isFaulted()) {
+            int pc = chip8.pc;
+            if (pc < 0 || pc + 1 >= handlers.length) {
+                // deixa o interpretador produzir a mesma falha
+                chip8.cycle();
+                done++;
+                continue;
+            }
+            Handler handler = handlers[pc];
+            if (handler == null) handler = handlers[pc] = decode(chip8.memory, pc);
+            chip8.operationCounts[operations[pc]]++;
+            chip8.pc = pc + 2;
+            try {
+                int executed = handler.run(chip8, budget - done);
+                chip8.cycles += executed;
+                done += executed;
+            } catch (RuntimeException e) {
+                int completed = (chip8.pc - 2 - pc) >> 1;
+                chip8.cycles += completed;
+                chip8.fault(e, chip8.pc - 2);
+                return done + completed + 1;
+            }
+        }
+        return done;
+    }
+
+    @Override
+    public void prepare(Chip8 chip8, ControlFlow flow) {
+        // só as instruções alcançáveis, inclusive em endereço ímpar; o que a análise não viu é decodificado quando
+        // o pc passar por lá
+        for (int address : flow.getInstructions()) handlers[address] = decode(chip8.memory, address);
+        predecode = false;
+    }
+
+    @Override
+    public void invalidate(int address, int length) {
+        int from = Math.max(address - MAX_SPAN + 1, 0);
+        int to = Math.min(address + length, handlers.length);
+        for (int a = from; a < to; a++) handlers[a] = null;
+    }
+
+    @Override
+    public void reset() {
+        Arrays.fill(handlers, null);
+        predecode = true;
+    }
+
+    private Handler decode(byte[] memory, int address) {
+        int word = word(memory, address);
+        operations[address] = (byte) Opcode.operation(word);
+        if (superinstructions) {
+            Handler fused = fuse(memory, address, word);
+            if (fused != null) return fused;
+        }
+        return single(word);
+    }
+
+    private static int word(byte[] memory, int address) {
+        if (address < 0 || address + 1 >= memory.length) return -1;
+        return (memory[address] & 0xFF) << 8 | (memory[address + 1] & 0xFF);
+    }
+
+    private static Handler fuse(byte[] memory, int address, int word) {
+        int operation = Opcode.operation(word);
+        int next = word(memory, address + 2);
+        if (next < 0) return null;
+
+        if (operation == Opcode.LD_VX_DT && Opcode.operation(next) == Opcode.SE_VX_KK
+                && Opcode.x(next) == Opcode.x(word) && word(memory, address + 4) == (0x1000 | address)) {
+            return timerWait(address, word, next);
+        }
+        if (operation == Opcode.LD_VX_KK && Opcode.operation(next) == Opcode.DRW) {
+            return loadAndDraw(address, word, next);
+        }
+        return null;
+    }
+
+    private static Handler timerWait(int address, int load, int test) {
+        int x = Opcode.x(load);
+        int kk = Opcode.kk(test);
+        Handler first = single(load);
+        return (c, budget) -> {
+            if (budget < 3) return first.run(c, budget);
+            c.V[x] = (byte) c.delayTimer;
+            if ((c.delayTimer & 0xFF) == kk) {
+                // timer chegou: FX07 + 3XKK pulando o JP
+                c.pc = address + 6;
+                c.operationCounts[Opcode.SE_VX_KK]++;
+                return 2;
+            }
+            // o timer não muda dentro do quadro: todas as voltas completas que cabem no orçamento
+            c.pc = address;
+            int loops = budget / 3;
+            c.operationCounts[Opcode.LD_VX_DT] += loops - 1;
+            c.operationCounts[Opcode.SE_VX_KK] += loops;
+            c.operationCounts[Opcode.JP] += loops;
+            return loops * 3;
+        };
+    }
+
+    private static Handler loadAndDraw(int address, int load, int draw) {
+        return (c, budget) -> {
+            Ops.ldVxKk(c, load);
+            if (budget < 2) return 1;
+            c.pc = address + 4;
+            c.operationCounts[Opcode.DRW]++;
+            Ops.drw(c, draw);
+            return 2;
+        };
+    }
+
+    private static Handler single(int word) {
+        return switch (Opcode.operation(word)) {
+            case Opcode.CLS -> (c, budget) -> { Ops.cls(c, word); return 1; };
+            case Opcode.RET -> (c, budget) -> { Ops.ret(c, word); return 1; };
+            case Opcode.JP -> (c, budget) -> { Ops.jp(c, word); return 1; };
+            case Opcode.CALL -> (c, budget) -> { Ops.call(c, word); return 1; };
+            case Opcode.SE_VX_KK -> (c, budget) -> { Ops.seVxKk(c, word); return 1; };
+            case Opcode.SNE_VX_KK -> (c, budget) -> { Ops.sneVxKk(c, word); return 1; };
+            case Opcode.SE_VX_VY -> (c, budget) -> { Ops.seVxVy(c, word); return 1; };
+            case Opcode.LD_VX_KK -> (c, budget) -> { Ops.ldVxKk(c, word); return 1; };
+            case Opcode.ADD_VX_KK -> (c, budget) -> { Ops.addVxKk(c, word); return 1; };
+            case Opcode.LD_VX_VY -> (c, budget) -> { Ops.ldVxVy(c, word); return 1; };
+            case Opcode.OR -> (c, budget) -> { Ops.or(c, word); return 1; };
+            case Opcode.AND -> (c, budget) -> { Ops.and(c, word); return 1; };
+            case Opcode.XOR -> (c, budget) -> { Ops.xor(c, word); return 1; };
+            case Opcode.ADD_VX_VY -> (c, budget) -> { Ops.addVxVy(c, word); return 1; };
+            case Opcode.SUB -> (c, budget) -> { Ops.sub(c, word); return 1; };
+            case Opcode.SHR -> (c, budget) -> { Ops.shr(c, word); return 1; };
+            case Opcode.SUBN -> (c, budget) -> { Ops.subn(c, word); return 1; };
+            case Opcode.SHL -> (c, budget) -> { Ops.shl(c, word); return 1; };
+            case Opcode.SNE_VX_VY -> (c, budget) -> { Ops.sneVxVy(c, word); return 1; };
+            case Opcode.LD_I -> (c, budget) -> { Ops.ldI(c, word); return 1; };
+            case Opcode.JP_V0 -> (c, budget) -> { Ops.jpV0(c, word); return 1; };
+            case Opcode.RND -> (c, budget) -> { Ops.rnd(c, word); return 1; };
+            case Opcode.DRW -> (c, budget) -> { Ops.drw(c, word); return 1; };
+            case Opcode.SKP -> (c, budget) -> { Ops.skp(c, word); return 1; };
+            case Opcode.SKNP -> (c, budget) -> { Ops.sknp(c, word); return 1; };
+            case Opcode.LD_VX_DT -> (c, budget) -> { Ops.ldVxDt(c, word); return 1; };
+            case Opcode.LD_VX_K -> (c, budget) -> { Ops.ldVxK(c, word); return 1; };
+            case Opcode.LD_DT_VX -> (c, budget) -> { Ops.ldDtVx(c, word); return 1; };
+            case Opcode.LD_ST_VX -> (c, budget) -> { Ops.ldStVx(c, word); return 1; };
+            case Opcode.ADD_I_VX -> (c, budget) -> { Ops.addIVx(c, word); return 1; };
+            case Opcode.LD_F_VX -> (c, budget) -> { Ops.ldFVx(c, word); return 1; };
+            case Opcode.LD_B_VX -> (c, budget) -> { Ops.ldBVx(c, word); return 1; };
+            case Opcode.LD_MEM_VX -> (c, budget) -> { Ops.ldMemVx(c, word); return 1; };
+            case Opcode.LD_VX_MEM -> (c, budget) -> { Ops.ldVxMem(c, word); return 1; };
+            case Opcode.AUDIO -> (c, budget) -> { Ops.audio(c, word); return 1; };
+            case Opcode.PITCH -> (c, budget) -> { Ops.pitch(c, word); return 1; };
+            case Opcode.SCD -> (c, budget) -> { Ops.scd(c, word); return 1; };
+            case Opcode.SCR -> (c, budget) -> { Ops.scr(c, word); return 1; };
+            case Opcode.SCL -> (c, budget) -> { Ops.scl(c, word); return 1; };
+            case Opcode.EXIT -> (c, budget) -> { Ops.exit(c, word); return 1; };
+            case Opcode.LOW -> (c, budget) -> { Ops.low(c, word); return 1; };
+            case Opcode.HIGH -> (c, budget) -> { Ops.high(c, word); return 1; };
+            case Opcode.LD_HF_VX -> (c, budget) -> { Ops.ldHfVx(c, word); return 1; };
+            case Opcode.LD_R_VX -> (c, budget) -> { Ops.ldRVx(c, word); return 1; };
+            case Opcode.LD_VX_R -> (c, budget) -> { Ops.ldVxR(c, word); return 1; };
+            case Opcode.SCU -> (c, budget) -> { Ops.scu(c, word); return 1; };
+            case Opcode.SAVE_RANGE -> (c, budget) -> { Ops.saveRange(c, word); return 1; };
+            case Opcode.LOAD_RANGE -> (c, budget) -> { Ops.loadRange(c, word); return 1; };
+            case Opcode.LD_I_LONG -> (c, budget) -> { Ops.ldILong(c, word); return 1; };
+            case Opcode.PLANE -> (c, budget) -> { Ops.plane(c, word); return 1; };
+            default -> (c, budget) -> 1;
+        };
+    }
+}
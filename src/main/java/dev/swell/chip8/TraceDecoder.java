@@ -0,0 +1,90 @@
+package dev.swell.chip8;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Lê um arquivo de {@link TraceRecorder} (mapeado em memória) e escreve uma linha por instrução com o
+ * ciclo, o pc, o mnemônico de {@link Opcode#mnemonic()} e os registradores de antes da instrução.
+ */
+public final class TraceDecoder {
+
+    // janelas de mapeamento múltiplas do tamanho do registro
+    private static final long WINDOW = (1L << 30) / TraceRecorder.RECORD_SIZE * TraceRecorder.RECORD_SIZE;
+    private static final HexFormat HEX = HexFormat.of();
+
+    private TraceDecoder() {
+    }
+
+    /**
+     * Decodifica os registros com ciclo {@code >= fromCycle}, no máximo {@code limit}.
+     */
+    public static long decode(Path file, long fromCycle, long limit, Consumer<String> out) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < TraceRecorder.HEADER_SIZE) throw new IllegalArgumentException("not a trace file");
+            MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, TraceRecorder.HEADER_SIZE);
+            if (header.getInt(0) != TraceRecorder.MAGIC) throw new IllegalArgumentException("not a trace file");
+            int version = header.getShort(4);
+            int recordSize = header.getShort(6);
+            if (version != TraceRecorder.VERSION || recordSize != TraceRecorder.RECORD_SIZE) {
+                throw new IllegalArgumentException("unsupported trace version " + version);
+            }
+
+            long decoded = 0;
+            long end = TraceRecorder.HEADER_SIZE + (size - TraceRecorder.HEADER_SIZE) / recordSize * recordSize;
+            byte[] v = new byte[16];
+            for (long base = TraceRecorder.HEADER_SIZE; base < end && decoded < limit; base += WINDOW) {
+                MappedByteBuffer records = channel.map(FileChannel.MapMode.READ_ONLY, base, Math.min(WINDOW, end - base));
+                for (int r = 0; r < records.capacity() && decoded < limit; r += recordSize) {
+                    long cycle = records.getLong(r + TraceRecorder.CYCLE);
+                    if (cycle < fromCycle) continue;
+                    records.get(r + TraceRecorder.V, v);
+                    out.accept(line(cycle,
+                            records.getShort(r + TraceRecorder.PC) & 0xFFFF,
+                            records.getShort(r + TraceRecorder.OPCODE) & 0xFFFF,
+                            records.getShort(r + TraceRecorder.I) & 0xFFFF,
+                            records.get(r + TraceRecorder.SP) & 0xFF,
+                            records.get(r + TraceRecorder.DELAY_TIMER) & 0xFF,
+                            v));
+                    decoded++;
+                }
+            }
+            return decoded;
+        }
+    }
+
+    static String line(long cycle, int pc, int opcode, int I, int sp, int delayTimer, byte[] v) {
+        return String.format("%10d %03x  %-34s I=%03x SP=%x DT=%02x V=%s",
+                cycle, pc, new Opcode(opcode).mnemonic(), I, sp, delayTimer, HEX.formatHex(v));
+    }
+
+    /**
+     * {@code trace <arquivo> [--from CICLO] [--limit N]}
+     */
+    public static int main(List<String> args) throws IOException {
+        Path file = null;
+        long from = 0;
+        long limit = Long.MAX_VALUE;
+        for (int i = 0; i < args.size(); i++) {
+            String arg = args.get(i);
+            switch (arg) {
+                case "--from" -> from = Long.parseLong(args.get(++i));
+                case "--limit" -> limit = Long.parseLong(args.get(++i));
+                default -> file = Path.of(arg);
+            }
+        }
+        if (file == null) {
+            IO.println("usage: trace <file> [--from CYCLE] [--limit N]");
+            return 2;
+        }
+        decode(file, from, limit, IO::println);
+        return 0;
+    }
+}
@@ -0,0 +1,220 @@
+package dev.swell.chip8;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Trace binário de execução: um registro de {@value #RECORD_SIZE} bytes por instrução, escrito num anel
+ * pré-alocado. Com arquivo, cada vez que o anel enche ele é entregue a uma thread de escrita, que o copia
+ * para uma região mapeada em memória, e a emulação segue num segundo anel (se a escrita atrasar, a emulação
+ * espera: nenhum registro se perde). Se a escrita falhar (disco cheio) ou a thread da emulação for interrompida,
+ * o trace para ali e a falha só aparece em {@link #close()}: a emulação não é derrubada pelo trace. Sem arquivo,
+ * o anel guarda só as últimas instruções e pode ser salvo com {@link #dump(Path)}.
+ * <p>
+ * Formato (big-endian): cabeçalho {@code "C8TR"}, versão e tamanho do registro (8 bytes); cada registro
+ * tem cycle (long), pc, opcode e I (shorts), sp, delay timer e V0..VF, com o estado de antes da instrução.
+ */
+public class TraceRecorder implements AutoCloseable {
+
+    public static final int MAGIC = 0x43385452; // "C8TR"
+    public static final int VERSION = 1;
+    public static final int HEADER_SIZE = 8;
+    public static final int RECORD_SIZE = 32;
+    public static final int DEFAULT_RECORDS = 1 << 16;
+
+    // deslocamentos dentro do registro
+    static final int CYCLE = 0;
+    static final int PC = 8;
+    static final int OPCODE = 10;
+    static final int I = 12;
+    static final int SP = 14;
+    static final int DELAY_TIMER = 15;
+    static final int V = 16;
+
+    private static final VarHandle LONG = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.BIG_ENDIAN);
+    private static final VarHandle SHORT = MethodHandles.byteArrayViewVarHandle(short[].class, ByteOrder.BIG_ENDIAN);
+
+    private record Chunk(byte[] data, int length) {
+    }
+
+    private static final Chunk END = new Chunk(new byte[0], 0);
+
+    private byte[] ring;
+    private final int capacity;
+    private final FileChannel channel;
+    private final BlockingQueue<Chunk> full = new ArrayBlockingQueue<>(1);
+    private final BlockingQueue<byte[]> free = new ArrayBlockingQueue<>(1);
+    private Thread writer;
+    private volatile IOException failure;
+    private boolean stopped;             // depois de uma falha nada mais é gravado
+    private long position = HEADER_SIZE; // próximo byte do arquivo (thread de escrita)
+    private int next = 0;                // próximo registro no anel
+    private int count = 0;               // registros no anel
+    private long total = 0;
+
+    private TraceRecorder(int records, FileChannel channel) {
+        this.capacity = records;
+        this.ring = new byte[records * RECORD_SIZE];
+        this.channel = channel;
+        if (channel != null) {
+            free.add(new byte[records * RECORD_SIZE]);
+            writer = Thread.ofPlatform().name("chip8-trace-writer").daemon().start(this::write);
+        }
+    }
+
+    /**
+     * Grava todas as instruções em {@code file}, despejando o anel de {@code records} registros quando enche.
+     */
+    public static TraceRecorder toFile(Path file, int records) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        channel.write(header(), 0);
+        return new TraceRecorder(records, channel);
+    }
+
+    public static TraceRecorder toFile(Path file) throws IOException {
+        return toFile(file, DEFAULT_RECORDS);
+    }
+
+    /**
+     * Guarda só as últimas {@code records} instruções.
+     */
+    public static TraceRecorder inMemory(int records) {
+        return new TraceRecorder(records, null);
+    }
+
+    public long getRecordCount() {
+        return total;
+    }
+
+    void record(Chip8 c) {
+        if (stopped) return;
+        int pc = c.pc;
+        int offset = next * RECORD_SIZE;
+        byte[] ring = this.ring;
+        LONG.set(ring, offset + CYCLE, c.cycles);
+        SHORT.set(ring, offset + PC, (short) pc);
+        if (pc >= 0 && pc + 1 < Chip8.MEMORY_SIZE) {
+            ring[offset + OPCODE] = c.memory[pc];
+            ring[offset + OPCODE + 1] = c.memory[pc + 1];
+        } else {
+            SHORT.set(ring, offset + OPCODE, (short) 0);
+        }
+        SHORT.set(ring, offset + I, (short) c.I);
+        ring[offset + SP] = (byte) c.sp;
+        ring[offset + DELAY_TIMER] = (byte) c.delayTimer;
+        // V0..VF como dois longs, na ordem dos bytes
+        LONG.set(ring, offset + V, (long) LONG.get(c.V, 0));
+        LONG.set(ring, offset + V + 8, (long) LONG.get(c.V, 8));
+        total++;
+        if (++next == capacity) next = 0;
+        if (count < capacity) count++;
+        if (count == capacity && channel != null) spill();
+    }
+
+    // roda dentro de TracingInterpreter.execute: uma falha encerra o trace em vez de sair pelo motor
+    private void spill() {
+        if (failure != null) {
+            stopped = true;
+            return;
+        }
+        try {
+            full.put(new Chunk(ring, count * RECORD_SIZE));
+            ring = free.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            if (failure == null) failure = new InterruptedIOException("interrupted while spilling the trace");
+            stopped = true;
+            return;
+        }
+        count = 0;
+        next = 0;
+    }
+
+    private void write() {
+        try {
+            for (Chunk chunk = full.take(); chunk != END; chunk = full.take()) {
+                if (failure == null) {
+                    try {
+                        MappedByteBuffer region = channel.map(FileChannel.MapMode.READ_WRITE, position, chunk.length());
+                        region.put(0, chunk.data(), 0, chunk.length());
+                        position += chunk.length();
+                    } catch (IOException e) {
+                        failure = e;
+                    }
+                }
+                free.put(chunk.data());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * As últimas {@code records} instruções ainda no anel, da mais antiga para a mais recente, já decodificadas.
+     */
+    List<String> lastLines(int records) {
+        int n = Math.min(records, count);
+        List<String> lines = new ArrayList<>(n);
+        byte[] v = new byte[16];
+        for (int k = n; k > 0; k--) {
+            int offset = Math.floorMod(next - k, capacity) * RECORD_SIZE;
+            System.arraycopy(ring, offset + V, v, 0, v.length);
+            lines.add(TraceDecoder.line((long) LONG.get(ring, offset + CYCLE),
+                    (short) SHORT.get(ring, offset + PC) & 0xFFFF,
+                    (short) SHORT.get(ring, offset + OPCODE) & 0xFFFF,
+                    (short) SHORT.get(ring, offset + I) & 0xFFFF,
+                    ring[offset + SP] & 0xFF,
+                    ring[offset + DELAY_TIMER] & 0xFF,
+                    v));
+        }
+        return lines;
+    }
+
+    /**
+     * Salva as instruções do anel, da mais antiga para a mais recente, no formato do arquivo.
+     */
+    public void dump(Path file) throws IOException {
+        try (FileChannel out = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.WRITE)) {
+            out.write(header());
+            int first = count < capacity ? 0 : next;
+            int head = Math.min(count, capacity - first);
+            out.write(ByteBuffer.wrap(ring, first * RECORD_SIZE, head * RECORD_SIZE));
+            out.write(ByteBuffer.wrap(ring, 0, (count - head) * RECORD_SIZE));
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (channel == null || writer == null) return;
+        try {
+            if (count > 0 && !stopped) spill();
+            full.put(END);
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            writer = null;
+            channel.force(false);
+            channel.close();
+        }
+        if (failure != null) throw failure;
+    }
+
+    private static ByteBuffer header() {
+        return ByteBuffer.allocate(HEADER_SIZE).putInt(MAGIC).putShort((short) VERSION).putShort((short) RECORD_SIZE).flip();
+    }
+}
@@ -0,0 +1,33 @@
+package dev.swell.chip8;
+
+/**
+ * Interpretador que grava cada instrução num {@link TraceRecorder} antes de executá-la. Só custa algo
+ * quando está instalado com {@link Chip8#setEngine(ExecutionEngine)}; os outros motores não sabem do trace.
+ */
+public class TracingInterpreter implements ExecutionEngine {
+
+    private final TraceRecorder recorder;
+
+    public TracingInterpreter(TraceRecorder recorder) {
+        this.recorder = recorder;
+    }
+
+    public TraceRecorder getRecorder() {
+        return recorder;
+    }
+
+    @Override
+    public int execute(Chip8 chip8, int budget) {
+        for (int i = 0; i < budget; i++) {
+            recorder.record(chip8);
+            chip8.cycle();
+            if (chip8.isFaulted()) return i + 1;
+        }
+        return budget;
+    }
+
+    @Override
+    public boolean observesEveryInstruction() {
+        return true;
+    }
+}
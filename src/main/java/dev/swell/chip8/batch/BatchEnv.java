@@ -0,0 +1,583 @@
+package dev.swell.chip8.batch;
+
+import dev.swell.chip8.Chip8;
+import dev.swell.chip8.Opcode;
+import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Muitas máquinas rodando a mesma ROM em passo travado, para agentes de aprendizado por reforço:
+ * {@link #step(int[])} aplica uma máscara de teclas por ambiente e roda um quadro em todos, sem um objeto
+ * {@link Chip8} por máquina. O estado fica em struct-of-arrays: cada registrador é um array indexado pelo
+ * ambiente e a memória é intercalada por endereço, de modo que máquinas no mesmo pc buscam bytes vizinhos.
+ * Quando todas buscam a mesma palavra, as operações de ALU rodam em todas de uma vez com a Vector API; o resto
+ * é executado máquina a máquina com a mesma semântica de {@code Ops}.
+ * <p>
+ * Cada ambiente termina exatamente no estado de um {@code Chip8} com a mesma ROM, semente
+ * {@code seed + ambiente} e teclas rodando {@code runFrame(instructionsPerStep, false)}. Só o conjunto
+ * CHIP-8 original: operações SUPER-CHIP/XO-CHIP param a máquina como uma falha.
+ */
+public final class BatchEnv {
+
+    // observação de um ambiente: uma palavra por linha de 64 pixels, pixel x no bit 63 - x (como Framebuffer)
+    public static final int SCREEN_WORDS = Chip8.DISPLAY_HEIGHT;
+
+    private static final VectorSpecies<Byte> BYTES = ByteVector.SPECIES_PREFERRED;
+    private static final ByteVector ZERO = ByteVector.zero(BYTES);
+    private static final ByteVector ONE = ByteVector.broadcast(BYTES, (byte) 1);
+    private static final int STACK_DEPTH = 16;
+    private static final long RANDOM_MASK = (1L << 48) - 1;
+
+    private final int size;
+    private final int instructionsPerStep;
+    private final long seed;
+    private final byte[] image; // memória logo após o loadRom: fonte e ROM
+
+    private final byte[] memory; // também por endereço: o byte A do ambiente E fica em A * size + E
+    private final byte[][] v = new byte[16][];
+    private final int[] pc;
+    private final int[] index;
+    private final int[] sp;
+    private final int[] stack;
+    private final int[] delayTimer;
+    private final int[] soundTimer;
+    private final int[] keys;
+    private final long[] random;
+    private final long[] cycles;
+    private final boolean[] faulted;
+    private final long[] screen;
+    private final int[] words;
+    private int faultedCount;
+
+    public BatchEnv(byte[] rom, int size) {
+        this(rom, size, Chip8.DEFAULT_INSTRUCTIONS_PER_FRAME, RomFarm.SEED);
+    }
+
+    public BatchEnv(byte[] rom, int size, int instructionsPerStep, long seed) {
+        if (size <= 0) throw new IllegalArgumentException("size must be positive");
+        Chip8 chip8 = new Chip8();
+        chip8.loadRom(rom);
+        this.image = chip8.getMemory().clone();
+        this.size = size;
+        this.instructionsPerStep = instructionsPerStep;
+        this.seed = seed;
+        memory = new byte[Chip8.MEMORY_SIZE * size];
+        for (int r = 0; r < v.length; r++) v[r] = new byte[size];
+        pc = new int[size];
+        index = new int[size];
+        sp = new int[size];
+        stack = new int[size * STACK_DEPTH];
+        delayTimer = new int[size];
+        soundTimer = new int[size];
+        keys = new int[size];
+        random = new long[size];
+        cycles = new long[size];
+        faulted = new boolean[size];
+        screen = new long[size * SCREEN_WORDS];
+        words = new int[size];
+        reset();
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int getInstructionsPerStep() {
+        return instructionsPerStep;
+    }
+
+    /**
+     * Reinicia todos os ambientes e devolve as observações.
+     */
+    public long[] reset() {
+        for (int e = 0; e < size; e++) reset(e);
+        return screen;
+    }
+
+    public void reset(int env) {
+        for (int a = 0; a < image.length; a++) memory[a * size + env] = image[a];
+        for (byte[] register : v) register[env] = 0;
+        pc[env] = Chip8.PROGRAM_START;
+        index[env] = 0;
+        sp[env] = 0;
+        Arrays.fill(stack, env * STACK_DEPTH, (env + 1) * STACK_DEPTH, 0);
+        delayTimer[env] = 0;
+        soundTimer[env] = 0;
+        keys[env] = 0;
+        // o mesmo gerador de Chip8.setRandomSeed/nextRandomByte
+        random[env] = ((seed + env) ^ 0x5DEECE66DL) & RANDOM_MASK;
+        cycles[env] = 0;
+        if (faulted[env]) faultedCount--;
+        faulted[env] = false;
+        Arrays.fill(screen, env * SCREEN_WORDS, (env + 1) * SCREEN_WORDS, 0);
+    }
+
+    /**
+     * Um quadro em todos os ambientes: {@code actions[e]} é a máscara das teclas pressionadas no ambiente
+     * {@code e}. Devolve as observações, {@link #SCREEN_WORDS} palavras por ambiente; o array é o próprio
+     * estado e muda no próximo passo.
+     */
+    public long[] step(int[] actions) {
+        if (actions.length != size) throw new IllegalArgumentException("expected " + size + " actions, got " + actions.length);
+        for (int e = 0; e < size; e++) keys[e] = actions[e] & 0xFFFF;
+        for (int i = 0; i < instructionsPerStep && faultedCount < size; i++) {
+            int word = fetch();
+            if (word >= 0) {
+                executeUniform(word);
+            } else {
+                for (int e = 0; e < size; e++) {
+                    if (!faulted[e]) execute(e, words[e]);
+                }
+            }
+        }
+        for (int e = 0; e < size; e++) {
+            if (delayTimer[e] > 0) delayTimer[e]--;
+            if (soundTimer[e] > 0) soundTimer[e]--;
+        }
+        return screen;
+    }
+
+    public long[] observations() {
+        return screen;
+    }
+
+    public boolean isPixelSet(int env, int x, int y) {
+        return (screen[env * SCREEN_WORDS + y] << x) < 0;
+    }
+
+    public int getV(int env, int register) {
+        return v[register][env] & 0xFF;
+    }
+
+    public int getI(int env) {
+        return index[env];
+    }
+
+    public int getPc(int env) {
+        return pc[env];
+    }
+
+    public int getSp(int env) {
+        return sp[env];
+    }
+
+    public int getDelayTimer(int env) {
+        return delayTimer[env];
+    }
+
+    public int getSoundTimer(int env) {
+        return soundTimer[env];
+    }
+
+    public long getCycles(int env) {
+        return cycles[env];
+    }
+
+    public int readMemory(int env, int address) {
+        return memory[address * size + env] & 0xFF;
+    }
+
+    public boolean isFaulted(int env) {
+        return faulted[env];
+    }
+
+    /**
+     * Busca a palavra de cada máquina; devolve a palavra se todas estão rodando e buscaram a mesma, senão -1.
+     */
+    private int fetch() {
+        int first = -1;
+        boolean uniform = faultedCount == 0;
+        for (int e = 0; e < size; e++) {
+            if (faulted[e]) continue;
+            int p = pc[e];
+            if (p + 1 >= Chip8.MEMORY_SIZE) {
+                fault(e);
+                uniform = false;
+                continue;
+            }
+            int address = p * size + e;
+            int word = (memory[address] & 0xFF) << 8 | (memory[address + size] & 0xFF);
+            words[e] = word;
+            if (first < 0) first = word;
+            else if (word != first) uniform = false;
+        }
+        return uniform ? first : -1;
+    }
+
+    private void executeUniform(int word) {
+        int x = Opcode.x(word);
+        int y = Opcode.y(word);
+        int operation = Opcode.operation(word);
+        if (operation == Opcode.JP) {
+            Arrays.fill(pc, Opcode.nnn(word));
+            for (int e = 0; e < size; e++) cycles[e]++;
+            return;
+        }
+        int vectorized = switch (operation) {
+            case Opcode.LD_I -> {
+                Arrays.fill(index, Opcode.nnn(word));
+                yield size;
+            }
+            case Opcode.LD_VX_KK -> {
+                Arrays.fill(v[x], (byte) Opcode.kk(word));
+                yield size;
+            }
+            case Opcode.LD_VX_VY -> {
+                System.arraycopy(v[y], 0, v[x], 0, size);
+                yield size;
+            }
+            case Opcode.ADD_VX_KK -> addVxKk(x, (byte) Opcode.kk(word));
+            case Opcode.OR -> logic(VectorOperators.OR, x, y);
+            case Opcode.AND -> logic(VectorOperators.AND, x, y);
+            case Opcode.XOR -> logic(VectorOperators.XOR, x, y);
+            case Opcode.ADD_VX_VY -> addVxVy(x, y);
+            case Opcode.SUB -> sub(x, x, y);
+            case Opcode.SUBN -> sub(x, y, x);
+            // com X = F o resultado é calculado a partir do VF já escrito: fica para o caminho escalar
+            case Opcode.SHR -> x == 0xF ? 0 : shr(x);
+            case Opcode.SHL -> x == 0xF ? 0 : shl(x);
+            default -> 0;
+        };
+        for (int e = 0; e < vectorized; e++) {
+            pc[e] += 2;
+            cycles[e]++;
+        }
+        for (int e = vectorized; e < size; e++) execute(e, word);
+    }
+
+    private int addVxKk(int x, byte kk) {
+        byte[] vx = v[x];
+        int bound = BYTES.loopBound(size);
+        for (int e = 0; e < bound; e += BYTES.length()) {
+            ByteVector.fromArray(BYTES, vx, e).add(kk).intoArray(vx, e);
+        }
+        return bound;
+    }
+
+    private int logic(VectorOperators.Binary op, int x, int y) {
+        byte[] vx = v[x];
+        byte[] vy = v[y];
+        int bound = BYTES.loopBound(size);
+        for (int e = 0; e < bound; e += BYTES.length()) {
+            ByteVector.fromArray(BYTES, vx, e).lanewise(op, ByteVector.fromArray(BYTES, vy, e)).intoArray(vx, e);
+        }
+        return bound;
+    }
+
+    private int addVxVy(int x, int y) {
+        byte[] vx = v[x];
+        byte[] vy = v[y];
+        byte[] vf = v[0xF];
+        int bound = BYTES.loopBound(size);
+        for (int e = 0; e < bound; e += BYTES.length()) {
+            ByteVector a = ByteVector.fromArray(BYTES, vx, e);
+            ByteVector sum = a.add(ByteVector.fromArray(BYTES, vy, e));
+            flag(sum.compare(VectorOperators.ULT, a)).intoArray(vf, e);
+            sum.intoArray(vx, e);
+        }
+        return bound;
+    }
+
+    // VX = VA - VB, VF = VA > VB: SUB com (a, b) = (x, y), SUBN com (y, x)
+    private int sub(int x, int a, int b) {
+        byte[] vx = v[x];
+        byte[] va = v[a];
+        byte[] vb = v[b];
+        byte[] vf = v[0xF];
+        int bound = BYTES.loopBound(size);
+        for (int e = 0; e < bound; e += BYTES.length()) {
+            ByteVector left = ByteVector.fromArray(BYTES, va, e);
+            ByteVector right = ByteVector.fromArray(BYTES, vb, e);
+            flag(left.compare(VectorOperators.UGT, right)).intoArray(vf, e);
+            left.sub(right).intoArray(vx, e);
+        }
+        return bound;
+    }
+
+    private int shr(int x) {
+        byte[] vx = v[x];
+        byte[] vf = v[0xF];
+        int bound = BYTES.loopBound(size);
+        for (int e = 0; e < bound; e += BYTES.length()) {
+            ByteVector a = ByteVector.fromArray(BYTES, vx, e);
+            a.and((byte) 1).intoArray(vf, e);
+            a.lanewise(VectorOperators.LSHR, 1).intoArray(vx, e);
+        }
+        return bound;
+    }
+
+    private int shl(int x) {
+        byte[] vx = v[x];
+        byte[] vf = v[0xF];
+        int bound = BYTES.loopBound(size);
+        for (int e = 0; e < bound; e += BYTES.length()) {
+            ByteVector a = ByteVector.fromArray(BYTES, vx, e);
+            a.lanewise(VectorOperators.LSHR, 7).intoArray(vf, e);
+            a.lanewise(VectorOperators.LSHL, 1).intoArray(vx, e);
+        }
+        return bound;
+    }
+
+    private static ByteVector flag(VectorMask<Byte> mask) {
+        return ZERO.blend(ONE, mask);
+    }
+
+    /**
+     * Uma instrução em uma máquina, com a semântica de {@code Ops}; onde o {@code Chip8} lançaria uma exceção
+     * a máquina para com o mesmo estado parcial.
+     */
+    private void execute(int e, int word) {
+        int p = pc[e] + 2;
+        pc[e] = p;
+        int x = Opcode.x(word);
+        int y = Opcode.y(word);
+        int kk = Opcode.kk(word);
+        byte[] vx = v[x];
+        byte[] vf = v[0xF];
+        switch (Opcode.operation(word)) {
+            case Opcode.NOP -> {
+            }
+            case Opcode.CLS -> Arrays.fill(screen, e * SCREEN_WORDS, (e + 1) * SCREEN_WORDS, 0);
+            case Opcode.RET -> {
+                if (--sp[e] < 0) {
+                    fault(e);
+                    return;
+                }
+                pc[e] = stack[e * STACK_DEPTH + sp[e]];
+            }
+            case Opcode.JP -> pc[e] = Opcode.nnn(word);
+            case Opcode.CALL -> {
+                if (sp[e] >= STACK_DEPTH) {
+                    fault(e);
+                    return;
+                }
+                stack[e * STACK_DEPTH + sp[e]++] = p;
+                pc[e] = Opcode.nnn(word);
+            }
+            case Opcode.SE_VX_KK -> {
+                if ((vx[e] & 0xFF) == kk) skip(e);
+            }
+            case Opcode.SNE_VX_KK -> {
+                if ((vx[e] & 0xFF) != kk) skip(e);
+            }
+            case Opcode.SE_VX_VY -> {
+                if (vx[e] == v[y][e]) skip(e);
+            }
+            case Opcode.SNE_VX_VY -> {
+                if (vx[e] != v[y][e]) skip(e);
+            }
+            case Opcode.LD_VX_KK -> vx[e] = (byte) kk;
+            case Opcode.ADD_VX_KK -> vx[e] = (byte) ((vx[e] & 0xFF) + kk);
+            case Opcode.LD_VX_VY -> vx[e] = v[y][e];
+            case Opcode.OR -> vx[e] = (byte) (vx[e] | v[y][e]);
+            case Opcode.AND -> vx[e] = (byte) (vx[e] & v[y][e]);
+            case Opcode.XOR -> vx[e] = (byte) (vx[e] ^ v[y][e]);
+            case Opcode.ADD_VX_VY -> {
+                int sum = (vx[e] & 0xFF) + (v[y][e] & 0xFF);
+                vf[e] = (byte) (sum > 0xFF ? 1 : 0);
+                vx[e] = (byte) sum;
+            }
+            case Opcode.SUB -> {
+                int a = vx[e] & 0xFF;
+                int b = v[y][e] & 0xFF;
+                vf[e] = (byte) (a > b ? 1 : 0);
+                vx[e] = (byte) (a - b);
+            }
+            case Opcode.SUBN -> {
+                int a = vx[e] & 0xFF;
+                int b = v[y][e] & 0xFF;
+                vf[e] = (byte) (b > a ? 1 : 0);
+                vx[e] = (byte) (b - a);
+            }
+            case Opcode.SHR -> {
+                vf[e] = (byte) (vx[e] & 0x01);
+                vx[e] = (byte) ((vx[e] & 0xFF) >> 1);
+            }
+            case Opcode.SHL -> {
+                vf[e] = (byte) ((vx[e] & 0x80) >> 7);
+                vx[e] = (byte) ((vx[e] & 0xFF) << 1);
+            }
+            case Opcode.LD_I -> index[e] = Opcode.nnn(word);
+            case Opcode.JP_V0 -> pc[e] = Opcode.nnn(word) + (v[0][e] & 0xFF);
+            case Opcode.RND -> {
+                long state = (random[e] * 0x5DEECE66DL + 0xBL) & RANDOM_MASK;
+                random[e] = state;
+                vx[e] = (byte) ((int) (state >>> 40) & kk);
+            }
+            case Opcode.DRW -> {
+                if (!draw(e, vx[e] & 0xFF, v[y][e] & 0xFF, Opcode.n(word))) return;
+            }
+            case Opcode.SKP -> {
+                if ((keys[e] >> (vx[e] & 0xF) & 1) != 0) skip(e);
+            }
+            case Opcode.SKNP -> {
+                if ((keys[e] >> (vx[e] & 0xF) & 1) == 0) skip(e);
+            }
+            case Opcode.LD_VX_DT -> vx[e] = (byte) delayTimer[e];
+            case Opcode.LD_VX_K -> {
+                if (keys[e] != 0) vx[e] = (byte) Integer.numberOfTrailingZeros(keys[e]);
+                else pc[e] -= 2;
+            }
+            case Opcode.LD_DT_VX -> delayTimer[e] = vx[e] & 0xFF;
+            case Opcode.LD_ST_VX -> soundTimer[e] = vx[e] & 0xFF;
+            case Opcode.ADD_I_VX -> index[e] = (index[e] + (vx[e] & 0xFF)) & 0xFFFF;
+            case Opcode.LD_F_VX -> index[e] = Chip8.FONTSET_START + (vx[e] & 0xFF) * 5;
+            case Opcode.LD_B_VX -> {
+                // tudo ou nada, como em Ops.ldBVx
+                if (index[e] + 3 > Chip8.MEMORY_SIZE) {
+                    fault(e);
+                    return;
+                }
+                int value = vx[e] & 0xFF;
+                for (int d = 0, divisor = 100; d < 3; d++, divisor /= 10) {
+                    memory[(index[e] + d) * size + e] = (byte) (value / divisor % 10);
+                }
+            }
+            case Opcode.LD_MEM_VX -> {
+                if (index[e] + x + 1 > Chip8.MEMORY_SIZE) {
+                    fault(e);
+                    return;
+                }
+                for (int r = 0; r <= x; r++) memory[(index[e] + r) * size + e] = v[r][e];
+            }
+            case Opcode.LD_VX_MEM -> {
+                if (index[e] + x + 1 > Chip8.MEMORY_SIZE) {
+                    fault(e);
+                    return;
+                }
+                for (int r = 0; r <= x; r++) v[r][e] = memory[(index[e] + r) * size + e];
+            }
+            default -> {
+                fault(e);
+                return;
+            }
+        }
+        cycles[e]++;
+    }
+
+    // pula a próxima instrução; F000 NNNN ocupa 4 bytes
+    private void skip(int e) {
+        int p = pc[e];
+        int address = p * size + e;
+        boolean longLoad = p + 1 < Chip8.MEMORY_SIZE && memory[address] == (byte) 0xF0 && memory[address + size] == 0;
+        pc[e] = p + (longLoad ? 4 : 2);
+    }
+
+    // Framebuffer.drawSprite/drawWideSprite numa tela de 64x32; as linhas anteriores a um acesso fora da
+    // memória ficam desenhadas, como no Chip8
+    private boolean draw(int e, int x, int y, int n) {
+        x %= Chip8.DISPLAY_WIDTH;
+        y %= Chip8.DISPLAY_HEIGHT;
+        int base = e * SCREEN_WORDS;
+        int address = index[e];
+        boolean wide = n == 0;
+        int height = wide ? 16 : n;
+        int bytesPerRow = wide ? 2 : 1;
+        boolean collision = false;
+        for (int row = 0; row < height; row++) {
+            int a = address + row * bytesPerRow;
+            if (a + bytesPerRow > Chip8.MEMORY_SIZE) {
+                fault(e);
+                return false;
+            }
+            long bits = (memory[a * size + e] & 0xFFL) << 56;
+            if (wide) bits |= (memory[(a + 1) * size + e] & 0xFFL) << 48;
+            int r = base + (y + row) % Chip8.DISPLAY_HEIGHT;
+            long sprite = Long.rotateRight(bits, x);
+            long old = screen[r];
+            collision |= (old & sprite) != 0;
+            screen[r] = old ^ sprite;
+        }
+        v[0xF][e] = (byte) (collision ? 1 : 0);
+        return true;
+    }
+
+    private void fault(int e) {
+        faulted[e] = true;
+        faultedCount++;
+    }
+
+    /**
+     * {@code env <rom> [--envs N] [--steps N] [--ipf N] [--threads N]}: roda {@code --threads} lotes de
+     * {@code --envs} ambientes com ações aleatórias e mede passos de ambiente por segundo por núcleo.
+     */
+    public static int main(List<String> args) throws IOException, InterruptedException {
+        Path romFile = null;
+        int envs = 1024;
+        int steps = 1000;
+        int ipf = Chip8.DEFAULT_INSTRUCTIONS_PER_FRAME;
+        int threads = 1;
+        for (int i = 0; i < args.size(); i++) {
+            String arg = args.get(i);
+            switch (arg) {
+                case "--envs" -> envs = Integer.parseInt(args.get(++i));
+                case "--steps" -> steps = Integer.parseInt(args.get(++i));
+                case "--ipf" -> ipf = Integer.parseInt(args.get(++i));
+                case "--threads" -> threads = Integer.parseInt(args.get(++i));
+                default -> romFile = Path.of(arg);
+            }
+        }
+        if (romFile == null) {
+            IO.println("usage: env <rom> [--envs N] [--steps N] [--ipf N] [--threads N]");
+            return 2;
+        }
+        byte[] rom = Files.readAllBytes(romFile);
+        int batch = envs;
+        int stepCount = steps;
+        int instructions = ipf;
+
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<Long>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                long seed = RomFarm.SEED + (long) t * batch;
+                futures.add(pool.submit(() -> rollout(rom, batch, stepCount, instructions, seed)));
+            }
+            long nanos = 0;
+            for (Future<Long> future : futures) {
+                try {
+                    nanos = Math.max(nanos, future.get());
+                } catch (ExecutionException e) {
+                    throw new IllegalStateException(e.getCause());
+                }
+            }
+            double envSteps = (double) envs * steps * threads;
+            double perSecond = envSteps / (nanos / 1e9);
+            IO.println(String.format("%s: %d x %d envs, %d steps of %d instructions in %.1f ms, %.0f env-steps/s, %.0f env-steps/s/core (%d-byte vectors)",
+                    romFile.getFileName(), threads, envs, steps, ipf, nanos / 1e6, perSecond, perSecond / threads, BYTES.vectorByteSize()));
+        } finally {
+            pool.shutdownNow();
+        }
+        return 0;
+    }
+
+    // ações aleatórias (nenhuma tecla ou uma só), como um agente explorando
+    private static long rollout(byte[] rom, int envs, int steps, int instructions, long seed) {
+        BatchEnv env = new BatchEnv(rom, envs, instructions, seed);
+        SplittableRandom random = new SplittableRandom(seed);
+        int[] actions = new int[envs];
+        long start = System.nanoTime();
+        for (int s = 0; s < steps; s++) {
+            for (int e = 0; e < envs; e++) {
+                int key = random.nextInt(17);
+                actions[e] = key == 16 ? 0 : 1 << key;
+            }
+            env.step(actions);
+        }
+        return System.nanoTime() - start;
+    }
+}
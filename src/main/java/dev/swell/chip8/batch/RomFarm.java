@@ -0,0 +1,198 @@
+package dev.swell.chip8.batch;
+
+import dev.swell.chip8.Chip8;
+import dev.swell.chip8.EngineType;
+import dev.swell.chip8.TraceRecorder;
+import dev.swell.chip8.TracingInterpreter;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+
+/**
+ * Roda cada {@code .ch8} de um diretório em uma máquina headless própria por N quadros, distribuindo as
+ * ROMs entre todos os núcleos com um pool work-stealing.
+ */
+public class RomFarm {
+
+    public static final int DEFAULT_FRAMES = 600;
+    public static final long SEED = 0x5eed_c8L;
+
+    private int frames = DEFAULT_FRAMES;
+    private int instructionsPerFrame = Chip8.DEFAULT_INSTRUCTIONS_PER_FRAME;
+    private EngineType engine = EngineType.INTERPRETER;
+    private int parallelism = Runtime.getRuntime().availableProcessors();
+    private Path traceDirectory;
+
+    public RomFarm frames(int frames) {
+        this.frames = frames;
+        return this;
+    }
+
+    public RomFarm instructionsPerFrame(int instructionsPerFrame) {
+        this.instructionsPerFrame = instructionsPerFrame;
+        return this;
+    }
+
+    public RomFarm engine(EngineType engine) {
+        this.engine = engine;
+        return this;
+    }
+
+    public RomFarm parallelism(int parallelism) {
+        this.parallelism = parallelism;
+        return this;
+    }
+
+    /**
+     * Grava o trace binário de cada ROM em {@code <diretório>/<rom>.c8trace}; as ROMs rodam no
+     * {@link TracingInterpreter} em vez do {@code engine}.
+     */
+    public RomFarm traceDirectory(Path traceDirectory) {
+        this.traceDirectory = traceDirectory;
+        return this;
+    }
+
+    public List<RomResult> run(Path directory) throws IOException, InterruptedException {
+        List<Path> roms;
+        try (Stream<Path> files = Files.walk(directory)) {
+            roms = files.filter(p -> Files.isRegularFile(p) && p.getFileName().toString().toLowerCase().endsWith(".ch8"))
+                    .sorted()
+                    .toList();
+        }
+
+        ExecutorService pool = Executors.newWorkStealingPool(parallelism);
+        try {
+            List<Future<RomResult>> futures = new ArrayList<>(roms.size());
+            for (Path rom : roms) {
+                String name = directory.relativize(rom).toString().replace('\\', '/');
+                futures.add(pool.submit(() -> runOne(name, rom)));
+            }
+            List<RomResult> results = new ArrayList<>(roms.size());
+            for (Future<RomResult> future : futures) {
+                try {
+                    results.add(future.get());
+                } catch (ExecutionException e) {
+                    throw new IllegalStateException(e.getCause());
+                }
+            }
+            results.sort(Comparator.comparing(RomResult::rom));
+            return results;
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    RomResult runOne(String name, Path rom) throws IOException {
+        if (traceDirectory == null) return runOne(name, rom, null);
+        Path file = traceDirectory.resolve(name + ".c8trace");
+        Files.createDirectories(file.getParent());
+        try (TraceRecorder recorder = TraceRecorder.toFile(file)) {
+            return runOne(name, rom, recorder);
+        }
+    }
+
+    private RomResult runOne(String name, Path rom, TraceRecorder recorder) {
+        Chip8 chip8 = new Chip8();
+        chip8.setEngine(recorder != null ? new TracingInterpreter(recorder) : engine.create());
+        chip8.setInstructionsPerFrame(instructionsPerFrame);
+        try {
+            chip8.loadRom(Files.readAllBytes(rom));
+        } catch (IOException | RuntimeException e) {
+            return new RomResult(name, 0, 0, "LOAD_ERROR:" + e.getClass().getSimpleName());
+        }
+        chip8.setRandomSeed(SEED);
+        chip8.runFrames(frames);
+        String status = chip8.isFaulted()
+                ? "FAULT:" + chip8.getFault().getClass().getSimpleName() + "@" + Integer.toHexString(chip8.getFaultPc())
+                : RomResult.OK;
+        return new RomResult(name, chip8.getFramebuffer().contentHash(), chip8.getCycles(), status);
+    }
+
+    public static Map<String, RomResult> readGolden(Path file) throws IOException {
+        Map<String, RomResult> golden = new LinkedHashMap<>();
+        for (String line : Files.readAllLines(file)) {
+            if (line.isBlank() || line.startsWith("#")) continue;
+            RomResult result = RomResult.parse(line);
+            golden.put(result.rom(), result);
+        }
+        return golden;
+    }
+
+    public static void writeGolden(Path file, List<RomResult> results) throws IOException {
+        Files.write(file, results.stream().map(RomResult::toLine).toList());
+    }
+
+    /**
+     * Diferenças entre a execução atual e o golden, uma linha por ROM ({@code -} só no golden,
+     * {@code +} nova, {@code ~} mudou).
+     */
+    public static List<String> diff(Map<String, RomResult> golden, List<RomResult> results) {
+        List<String> diff = new ArrayList<>();
+        Map<String, RomResult> remaining = new LinkedHashMap<>(golden);
+        for (RomResult result : results) {
+            RomResult expected = remaining.remove(result.rom());
+            if (expected == null) {
+                diff.add("+ " + result.toLine());
+            } else if (!expected.equals(result)) {
+                diff.add("~ " + result.rom() + "\texpected " + expected.toLine() + "\tgot " + result.toLine());
+            }
+        }
+        remaining.values().forEach(r -> diff.add("- " + r.toLine()));
+        return diff;
+    }
+
+    /**
+     * {@code batch <dir> [--frames N] [--ipf N] [--engine INTERPRETER|THREADED|RECOMPILER] [--threads N]
+     * [--golden arquivo] [--write-golden arquivo] [--trace diretório]}
+     */
+    public static int main(List<String> args) throws IOException, InterruptedException {
+        RomFarm farm = new RomFarm();
+        Path directory = null;
+        Path golden = null;
+        Path writeGolden = null;
+        for (int i = 0; i < args.size(); i++) {
+            String arg = args.get(i);
+            switch (arg) {
+                case "--frames" -> farm.frames(Integer.parseInt(args.get(++i)));
+                case "--ipf" -> farm.instructionsPerFrame(Integer.parseInt(args.get(++i)));
+                case "--engine" -> farm.engine(EngineType.valueOf(args.get(++i).toUpperCase()));
+                case "--threads" -> farm.parallelism(Integer.parseInt(args.get(++i)));
+                case "--trace" -> farm.traceDirectory(Path.of(args.get(++i)));
+                case "--golden" -> golden = Path.of(args.get(++i));
+                case "--write-golden" -> writeGolden = Path.of(args.get(++i));
+                default -> directory = Path.of(arg);
+            }
+        }
+        if (directory == null) {
+            IO.println("usage: batch <dir> [--frames N] [--ipf N] [--engine TYPE] [--threads N] [--golden FILE] [--write-golden FILE] [--trace DIR]");
+            return 2;
+        }
+
+        long start = System.nanoTime();
+        List<RomResult> results = farm.run(directory);
+        long elapsed = System.nanoTime() - start;
+        results.forEach(r -> IO.println(r.toLine()));
+        long faults = results.stream().filter(r -> !r.status().equals(RomResult.OK)).count();
+        IO.println(String.format("# %d roms, %d faults, %.1f ms", results.size(), faults, elapsed / 1e6));
+
+        if (writeGolden != null) writeGolden(writeGolden, results);
+        if (golden != null) {
+            List<String> diff = diff(readGolden(golden), results);
+            diff.forEach(IO::println);
+            IO.println(String.format("# %d differences against %s", diff.size(), golden));
+            return diff.isEmpty() ? 0 : 1;
+        }
+        return 0;
+    }
+}
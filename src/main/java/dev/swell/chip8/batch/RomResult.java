@@ -0,0 +1,20 @@
+package dev.swell.chip8.batch;
+
+/**
+ * Resultado de uma ROM no farm: hash da tela final, instruções executadas e estado (OK, FAULT ou LOAD_ERROR).
+ * Uma linha por ROM, separada por tabs, que também é o formato do arquivo golden.
+ */
+public record RomResult(String rom, long framebufferHash, long cycles, String status) {
+
+    public static final String OK = "OK";
+
+    public String toLine() {
+        return rom + '\t' + String.format("%016x", framebufferHash) + '\t' + cycles + '\t' + status;
+    }
+
+    public static RomResult parse(String line) {
+        String[] fields = line.split("\t", 4);
+        if (fields.length != 4) throw new IllegalArgumentException("invalid result line: " + line);
+        return new RomResult(fields[0], Long.parseUnsignedLong(fields[1], 16), Long.parseLong(fields[2]), fields[3]);
+    }
+}
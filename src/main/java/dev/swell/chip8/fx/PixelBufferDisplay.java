@@ -0,0 +1,101 @@
+package dev.swell.chip8.fx;
+
+import dev.swell.chip8.Display;
+import dev.swell.chip8.FrameExchange;
+import dev.swell.chip8.Framebuffer;
+import dev.swell.chip8.RenderEvent;
+import dev.swell.chip8.RenderTimer;
+import dev.swell.chip8.RowRasterizer;
+import javafx.application.Platform;
+import javafx.geometry.Rectangle2D;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.image.PixelBuffer;
+import javafx.scene.image.PixelFormat;
+import javafx.scene.image.WritableImage;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Renderiza a tela em um {@link PixelBuffer} na resolução nativa, reescrevendo apenas as linhas que mudaram
+ * desde o último quadro apresentado, e escala para o canvas com um único {@code drawImage}.
+ * <p>
+ * Os quadros chegam da thread da emulação por um {@link FrameExchange}; existe no máximo um
+ * {@code Platform.runLater} pendente, que desenha o quadro mais novo disponível quando roda.
+ */
+public class PixelBufferDisplay implements Display {
+
+    private static final int COLOR_ON = 0xFFFF0000;
+    private static final int COLOR_OFF = 0xFF000000;
+    // XO-CHIP: apagado, só plano 1, só plano 2, os dois
+    private static final int[] PALETTE = {COLOR_OFF, COLOR_ON, 0xFF00AAFF, 0xFFFFFFFF};
+
+    private final Canvas canvas;
+    private final GraphicsContext gc;
+
+    private RowRasterizer rasterizer;
+    private IntBuffer pixels;
+    private PixelBuffer<IntBuffer> pixelBuffer;
+    private WritableImage image;
+    private final FrameExchange exchange = new FrameExchange();
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+    private final RenderTimer renderTimer = new RenderTimer();
+
+    public PixelBufferDisplay(Canvas canvas) {
+        this.canvas = canvas;
+        this.gc = canvas.getGraphicsContext2D();
+        this.gc.setImageSmoothing(false);
+    }
+
+    public RenderTimer getRenderTimer() {
+        return renderTimer;
+    }
+
+    @Override
+    public void present(Framebuffer framebuffer) {
+        exchange.publish(framebuffer);
+        if (Platform.isFxApplicationThread()) {
+            drawLatest();
+        } else if (scheduled.compareAndSet(false, true)) {
+            Platform.runLater(this::drawLatest);
+        }
+    }
+
+    // na thread do FX; libera o agendamento antes de pegar o quadro para não perder um publicado logo depois
+    private void drawLatest() {
+        scheduled.set(false);
+        FrameExchange.Frame frame = exchange.take();
+        if (frame != null) draw(frame.getWords(), frame.getWidth(), frame.getHeight(), frame.getPlanes());
+    }
+
+    private void resize(int w, int h, int planes) {
+        rasterizer = new RowRasterizer(w, h, planes, PALETTE);
+        pixels = ByteBuffer.allocateDirect(w * h * 4).order(ByteOrder.nativeOrder()).asIntBuffer();
+        pixelBuffer = new PixelBuffer<>(w, h, pixels, PixelFormat.getIntArgbPreInstance());
+        image = new WritableImage(pixelBuffer);
+    }
+
+    private void draw(long[] frame, int w, int h, int planes) {
+        RenderEvent event = new RenderEvent();
+        event.begin();
+        long start = System.nanoTime();
+        if (rasterizer == null || w != rasterizer.getWidth() || h != rasterizer.getHeight()
+                || planes != rasterizer.getPlanes()) {
+            resize(w, h, planes);
+        }
+        if (!rasterizer.rasterize(frame, pixels)) return;
+
+        int minY = rasterizer.getDirtyMinY();
+        Rectangle2D dirty = new Rectangle2D(0, minY, w, rasterizer.getDirtyMaxY() - minY + 1);
+        pixelBuffer.updateBuffer(b -> dirty);
+        gc.drawImage(image, 0, 0, canvas.getWidth(), canvas.getHeight());
+        renderTimer.record(System.nanoTime() - start);
+        if (event.shouldCommit()) {
+            event.rows = (int) dirty.getHeight();
+            event.commit();
+        }
+    }
+}
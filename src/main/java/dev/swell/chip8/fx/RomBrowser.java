@@ -0,0 +1,96 @@
+package dev.swell.chip8.fx;
+
+import dev.swell.chip8.library.RomEntry;
+import dev.swell.chip8.library.RomLibrary;
+import javafx.application.Platform;
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+import javafx.collections.transformation.FilteredList;
+import javafx.scene.control.ButtonBar;
+import javafx.scene.control.ButtonType;
+import javafx.scene.control.Dialog;
+import javafx.scene.control.Label;
+import javafx.scene.control.ListCell;
+import javafx.scene.control.ListView;
+import javafx.scene.control.TextField;
+import javafx.scene.layout.Priority;
+import javafx.scene.layout.VBox;
+import javafx.stage.Window;
+
+import java.nio.file.Path;
+import java.util.Locale;
+
+/**
+ * Lista as ROMs da {@link RomLibrary} com filtro por nome ou plataforma. Mostra o índice em disco na hora
+ * e troca a lista quando a atualização em segundo plano termina.
+ */
+public class RomBrowser extends Dialog<ButtonType> {
+
+    public static final ButtonType OPEN = new ButtonType("Abrir", ButtonBar.ButtonData.OK_DONE);
+    public static final ButtonType OTHER_FILE = new ButtonType("Outro arquivo...", ButtonBar.ButtonData.LEFT);
+
+    private final RomLibrary library;
+    private final ObservableList<RomEntry> entries = FXCollections.observableArrayList();
+    private final FilteredList<RomEntry> filtered = new FilteredList<>(entries);
+    private final ListView<RomEntry> list = new ListView<>(filtered);
+    private final Label status = new Label();
+
+    public RomBrowser(Window owner, RomLibrary library) {
+        this.library = library;
+        initOwner(owner);
+        setTitle("ROMs em " + library.getRoot());
+        setResizable(true);
+
+        TextField filter = new TextField();
+        filter.setPromptText("Filtrar por nome ou plataforma");
+        filter.textProperty().addListener((obs, old, text) -> {
+            String query = text.trim().toLowerCase(Locale.ROOT);
+            filtered.setPredicate(query.isEmpty() ? null : e -> e.path().toLowerCase(Locale.ROOT).contains(query)
+                    || e.platform().name().toLowerCase(Locale.ROOT).contains(query));
+            updateStatus();
+        });
+
+        list.setCellFactory(view -> new ListCell<>() {
+            @Override
+            protected void updateItem(RomEntry entry, boolean empty) {
+                super.updateItem(entry, empty);
+                setText(empty || entry == null ? null : entry.path() + "  [" + entry.platform() + ", " + entry.size() + " bytes]");
+            }
+        });
+        list.setPrefSize(520, 400);
+        list.setOnMouseClicked(event -> {
+            if (event.getClickCount() == 2 && getSelectedRom() != null) {
+                setResult(OPEN);
+                close();
+            }
+        });
+        VBox.setVgrow(list, Priority.ALWAYS);
+
+        getDialogPane().setContent(new VBox(8, filter, list, status));
+        getDialogPane().getButtonTypes().addAll(OPEN, OTHER_FILE, ButtonType.CANCEL);
+        getDialogPane().lookupButton(OPEN).disableProperty().bind(list.getSelectionModel().selectedItemProperty().isNull());
+        setOnShown(event -> filter.requestFocus());
+
+        entries.setAll(library.entries());
+        status.setText("Atualizando...");
+        library.refreshAsync().whenComplete((stats, failure) -> Platform.runLater(() -> {
+            if (failure != null) {
+                status.setText("Falha ao atualizar: " + failure.getMessage());
+                return;
+            }
+            RomEntry selected = list.getSelectionModel().getSelectedItem();
+            entries.setAll(library.entries());
+            if (selected != null) list.getSelectionModel().select(selected);
+            updateStatus();
+        }));
+    }
+
+    public Path getSelectedRom() {
+        RomEntry entry = list.getSelectionModel().getSelectedItem();
+        return entry != null ? library.resolve(entry) : null;
+    }
+
+    private void updateStatus() {
+        status.setText(filtered.size() + " de " + entries.size() + " ROMs");
+    }
+}
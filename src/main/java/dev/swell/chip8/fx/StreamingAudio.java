@@ -0,0 +1,139 @@
+package dev.swell.chip8.fx;
+
+import dev.swell.chip8.AudioSink;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioSystem;
+import javax.sound.sampled.LineUnavailableException;
+import javax.sound.sampled.SourceDataLine;
+import java.util.Arrays;
+
+/**
+ * Síntese contínua numa única {@link SourceDataLine} alimentada por uma thread de áudio própria.
+ * <p>
+ * Cada {@link #setTone(boolean)} (um por quadro emulado) entra numa fila SPSC e vira exatamente
+ * {@value #FRAME_SAMPLES} amostras com o tom ligado ou desligado, de modo que a duração do bipe segue o
+ * sound timer à amostra. A forma de onda é o padrão de 1 bit do XO-CHIP, expandido uma vez em amostras de
+ * 16 bits e percorrido com um incremento de fase por pitch também pré-calculado. A fila guarda no máximo
+ * {@value #MAX_LATENCY_FRAMES} quadros de atraso; quadros a mais (turbo) são descartados.
+ */
+public class StreamingAudio implements AudioSink, AutoCloseable {
+
+    public static final int SAMPLE_RATE = 44100;
+    public static final int FRAME_SAMPLES = SAMPLE_RATE / 60;
+
+    private static final int QUEUE_SIZE = 16; // potência de 2
+    private static final int MAX_LATENCY_FRAMES = 4;
+    private static final short AMPLITUDE = 6000;
+    private static final int PATTERN_BITS = 128;
+    private static final int PHASE_MASK = (PATTERN_BITS << 16) - 1;
+
+    // bits do padrão por amostra em ponto fixo 16.16, para cada pitch: 4000 * 2^((pitch - 64) / 48) Hz
+    private static final int[] PHASE_STEP = new int[256];
+
+    static {
+        for (int pitch = 0; pitch < PHASE_STEP.length; pitch++) {
+            double rate = 4000 * Math.pow(2, (pitch - 64) / 48.0);
+            PHASE_STEP[pitch] = (int) Math.round(rate / SAMPLE_RATE * 65536);
+        }
+    }
+
+    private final SourceDataLine line;
+    private final Thread thread;
+    private volatile boolean running = true;
+
+    // fila de quadros: escrita só pela thread da emulação, lida só pela thread de áudio
+    private final boolean[] gates = new boolean[QUEUE_SIZE];
+    private volatile long written = 0;
+    private volatile long read = 0;
+
+    private final byte[] pattern = new byte[PATTERN_BITS / 8];
+    private volatile short[] waveform = expand(pattern);
+    private volatile int pitch = 64;
+
+    public StreamingAudio() throws LineUnavailableException {
+        AudioFormat format = new AudioFormat(SAMPLE_RATE, 16, 1, true, false);
+        line = AudioSystem.getSourceDataLine(format);
+        line.open(format, FRAME_SAMPLES * 2 * 3);
+        line.start();
+        thread = Thread.ofPlatform().name("chip8-audio").daemon().start(this::run);
+    }
+
+    /**
+     * Abre a saída de áudio, ou devolve {@link AudioSink#NONE} se não houver dispositivo (headless).
+     */
+    public static AudioSink openOrNone() {
+        try {
+            return new StreamingAudio();
+        } catch (LineUnavailableException | IllegalArgumentException | SecurityException e) {
+            return AudioSink.NONE;
+        }
+    }
+
+    @Override
+    public void setTone(boolean on) {
+        long w = written;
+        if (w - read >= QUEUE_SIZE) return;
+        gates[(int) (w & (QUEUE_SIZE - 1))] = on;
+        written = w + 1;
+    }
+
+    @Override
+    public void setPattern(byte[] pattern, int pitch) {
+        this.pitch = pitch & 0xFF;
+        if (Arrays.equals(this.pattern, pattern)) return;
+        System.arraycopy(pattern, 0, this.pattern, 0, this.pattern.length);
+        waveform = expand(this.pattern);
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        line.stop();
+        line.close();
+    }
+
+    private static short[] expand(byte[] pattern) {
+        short[] samples = new short[PATTERN_BITS];
+        for (int bit = 0; bit < PATTERN_BITS; bit++) {
+            boolean set = (pattern[bit >>> 3] << (bit & 7) & 0x80) != 0;
+            samples[bit] = set ? AMPLITUDE : -AMPLITUDE;
+        }
+        return samples;
+    }
+
+    private void run() {
+        byte[] buffer = new byte[FRAME_SAMPLES * 2];
+        int phase = 0;
+        while (running) {
+            boolean on = false;
+            long r = read;
+            long w = written;
+            if (w - r > MAX_LATENCY_FRAMES) r = w - MAX_LATENCY_FRAMES;
+            if (r < w) {
+                on = gates[(int) (r & (QUEUE_SIZE - 1))];
+                read = r + 1;
+            }
+
+            if (on) {
+                short[] samples = waveform;
+                int step = PHASE_STEP[pitch];
+                for (int i = 0, b = 0; i < FRAME_SAMPLES; i++, b += 2) {
+                    short sample = samples[phase >>> 16];
+                    buffer[b] = (byte) sample;
+                    buffer[b + 1] = (byte) (sample >> 8);
+                    phase = (phase + step) & PHASE_MASK;
+                }
+            } else {
+                Arrays.fill(buffer, (byte) 0);
+            }
+            // bloqueia até caber na linha: é isso que dá o ritmo da thread
+            line.write(buffer, 0, buffer.length);
+        }
+    }
+}
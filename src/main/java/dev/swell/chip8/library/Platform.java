@@ -0,0 +1,23 @@
+package dev.swell.chip8.library;
+
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * Plataforma provável de uma ROM e os quirks que ela costuma esperar.
+ */
+public enum Platform {
+    CHIP_8(EnumSet.of(Quirk.VF_RESET, Quirk.MEMORY, Quirk.DISPLAY_WAIT, Quirk.CLIPPING)),
+    SCHIP(EnumSet.of(Quirk.CLIPPING, Quirk.SHIFTING, Quirk.JUMPING)),
+    XO_CHIP(EnumSet.of(Quirk.MEMORY));
+
+    private final Set<Quirk> defaultQuirks;
+
+    Platform(Set<Quirk> defaultQuirks) {
+        this.defaultQuirks = defaultQuirks;
+    }
+
+    public Set<Quirk> getDefaultQuirks() {
+        return EnumSet.copyOf(defaultQuirks);
+    }
+}
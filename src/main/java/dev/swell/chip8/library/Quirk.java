@@ -0,0 +1,20 @@
+package dev.swell.chip8.library;
+
+/**
+ * Diferenças de comportamento entre interpretadores que uma ROM pode exigir (nomes da suíte de testes de
+ * quirks da comunidade).
+ */
+public enum Quirk {
+    /** 8XY1/8XY2/8XY3 zeram VF. */
+    VF_RESET,
+    /** FX55/FX65 avançam I. */
+    MEMORY,
+    /** DXYN espera o próximo quadro. */
+    DISPLAY_WAIT,
+    /** Sprites são cortados na borda em vez de dar a volta. */
+    CLIPPING,
+    /** 8XY6/8XYE deslocam VX, ignorando VY. */
+    SHIFTING,
+    /** BXNN salta para XNN + VX. */
+    JUMPING
+}
@@ -0,0 +1,82 @@
+package dev.swell.chip8.library;
+
+import dev.swell.chip8.Chip8;
+import dev.swell.chip8.ControlFlow;
+import dev.swell.chip8.Opcode;
+
+import java.nio.ByteBuffer;
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * Adivinha a plataforma de uma ROM pelas operações do código alcançável a partir de 0x200 ({@link ControlFlow}),
+ * o que deixa de fora os sprites. Se a análise encontra saltos indiretos sem destino, volta a considerar todas
+ * as palavras alinhadas, e aí dados de sprite também viram "operações"; por isso uma extensão só conta com pelo
+ * menos duas operações distintas dela. ROMs maiores que a memória do CHIP-8 só podem ser XO-CHIP.
+ */
+final class RomAnalyzer {
+
+    private static final int[] SCHIP_OPERATIONS = {
+            Opcode.SCD, Opcode.SCR, Opcode.SCL, Opcode.EXIT, Opcode.LOW, Opcode.HIGH,
+            Opcode.LD_HF_VX, Opcode.LD_R_VX, Opcode.LD_VX_R
+    };
+    private static final int[] XO_CHIP_OPERATIONS = {
+            Opcode.SCU, Opcode.SAVE_RANGE, Opcode.LOAD_RANGE, Opcode.LD_I_LONG, Opcode.PLANE, Opcode.AUDIO, Opcode.PITCH
+    };
+
+    record Analysis(Platform platform, Set<Quirk> quirks) {
+    }
+
+    private RomAnalyzer() {
+    }
+
+    static Analysis analyze(ByteBuffer rom) {
+        boolean[] seen = new boolean[Opcode.OPERATION_COUNT];
+        ControlFlow flow = null;
+        if (rom.limit() <= Chip8.MAX_ROM_SIZE) {
+            byte[] memory = new byte[Chip8.MEMORY_SIZE];
+            rom.get(0, memory, Chip8.PROGRAM_START, rom.limit());
+            flow = ControlFlow.analyze(memory, Chip8.PROGRAM_START);
+            if (flow.hasUnresolvedJumps()) {
+                flow = null;
+            } else {
+                for (int address : flow.getInstructions()) {
+                    seen[Opcode.operation((memory[address] & 0xFF) << 8 | (memory[address + 1] & 0xFF))] = true;
+                }
+            }
+        }
+        if (flow == null) {
+            for (int i = 0; i + 1 < rom.limit(); i += 2) {
+                seen[Opcode.operation(rom.getShort(i) & 0xFFFF)] = true;
+            }
+        }
+        Platform platform;
+        if (rom.limit() > Chip8.MAX_ROM_SIZE || count(seen, XO_CHIP_OPERATIONS) >= 2) {
+            platform = Platform.XO_CHIP;
+        } else if (count(seen, SCHIP_OPERATIONS) >= 2) {
+            platform = Platform.SCHIP;
+        } else {
+            platform = Platform.CHIP_8;
+        }
+
+        // só sugere os quirks que alguma operação usada pela ROM percebe
+        Set<Quirk> quirks = platform.getDefaultQuirks();
+        if (!seen[Opcode.OR] && !seen[Opcode.AND] && !seen[Opcode.XOR]) quirks.remove(Quirk.VF_RESET);
+        if (!seen[Opcode.LD_MEM_VX] && !seen[Opcode.LD_VX_MEM]) quirks.remove(Quirk.MEMORY);
+        if (!seen[Opcode.DRW]) {
+            quirks.remove(Quirk.DISPLAY_WAIT);
+            quirks.remove(Quirk.CLIPPING);
+        }
+        if (!seen[Opcode.SHR] && !seen[Opcode.SHL]) quirks.remove(Quirk.SHIFTING);
+        if (!seen[Opcode.JP_V0]) quirks.remove(Quirk.JUMPING);
+        return new Analysis(platform, quirks);
+    }
+
+    private static int count(boolean[] seen, int[] operations) {
+        int count = 0;
+        for (int operation : operations) {
+            if (seen[operation]) count++;
+        }
+        return count;
+    }
+}
@@ -0,0 +1,40 @@
+package dev.swell.chip8.library;
+
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Uma ROM do índice: caminho relativo à raiz da biblioteca, tamanho e mtime (que decidem se é preciso
+ * reanalisar), SHA-1 do conteúdo, plataforma provável e quirks sugeridos. Uma linha por ROM, separada por
+ * tabs, com o caminho por último.
+ */
+public record RomEntry(String path, long size, long modified, String sha1, Platform platform, Set<Quirk> quirks) {
+
+    public RomEntry {
+        EnumSet<Quirk> copy = EnumSet.noneOf(Quirk.class);
+        copy.addAll(quirks);
+        quirks = Collections.unmodifiableSet(copy);
+    }
+
+    public String name() {
+        return path.substring(path.lastIndexOf('/') + 1);
+    }
+
+    public String toLine() {
+        String quirkList = quirks.isEmpty() ? "-" : quirks.stream().map(Quirk::name).collect(Collectors.joining(","));
+        return size + "\t" + modified + "\t" + sha1 + "\t" + platform + "\t" + quirkList + "\t" + path;
+    }
+
+    public static RomEntry parse(String line) {
+        String[] fields = line.split("\t", 6);
+        if (fields.length != 6) throw new IllegalArgumentException("invalid index line: " + line);
+        EnumSet<Quirk> quirks = EnumSet.noneOf(Quirk.class);
+        if (!fields[4].equals("-")) {
+            for (String quirk : fields[4].split(",")) quirks.add(Quirk.valueOf(quirk));
+        }
+        return new RomEntry(fields[5], Long.parseLong(fields[0]), Long.parseLong(fields[1]), fields[2],
+                Platform.valueOf(fields[3]), quirks);
+    }
+}
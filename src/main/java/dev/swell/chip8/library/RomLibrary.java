@@ -0,0 +1,314 @@
+package dev.swell.chip8.library;
+
+import dev.swell.chip8.Chip8;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryIteratorException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Biblioteca de ROMs de uma pasta. O índice em disco é carregado na abertura, então a lista está disponível
+ * na hora; {@link #refresh()} percorre a árvore em paralelo (uma tarefa fork/join por diretório) e só lê as
+ * ROMs novas ou cujo tamanho ou mtime mudou: essas são mapeadas com {@link FileChannel#map} para calcular
+ * o SHA-1 e detectar plataforma e quirks pelos opcodes. O índice é regravado atomicamente se algo mudou.
+ */
+public final class RomLibrary {
+
+    public static final String INDEX_HEADER = "# chip8 rom index v1";
+    public static final Set<String> EXTENSIONS = Set.of("ch8", "c8", "sc8", "xo8");
+    // maior ROM que o XO-CHIP endereça; arquivos maiores não são ROMs
+    public static final int MAX_FILE_SIZE = 0x10000 - Chip8.PROGRAM_START;
+
+    public record RefreshStats(int roms, int hashed, int removed, int errors, long nanos) {
+    }
+
+    private final Path root;
+    private final Path indexFile;
+    private volatile List<RomEntry> entries;
+    private CompletableFuture<RefreshStats> refreshing;
+
+    private RomLibrary(Path root, Path indexFile, List<RomEntry> entries) {
+        this.root = root;
+        this.indexFile = indexFile;
+        this.entries = entries;
+    }
+
+    /**
+     * Abre a biblioteca com o índice em {@code ~/.chip8}, um arquivo por pasta raiz.
+     */
+    public static RomLibrary open(Path root) throws IOException {
+        Path absolute = root.toAbsolutePath().normalize();
+        String key = HexFormat.of().toHexDigits(absolute.toString().hashCode());
+        return open(absolute, defaultDirectory().resolve("index-" + key + ".tsv"));
+    }
+
+    public static RomLibrary open(Path root, Path indexFile) throws IOException {
+        return new RomLibrary(root.toAbsolutePath().normalize(), indexFile, readIndex(indexFile));
+    }
+
+    public static Path defaultDirectory() {
+        return Path.of(System.getProperty("user.home"), ".chip8");
+    }
+
+    public Path getRoot() {
+        return root;
+    }
+
+    public Path getIndexFile() {
+        return indexFile;
+    }
+
+    /**
+     * ROMs conhecidas, em ordem de caminho; o que estava no índice até o próximo {@link #refresh()} terminar.
+     */
+    public List<RomEntry> entries() {
+        return entries;
+    }
+
+    public Path resolve(RomEntry entry) {
+        return root.resolve(entry.path());
+    }
+
+    public RefreshStats refresh() throws IOException {
+        return refresh(Runtime.getRuntime().availableProcessors());
+    }
+
+    public RefreshStats refresh(int parallelism) throws IOException {
+        // pasta desmontada não deve apagar o índice
+        if (!Files.isDirectory(root)) throw new NoSuchFileException(root.toString());
+        long start = System.nanoTime();
+        Map<String, RomEntry> known = new LinkedHashMap<>();
+        for (RomEntry entry : entries) known.put(entry.path(), entry);
+
+        Scan scan = new Scan(known);
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        List<RomEntry> found;
+        try {
+            found = pool.invoke(scan.new DirectoryTask(root));
+        } finally {
+            pool.shutdownNow();
+        }
+        found.sort(Comparator.comparing(RomEntry::path));
+
+        int removed = known.size();
+        for (RomEntry entry : found) {
+            if (known.containsKey(entry.path())) removed--;
+        }
+        if (scan.hashed.get() > 0 || removed > 0) writeIndex(indexFile, found);
+        entries = List.copyOf(found);
+        return new RefreshStats(found.size(), scan.hashed.get(), removed, scan.errors.get(), System.nanoTime() - start);
+    }
+
+    /**
+     * Atualiza em uma thread própria; enquanto uma atualização roda, devolve a mesma.
+     */
+    public synchronized CompletableFuture<RefreshStats> refreshAsync() {
+        if (refreshing != null && !refreshing.isDone()) return refreshing;
+        CompletableFuture<RefreshStats> future = new CompletableFuture<>();
+        refreshing = future;
+        Thread.ofPlatform().name("chip8-library").daemon().start(() -> {
+            try {
+                future.complete(refresh());
+            } catch (IOException | RuntimeException e) {
+                future.completeExceptionally(e);
+            }
+        });
+        return future;
+    }
+
+    public Map<Platform, Integer> countByPlatform() {
+        Map<Platform, Integer> counts = new EnumMap<>(Platform.class);
+        for (RomEntry entry : entries) counts.merge(entry.platform(), 1, Integer::sum);
+        return counts;
+    }
+
+    /**
+     * Estado compartilhado de uma varredura: o índice anterior é só lido e os contadores são atômicos.
+     */
+    private final class Scan {
+        final Map<String, RomEntry> known;
+        final AtomicInteger hashed = new AtomicInteger();
+        final AtomicInteger errors = new AtomicInteger();
+
+        Scan(Map<String, RomEntry> known) {
+            this.known = known;
+        }
+
+        final class DirectoryTask extends RecursiveTask<List<RomEntry>> {
+            private final Path directory;
+
+            DirectoryTask(Path directory) {
+                this.directory = directory;
+            }
+
+            @Override
+            protected List<RomEntry> compute() {
+                List<DirectoryTask> children = new ArrayList<>();
+                List<RomEntry> found = new ArrayList<>();
+                try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory)) {
+                    for (Path path : stream) {
+                        // uma entrada ruim (link quebrado, apagada no meio da varredura) não derruba as irmãs
+                        BasicFileAttributes attributes;
+                        boolean link;
+                        try {
+                            attributes = Files.readAttributes(path, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+                            link = attributes.isSymbolicLink();
+                            if (link) attributes = Files.readAttributes(path, BasicFileAttributes.class);
+                        } catch (IOException e) {
+                            errors.incrementAndGet();
+                            continue;
+                        }
+                        // links para diretórios não são seguidos: um link para um ancestral repetiria a árvore
+                        if (attributes.isDirectory() && !link) {
+                            DirectoryTask child = new DirectoryTask(path);
+                            child.fork();
+                            children.add(child);
+                        } else if (attributes.isRegularFile() && isRom(path, attributes)) {
+                            RomEntry entry = entry(path, attributes);
+                            if (entry != null) found.add(entry);
+                        }
+                    }
+                } catch (IOException | DirectoryIteratorException | UncheckedIOException e) {
+                    errors.incrementAndGet();
+                }
+                for (DirectoryTask child : children) found.addAll(child.join());
+                return found;
+            }
+        }
+
+        private RomEntry entry(Path file, BasicFileAttributes attributes) {
+            String path = root.relativize(file).toString().replace('\\', '/');
+            long size = attributes.size();
+            long modified = attributes.lastModifiedTime().toMillis();
+            RomEntry previous = known.get(path);
+            if (previous != null && previous.size() == size && previous.modified() == modified) return previous;
+            try {
+                RomEntry entry = analyze(path, file, size, modified);
+                hashed.incrementAndGet();
+                return entry;
+            } catch (IOException e) {
+                errors.incrementAndGet();
+                return null;
+            }
+        }
+    }
+
+    private static boolean isRom(Path path, BasicFileAttributes attributes) {
+        String name = path.getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        return dot >= 0 && EXTENSIONS.contains(name.substring(dot + 1).toLowerCase())
+                && attributes.size() > 0 && attributes.size() <= MAX_FILE_SIZE;
+    }
+
+    static RomEntry analyze(String path, Path file, long size, long modified) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer rom = channel.map(FileChannel.MapMode.READ_ONLY, 0, Math.min(size, channel.size()));
+            MessageDigest sha1 = sha1();
+            sha1.update(rom.duplicate());
+            RomAnalyzer.Analysis analysis = RomAnalyzer.analyze(rom);
+            return new RomEntry(path, size, modified, HexFormat.of().formatHex(sha1.digest()),
+                    analysis.platform(), analysis.quirks());
+        }
+    }
+
+    private static MessageDigest sha1() {
+        try {
+            return MessageDigest.getInstance("SHA-1");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    static List<RomEntry> readIndex(Path file) throws IOException {
+        List<String> lines;
+        try {
+            lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+        } catch (NoSuchFileException e) {
+            return List.of();
+        }
+        // índice de outra versão ou corrompido é descartado: a próxima atualização refaz tudo
+        if (lines.isEmpty() || !lines.get(0).equals(INDEX_HEADER)) return List.of();
+        List<RomEntry> entries = new ArrayList<>(lines.size());
+        try {
+            for (String line : lines.subList(1, lines.size())) {
+                if (!line.isBlank()) entries.add(RomEntry.parse(line));
+            }
+        } catch (IllegalArgumentException e) {
+            return List.of();
+        }
+        return List.copyOf(entries);
+    }
+
+    static void writeIndex(Path file, Collection<RomEntry> entries) throws IOException {
+        Files.createDirectories(file.toAbsolutePath().getParent());
+        List<String> lines = new ArrayList<>(entries.size() + 1);
+        lines.add(INDEX_HEADER);
+        entries.forEach(e -> lines.add(e.toLine()));
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        Files.write(temp, lines, StandardCharsets.UTF_8);
+        try {
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * {@code library <dir> [--index arquivo] [--threads N] [--list]}
+     */
+    public static int main(List<String> args) throws IOException {
+        Path directory = null;
+        Path index = null;
+        int threads = Runtime.getRuntime().availableProcessors();
+        boolean list = false;
+        for (int i = 0; i < args.size(); i++) {
+            String arg = args.get(i);
+            switch (arg) {
+                case "--index" -> index = Path.of(args.get(++i));
+                case "--threads" -> threads = Integer.parseInt(args.get(++i));
+                case "--list" -> list = true;
+                default -> directory = Path.of(arg);
+            }
+        }
+        if (directory == null) {
+            IO.println("usage: library <dir> [--index FILE] [--threads N] [--list]");
+            return 2;
+        }
+
+        long start = System.nanoTime();
+        RomLibrary library = index != null ? open(directory, index) : open(directory);
+        IO.println(String.format("# %d roms in index, loaded in %.1f ms", library.entries().size(), (System.nanoTime() - start) / 1e6));
+        RefreshStats stats = library.refresh(threads);
+        if (list) library.entries().forEach(e -> IO.println(e.toLine()));
+        IO.println(String.format("# %d roms, %d hashed, %d removed, %d errors, %.1f ms %s",
+                stats.roms(), stats.hashed(), stats.removed(), stats.errors(), stats.nanos() / 1e6, library.countByPlatform()));
+        return 0;
+    }
+}
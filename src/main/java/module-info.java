@@ -3,8 +3,14 @@ module dev.swell.chip {
     requires javafx.fxml;
     requires javafx.graphics;
     requires java.desktop;
+    requires java.management;
+    requires jdk.jfr;
+    // só o BatchEnv (subcomando env) usa: fora da camada de boot, o resto sobe sem o aviso de módulo incubado
+    requires static jdk.incubator.vector;
 
 
     opens dev.swell.chip8 to javafx.fxml;
     exports dev.swell.chip8;
+    exports dev.swell.chip8.batch;
+    exports dev.swell.chip8.library;
 }
\ No newline at end of file
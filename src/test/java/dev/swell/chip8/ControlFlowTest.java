@@ -0,0 +1,136 @@
+package dev.swell.chip8;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ControlFlowTest {
+
+    @Test
+    void jumpTableAtEndOfMemory() {
+        // 60FF BFFF: a tabela começaria em 0xFFF, onde não cabe nem uma palavra
+        ControlFlow flow = analyze(0x200, 0x60FF, 0xBFFF);
+        assertTrue(flow.hasUnresolvedJumps());
+        new Chip8().loadRom(new byte[]{0x60, (byte) 0xFF, (byte) 0xBF, (byte) 0xFF});
+
+        // tabela de dois saltos que termina na última palavra da memória
+        byte[] memory = memory(0x200, 0x6000, 0xBFFC);
+        put(memory, 0xFFC, 0x1200, 0x1202);
+        flow = ControlFlow.analyze(memory, Chip8.PROGRAM_START);
+        assertFalse(flow.hasUnresolvedJumps());
+        assertArrayEquals(new int[]{0xFFC, 0xFFE}, block(flow, 0x202).successors());
+        assertTrue(flow.isCode(0xFFC));
+        assertTrue(flow.isCode(0xFFE));
+    }
+
+    @Test
+    void callHasTargetAndReturnPoint() {
+        // 200 CALL 206; 202 V0=1; 204 JP 204; 206 V1=2; 208 RET
+        ControlFlow flow = analyze(0x200, 0x2206, 0x6001, 0x1204, 0x6102, 0x00EE);
+        assertArrayEquals(new int[]{0x206, 0x202}, block(flow, 0x200).successors());
+        assertArrayEquals(new int[0], block(flow, 0x206).successors());
+        assertEquals(0x20A, block(flow, 0x206).end());
+        assertTrue(flow.isCode(0x202));
+        assertTrue(flow.isCode(0x208));
+    }
+
+    @Test
+    void skipOverLongLoad() {
+        // 200 SE V0,0; 202 F000 0300 (I = 0x300, quatro bytes); 206 JP 206
+        ControlFlow flow = analyze(0x200, 0x3000, 0xF000, 0x0300, 0x1206);
+        assertArrayEquals(new int[]{0x202, 0x206}, block(flow, 0x200).successors());
+        assertTrue(flow.isCode(0x202));
+        assertFalse(flow.isCode(0x204));
+        assertTrue(flow.isCovered(0x204));
+        assertTrue(flow.isCovered(0x205));
+        assertTrue(flow.isCode(0x206));
+        assertTrue(flow.isData(0x300));
+    }
+
+    @Test
+    void spriteDataIsNotCode() {
+        // 200 I=206; 202 DRW V0,V1,5; 204 JP 204; 206 sprite "0" de 5 bytes
+        byte[] memory = memory(0x200, 0xA206, 0xD015, 0x1204);
+        put(memory, 0x206, 0xF090, 0x9090, 0xF000);
+        ControlFlow flow = ControlFlow.analyze(memory, Chip8.PROGRAM_START);
+        assertArrayEquals(new int[]{0x200, 0x202, 0x204}, flow.getInstructions());
+        for (int a = 0x206; a < 0x20B; a++) {
+            assertTrue(flow.isData(a), Integer.toHexString(a));
+            assertFalse(flow.isCovered(a), Integer.toHexString(a));
+        }
+        assertFalse(flow.isData(0x20B));
+        assertFalse(flow.isData(0x204));
+
+        // ANNN apontando para o próprio código não vira dado
+        flow = analyze(0x200, 0xA200, 0xD015, 0x1204);
+        assertFalse(flow.isData(0x200));
+    }
+
+    @Test
+    void selfModifyingWrites() {
+        // 200 I=208; 202 BCD V0 (escreve 208..20A); 204 JP 208; 208 V0=0; 20A JP 200
+        ControlFlow flow = analyze(0x200, 0xA208, 0xF033, 0x1208, 0x0000, 0x6000, 0x1200);
+        assertArrayEquals(new int[]{0x202}, flow.getSelfModifyingWrites());
+
+        // 200 I=204; 202 FX55 com V0..V1 (escreve 204..205); 204 JP 200
+        flow = analyze(0x200, 0xA204, 0xF155, 0x1200);
+        assertArrayEquals(new int[]{0x202}, flow.getSelfModifyingWrites());
+
+        // fora do código, ou com I desconhecido depois de FX1E, não conta
+        assertArrayEquals(new int[0], analyze(0x200, 0xA300, 0xF033, 0x1200).getSelfModifyingWrites());
+        assertArrayEquals(new int[0], analyze(0x200, 0xA200, 0xF01E, 0xF033, 0x1200).getSelfModifyingWrites());
+    }
+
+    @Test
+    void nestedLoopDepthAndOrder() {
+        ControlFlow flow = analyze(0x200,
+                0x6000,  // 200 laço externo
+                0x6100,  // 202
+                0x7101,  // 204 laço interno
+                0x3105,  // 206 SE V1,5
+                0x1204,  // 208
+                0x7001,  // 20A
+                0x3003,  // 20C SE V0,3
+                0x1200,  // 20E
+                0x1210); // 210 salto para si mesmo
+        List<ControlFlow.Loop> loops = flow.getLoops();
+        assertEquals(List.of(
+                new ControlFlow.Loop(0x204, 0x208, 3, 2),
+                new ControlFlow.Loop(0x210, 0x210, 1, 1),
+                new ControlFlow.Loop(0x200, 0x20E, 8, 1)), loops);
+        assertEquals(1, block(flow, 0x200).loopDepth());
+        assertEquals(2, block(flow, 0x204).loopDepth());
+        assertEquals(2, block(flow, 0x208).loopDepth());
+        assertEquals(1, block(flow, 0x20A).loopDepth());
+        assertEquals(1, block(flow, 0x210).loopDepth());
+    }
+
+    private static ControlFlow analyze(int address, int... words) {
+        return ControlFlow.analyze(memory(address, words), Chip8.PROGRAM_START);
+    }
+
+    private static byte[] memory(int address, int... words) {
+        byte[] memory = new byte[Chip8.MEMORY_SIZE];
+        put(memory, address, words);
+        return memory;
+    }
+
+    private static void put(byte[] memory, int address, int... words) {
+        for (int i = 0; i < words.length; i++) {
+            memory[address + 2 * i] = (byte) (words[i] >>> 8);
+            memory[address + 2 * i + 1] = (byte) words[i];
+        }
+    }
+
+    private static ControlFlow.Block block(ControlFlow flow, int start) {
+        for (ControlFlow.Block block : flow.getBlocks()) {
+            if (block.start() == start) return block;
+        }
+        throw new AssertionError("no block at " + Integer.toHexString(start));
+    }
+}
@@ -0,0 +1,54 @@
+package dev.swell.chip8;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DebuggerTest {
+
+    // com o depurador armado, sair do fim da memória vira falha da máquina, como nos outros motores
+    @Test
+    void fallingOffMemoryFaultsWithBreakpointArmed() {
+        byte[] rom = new byte[Chip8.MAX_ROM_SIZE];
+        for (int i = 0; i < rom.length; i += 2) {
+            rom[i] = 0x70; // 7001: ADD V0, 1
+            rom[i + 1] = 0x01;
+        }
+        Chip8 chip8 = new Chip8();
+        chip8.loadRom(rom);
+        Debugger debugger = new Debugger();
+        List<Integer> stops = new ArrayList<>();
+        debugger.setListener((machine, reason, address) -> stops.add(address));
+        debugger.setBreakpoint(Chip8.MEMORY_SIZE - 2);
+        chip8.setDebugger(debugger);
+
+        for (int frame = 0; frame < 1000 && !chip8.isFaulted(); frame++) chip8.runFrame();
+
+        assertTrue(chip8.isFaulted());
+        assertInstanceOf(ArrayIndexOutOfBoundsException.class, chip8.getFault());
+        assertEquals(Chip8.MEMORY_SIZE, chip8.getFaultPc());
+        assertEquals(List.of(Chip8.MEMORY_SIZE - 2), stops);
+        assertEquals(Chip8.MAX_ROM_SIZE / 2, chip8.getCycles());
+    }
+
+    @Test
+    void jumpPastMemoryFaultsWithBreakpointArmed() {
+        Chip8 chip8 = new Chip8();
+        // 60FF: V0 = 0xFF; BFFF: salta para 0xFFF + V0
+        chip8.loadRom(new byte[]{0x60, (byte) 0xFF, (byte) 0xBF, (byte) 0xFF});
+        Debugger debugger = new Debugger();
+        debugger.setBreakpoint(Chip8.PROGRAM_START);
+        chip8.setDebugger(debugger);
+
+        chip8.runFrame();
+
+        assertTrue(chip8.isFaulted());
+        assertEquals(0x10FE, chip8.getPc());
+        assertEquals(0x10FE, chip8.getFaultPc());
+    }
+}
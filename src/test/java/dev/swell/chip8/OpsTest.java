@@ -0,0 +1,46 @@
+package dev.swell.chip8;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class OpsTest {
+
+    // escritas que passariam do fim da memória falham sem escrever nada
+    @Test
+    void bcdPastMemoryWritesNothing() {
+        for (int i : new int[]{0xFFE, 0xFFF}) {
+            // 6xFF: V0 = 255; F000 NNNN: I = i; F033: BCD de V0
+            Chip8 chip8 = run(0x60FF, 0xF000, i, 0xF033);
+            assertTrue(chip8.isFaulted());
+            assertEquals(0x206, chip8.getFaultPc());
+            assertUnwritten(chip8, i);
+        }
+    }
+
+    @Test
+    void saveRangePastMemoryWritesNothing() {
+        // V0..V3 = 1; I = 0xFFE; 5032: salva V0..V3 (4 bytes)
+        Chip8 chip8 = run(0x6001, 0x6101, 0x6201, 0x6301, 0xF000, 0xFFE, 0x5032);
+        assertTrue(chip8.isFaulted());
+        assertEquals(0x20C, chip8.getFaultPc());
+        assertUnwritten(chip8, 0xFFE);
+    }
+
+    private static Chip8 run(int... words) {
+        byte[] rom = new byte[words.length * 2];
+        for (int i = 0; i < words.length; i++) {
+            rom[2 * i] = (byte) (words[i] >>> 8);
+            rom[2 * i + 1] = (byte) words[i];
+        }
+        Chip8 chip8 = new Chip8();
+        chip8.loadRom(rom);
+        chip8.runFrame();
+        return chip8;
+    }
+
+    private static void assertUnwritten(Chip8 chip8, int from) {
+        for (int a = from; a < Chip8.MEMORY_SIZE; a++) assertEquals(0, chip8.getMemory()[a], Integer.toHexString(a));
+    }
+}
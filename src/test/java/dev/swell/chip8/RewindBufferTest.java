@@ -0,0 +1,170 @@
+package dev.swell.chip8;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RewindBufferTest {
+
+    // os limites de RewindBuffer.MAX_RUN e MAX_LITERAL
+    private static final int MAX_RUN = 0x8000;
+    private static final int MAX_LITERAL = 0x80;
+
+    // A300 I=0x300; 7001 V0+=1; F033 BCD de V0 em I; D015 desenha em (V0, V1); 1202
+    private static final byte[] ROM = {(byte) 0xA3, 0x00, 0x70, 0x01, (byte) 0xF0, 0x33, (byte) 0xD0, 0x15, 0x12, 0x02};
+
+    @Test
+    void equalRunsLongerThanMaxRun() {
+        byte[] a = new byte[3 * MAX_RUN + 7];
+        Arrays.fill(a, (byte) 0x5A);
+        assertRoundTrip(a, a.clone());
+
+        for (int length : new int[]{MAX_RUN - 1, MAX_RUN, MAX_RUN + 1, MAX_RUN + 2, MAX_RUN + 3, 2 * MAX_RUN}) {
+            byte[] b = new byte[length + 1];
+            byte[] c = b.clone();
+            c[length] = 1; // a corrida termina logo antes de um byte diferente
+            assertRoundTrip(c, b);
+        }
+    }
+
+    @Test
+    void literalsAroundMaxLiteral() {
+        for (int length : new int[]{1, MAX_LITERAL - 1, MAX_LITERAL, MAX_LITERAL + 1, 2 * MAX_LITERAL, 2 * MAX_LITERAL + 1}) {
+            byte[] b = new byte[length + 8];
+            byte[] a = b.clone();
+            for (int i = 0; i < length; i++) a[i] = (byte) (i + 1);
+            assertRoundTrip(a, b);
+            // literal no fim, sem corrida depois
+            assertRoundTrip(Arrays.copyOf(a, length), Arrays.copyOf(b, length));
+        }
+    }
+
+    @Test
+    void shortEqualRuns() {
+        for (int equal = 0; equal <= 3; equal++) {
+            byte[] b = new byte[10 + equal];
+            byte[] a = b.clone();
+            for (int i = 0; i < 10; i++) a[i] = (byte) 0xFF;
+            // corrida final de 0 a 3 bytes iguais
+            assertRoundTrip(a, b);
+            // a mesma corrida no meio de dois literais
+            byte[] middle = Arrays.copyOf(a, a.length + 4);
+            Arrays.fill(middle, a.length, middle.length, (byte) 0x11);
+            assertRoundTrip(middle, new byte[middle.length]);
+        }
+    }
+
+    @Test
+    void emptyAndPartialInput() {
+        assertEquals(0, RewindBuffer.encode(new byte[0], new byte[0], new byte[2]));
+
+        byte[] a = new byte[64];
+        byte[] b = new byte[64];
+        Arrays.fill(a, (byte) 7);
+        byte[] out = new byte[64 + 64 / MAX_LITERAL + 2];
+        int length = RewindBuffer.encode(a, b, 20, out);
+        byte[] state = b.clone();
+        RewindBuffer.decode(out, length, state);
+        // só os 20 primeiros bytes entram na conta
+        assertArrayEquals(Arrays.copyOf(a, 20), Arrays.copyOf(state, 20));
+        assertArrayEquals(new byte[44], Arrays.copyOfRange(state, 20, 64));
+    }
+
+    @Test
+    void randomDifferences() {
+        SplittableRandom random = new SplittableRandom(11);
+        for (int round = 0; round < 500; round++) {
+            int n = random.nextInt(4 * MAX_LITERAL + 1);
+            byte[] b = new byte[n];
+            random.nextBytes(b);
+            byte[] a = b.clone();
+            int density = 1 + random.nextInt(8);
+            for (int i = 0; i < n; i++) {
+                if (random.nextInt(8) < density) a[i] ^= (byte) (1 + random.nextInt(255));
+            }
+            assertRoundTrip(a, b);
+        }
+    }
+
+    @Test
+    void stepBackRestoresRecordedStates() {
+        Chip8 chip8 = machine();
+        RewindBuffer rewind = new RewindBuffer();
+        List<byte[]> states = record(chip8, rewind, 50);
+        assertEquals(49, rewind.size());
+        assertStepsBack(chip8, rewind, states, 49);
+        assertFalse(rewind.stepBack(chip8));
+    }
+
+    @Test
+    void stepBackAfterRingEvictsEntries() {
+        // capacidades variadas fazem entradas e tamanhos atravessarem o fim do anel em posições diferentes
+        for (int capacity = 64; capacity <= 1024; capacity += 37) {
+            Chip8 chip8 = machine();
+            RewindBuffer rewind = new RewindBuffer(capacity);
+            List<byte[]> states = record(chip8, rewind, 200);
+            int kept = rewind.size();
+            assertTrue(kept > 0 && kept < 199, "capacity " + capacity + " kept " + kept);
+            assertTrue(rewind.getUsedBytes() <= capacity);
+
+            // volta metade, grava de novo por cima e volta tudo o que sobrou
+            int back = kept / 2;
+            assertStepsBack(chip8, rewind, states, back);
+            states = new ArrayList<>(states.subList(0, states.size() - back));
+            states.addAll(record(chip8, rewind, 30).subList(1, 30));
+            int remaining = rewind.size();
+            assertStepsBack(chip8, rewind, states, remaining);
+            assertFalse(rewind.stepBack(chip8));
+        }
+    }
+
+    @Test
+    void entryLargerThanRingRestartsHistory() {
+        Chip8 chip8 = machine();
+        RewindBuffer rewind = new RewindBuffer(8);
+        record(chip8, rewind, 5);
+        assertEquals(0, rewind.size());
+        assertFalse(rewind.stepBack(chip8));
+    }
+
+    private static Chip8 machine() {
+        Chip8 chip8 = new Chip8();
+        chip8.loadRom(ROM);
+        return chip8;
+    }
+
+    // grava frames estados (o atual e mais frames - 1 quadros) e retorna o SaveState de cada um
+    private static List<byte[]> record(Chip8 chip8, RewindBuffer rewind, int frames) {
+        List<byte[]> states = new ArrayList<>();
+        for (int frame = 0; frame < frames; frame++) {
+            if (frame > 0) chip8.runFrame(7, false);
+            rewind.record(chip8);
+            states.add(chip8.saveState().toBytes());
+        }
+        return states;
+    }
+
+    private static void assertStepsBack(Chip8 chip8, RewindBuffer rewind, List<byte[]> states, int steps) {
+        int last = states.size() - 1;
+        for (int k = 1; k <= steps; k++) {
+            assertTrue(rewind.stepBack(chip8), "step " + k);
+            assertArrayEquals(states.get(last - k), chip8.saveState().toBytes(), "step " + k);
+        }
+    }
+
+    private static void assertRoundTrip(byte[] a, byte[] b) {
+        byte[] out = new byte[a.length + a.length / MAX_LITERAL + 2];
+        int length = RewindBuffer.encode(a, b, out);
+        byte[] state = b.clone();
+        RewindBuffer.decode(out, length, state);
+        assertArrayEquals(a, state);
+    }
+}